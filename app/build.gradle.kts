@@ -26,6 +26,14 @@ android {
             )
         }
     }
+    androidResources {
+        // Zone files are memory-mapped straight out of the APK
+        noCompress += "zdb"
+    }
+    buildFeatures {
+        // BuildConfig.DEBUG gates the synthetic group load
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -34,6 +42,8 @@ android {
 
 dependencies {
 
+    // Platform-independent logic (geo math, zones, trail, SOS journal, planner parsing)
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -53,6 +63,9 @@ dependencies {
     // REMOVED OsmDroid - using Leaflet.js in WebView instead
     // implementation("org.osmdroid:osmdroid-android:6.1.18")
 
+    // RecyclerView for the per-day travel plan list
+    implementation("androidx.recyclerview:recyclerview:1.4.0")
+
     // OkHttp for API calls
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+// Group trip member markers shared by map.html and group_stress.html.
+//
+// Android sends member positions by slot number in applyMapBatch (see
+// MapCommandQueue). Each marker glides from where it is drawn to its new
+// position over about the time since its previous update, so members that
+// report every few seconds still move smoothly. All markers share one canvas
+// renderer, so a frame that moves hundreds of them is a single repaint, and the
+// loop only runs while some marker is still moving.
+
+const MEMBER_STYLE = {radius: 6, color: '#ffffff', weight: 2, fillColor: '#7b1fa2', fillOpacity: 0.9};
+const MIN_GLIDE_MS = 250;
+const MAX_GLIDE_MS = 3000;
+const GROUP_STATS_INTERVAL_MS = 60000;
+
+let groupMap = null;
+let groupRenderer = null;
+let groupLayer = null;
+let groupMembers = [];      // by slot; null when the slot is free
+let groupMemberCount = 0;
+let movingMembers = [];     // members still gliding
+let groupAnimationHandle = null;
+let groupAnimationsPaused = false;
+let groupFrameStats = {frames: 0, workMs: 0, maxWorkMs: 0, since: 0};
+
+function initGroupLayers(map) {
+    groupMap = map;
+    groupRenderer = L.canvas({padding: 0.5});
+    groupLayer = L.layerGroup().addTo(map);
+}
+
+// Apply the gc / gx / gn / g entries of a map batch
+function applyGroupBatch(batch) {
+    if (batch.gc) {
+        clearGroupMembers();
+    }
+    if (batch.gx) {
+        batch.gx.forEach(removeGroupMember);
+    }
+    if (batch.gn) {
+        for (let i = 0; i + 1 < batch.gn.length; i += 2) {
+            memberAt(batch.gn[i]).name = batch.gn[i + 1];
+        }
+    }
+    if (batch.g) {
+        const now = performance.now();
+        const g = batch.g;
+        for (let i = 0; i + 2 < g.length; i += 3) {
+            setGroupMemberTarget(memberAt(g[i]), g[i + 1], g[i + 2], now);
+        }
+    }
+    updateGroupLoop();
+}
+
+function memberAt(slot) {
+    let member = groupMembers[slot];
+    if (!member) {
+        member = {
+            slot: slot, name: '', marker: null, moving: false,
+            fromLat: 0, fromLng: 0, toLat: 0, toLng: 0, start: 0, duration: 0, lastUpdate: 0
+        };
+        groupMembers[slot] = member;
+        groupMemberCount++;
+    }
+    return member;
+}
+
+function setGroupMemberTarget(member, lat, lng, now) {
+    if (!member.marker) {
+        member.marker = L.circleMarker([lat, lng], Object.assign({renderer: groupRenderer}, MEMBER_STYLE));
+        member.marker.bindPopup(() => member.name || 'Group member');
+        groupLayer.addLayer(member.marker);
+        member.toLat = lat;
+        member.toLng = lng;
+        member.lastUpdate = now;
+        return;
+    }
+    // Start from where the marker is drawn now, so a glide in progress does not jump
+    const current = member.marker.getLatLng();
+    member.fromLat = current.lat;
+    member.fromLng = current.lng;
+    member.toLat = lat;
+    member.toLng = lng;
+    member.start = now;
+    member.duration = Math.max(MIN_GLIDE_MS, Math.min(MAX_GLIDE_MS, now - member.lastUpdate));
+    member.lastUpdate = now;
+    if (groupAnimationsPaused) {
+        member.marker.setLatLng([lat, lng]);
+    } else if (!member.moving) {
+        member.moving = true;
+        movingMembers.push(member);
+    }
+}
+
+function removeGroupMember(slot) {
+    const member = groupMembers[slot];
+    if (!member) {
+        return;
+    }
+    if (member.marker) {
+        groupLayer.removeLayer(member.marker);
+    }
+    member.moving = false;
+    groupMembers[slot] = null;
+    groupMemberCount--;
+    // Drop it from the moving list right away so the slot can be reused
+    movingMembers = movingMembers.filter(m => m !== member);
+}
+
+function clearGroupMembers() {
+    groupLayer.clearLayers();
+    groupMembers = [];
+    groupMemberCount = 0;
+    movingMembers = [];
+}
+
+// Called with setAnimationsPaused: while hidden, markers jump straight to their targets
+function setGroupAnimationsPaused(paused) {
+    groupAnimationsPaused = paused;
+    if (paused) {
+        movingMembers.forEach(member => {
+            member.moving = false;
+            member.marker.setLatLng([member.toLat, member.toLng]);
+        });
+        movingMembers = [];
+    }
+    updateGroupLoop();
+}
+
+function updateGroupLoop() {
+    const shouldRun = !groupAnimationsPaused && movingMembers.length > 0;
+    if (shouldRun && groupAnimationHandle === null) {
+        groupAnimationHandle = requestAnimationFrame(groupAnimationTick);
+    } else if (!shouldRun && groupAnimationHandle !== null) {
+        cancelAnimationFrame(groupAnimationHandle);
+        groupAnimationHandle = null;
+    }
+}
+
+function groupAnimationTick(time) {
+    const start = performance.now();
+    // Compact the moving list in place; finished members drop out
+    let kept = 0;
+    for (let i = 0; i < movingMembers.length; i++) {
+        const member = movingMembers[i];
+        const t = Math.min(1, (start - member.start) / member.duration);
+        // Ease out so arrivals look natural
+        const eased = 1 - (1 - t) * (1 - t);
+        member.marker.setLatLng([
+            member.fromLat + (member.toLat - member.fromLat) * eased,
+            member.fromLng + (member.toLng - member.fromLng) * eased
+        ]);
+        if (t < 1) {
+            movingMembers[kept++] = member;
+        } else {
+            member.moving = false;
+        }
+    }
+    movingMembers.length = kept;
+
+    groupAnimationHandle = kept > 0 ? requestAnimationFrame(groupAnimationTick) : null;
+    recordGroupFrame(performance.now() - start, time);
+}
+
+// Log frame cost and JS heap once a minute so growth is easy to spot
+function recordGroupFrame(workMs, time) {
+    groupFrameStats.frames++;
+    groupFrameStats.workMs += workMs;
+    groupFrameStats.maxWorkMs = Math.max(groupFrameStats.maxWorkMs, workMs);
+    if (time - groupFrameStats.since < GROUP_STATS_INTERVAL_MS) {
+        return;
+    }
+    const heap = performance.memory ? (performance.memory.usedJSHeapSize / 1048576).toFixed(1) + ' MB' : 'n/a';
+    console.log('Group markers: ' + groupMemberCount + ' members, ' +
+        (groupFrameStats.workMs / groupFrameStats.frames).toFixed(2) + ' ms avg / ' +
+        groupFrameStats.maxWorkMs.toFixed(2) + ' ms max per frame, heap ' + heap);
+    groupFrameStats = {frames: 0, workMs: 0, maxWorkMs: 0, since: time};
+}
@@ -0,0 +1,322 @@
+// Danger zone rendering shared by map.html and map_stress.html.
+//
+// Every zone shape is drawn through one shared canvas renderer and kept in one
+// layer group per category, so hiding a category is a single removeLayer call
+// and the canvas repaints once. Only zones near the viewport are attached to
+// the map, and at low zoom zones of the same category that fall into the same
+// screen cell are collapsed into one cluster marker.
+
+const SPREAD_FACTOR = 1.4; // Make circles spread 40% more
+const NUM_RINGS = 4;
+const CLUSTER_MAX_ZOOM = 8;
+const CLUSTER_CELL_PX = 80;
+
+// Pulse animation: one shared loop for every visible zone
+const MAX_PULSE = 0.3;
+const PULSE_PERIOD_MS = 1000;
+const FRAME_INTERVAL_MS = 33; // ~30 fps is plenty for a slow pulse
+const STATS_INTERVAL_MS = 60000;
+
+const zoneStyles = {
+    wildlife: {color: '#cc0000', fillColor: '#ff4444'},
+    crime: {color: '#660000', fillColor: '#8b0000'},
+    landslide: {color: '#8b4513', fillColor: '#d2691e'}
+};
+
+let zoneMap = null;
+let zoneRenderer = null;
+let zoneRecords = {};
+let zoneRecordList = [];
+let highlightedZoneIds = {};
+let zoneGroups = {};
+let clusterGroups = {};
+let activeTypes = {
+    wildlife: true,
+    crime: true,
+    landslide: true
+};
+
+let visiblePulsingZones = [];
+let animationHandle = null;
+let animationsPaused = false;
+let lastTickTime = 0;
+let frameStats = {frames: 0, workMs: 0, maxWorkMs: 0, since: 0};
+
+// Create the shared renderer and one group per category
+function initZoneLayers(map) {
+    zoneMap = map;
+    zoneRenderer = L.canvas({padding: 0.5});
+    Object.keys(zoneStyles).forEach(type => {
+        zoneGroups[type] = L.layerGroup();
+        clusterGroups[type] = L.layerGroup();
+        if (activeTypes[type]) {
+            zoneGroups[type].addTo(map);
+            clusterGroups[type].addTo(map);
+        }
+    });
+}
+
+function hasZone(id) {
+    return !!zoneRecords[id];
+}
+
+// Build the layers for one zone; they are attached by refreshZoneLayers()
+function addZone(area) {
+    const style = zoneStyles[area.type];
+    if (!style || zoneRecords[area.id]) {
+        return;
+    }
+
+    const latLng = L.latLng(area.lat, area.lng);
+    const baseRadius = area.radius * 1000; // Convert km to meters
+
+    // Concentric circles for the fade effect
+    const circles = [];
+    for (let i = 0; i < NUM_RINGS; i++) {
+        circles.push(L.circle(latLng, {
+            renderer: zoneRenderer,
+            interactive: false,
+            color: style.color,
+            fillColor: style.fillColor,
+            fillOpacity: 0.4 - (i * 0.1), // Decrease opacity for outer layers
+            weight: 2 - (i * 0.3),
+            radius: baseRadius * SPREAD_FACTOR * (1 + i * 0.3)
+        }));
+    }
+
+    // Centre dot (canvas, so no DOM node per zone)
+    const dot = L.circleMarker(latLng, {
+        renderer: zoneRenderer,
+        radius: 6,
+        color: style.color,
+        weight: 2,
+        fillColor: style.fillColor,
+        fillOpacity: 1
+    });
+    dot.bindPopup('<b>' + area.name + '</b><br>' + area.info + '<br>Radius: ' + area.radius + ' km');
+
+    const outerRadius = baseRadius * SPREAD_FACTOR * (1 + (NUM_RINGS - 1) * 0.3);
+    const record = {
+        id: area.id,
+        type: area.type,
+        latLng: latLng,
+        circles: circles,
+        dot: dot,
+        bounds: latLng.toBounds(2 * outerRadius),
+        shown: false
+    };
+    zoneRecords[area.id] = record;
+    zoneRecordList.push(record);
+    if (highlightedZoneIds[area.id]) {
+        setRecordHighlighted(record, true);
+    }
+}
+
+// Outline the zones the user is inside (ids may belong to zones not loaded yet)
+function setHighlightedZones(ids) {
+    const next = {};
+    ids.forEach(id => next[id] = true);
+    Object.keys(highlightedZoneIds).forEach(id => {
+        if (!next[id] && zoneRecords[id]) {
+            setRecordHighlighted(zoneRecords[id], false);
+        }
+    });
+    ids.forEach(id => {
+        if (!highlightedZoneIds[id] && zoneRecords[id]) {
+            setRecordHighlighted(zoneRecords[id], true);
+        }
+    });
+    highlightedZoneIds = next;
+}
+
+function setRecordHighlighted(record, highlighted) {
+    const style = zoneStyles[record.type];
+    record.circles[0].setStyle({
+        color: highlighted ? '#ffd600' : style.color,
+        weight: highlighted ? 4 : 2
+    });
+}
+
+// Drop zones entirely outside the bounds, so panning across a large dataset does not keep every
+// zone ever loaded (call after re-querying; dropped zones come back with a later query)
+function evictZonesOutside(bounds) {
+    const kept = [];
+    zoneRecordList.forEach(record => {
+        if (bounds.intersects(record.bounds)) {
+            kept.push(record);
+        } else {
+            setZoneShown(record, false);
+            delete zoneRecords[record.id];
+        }
+    });
+    zoneRecordList = kept;
+}
+
+// Remove every zone (used by the stress page between runs)
+function clearZones() {
+    Object.keys(zoneGroups).forEach(type => {
+        zoneGroups[type].clearLayers();
+        clusterGroups[type].clearLayers();
+    });
+    zoneRecords = {};
+    zoneRecordList = [];
+    visiblePulsingZones = [];
+    updateAnimationLoop();
+}
+
+function setZoneShown(record, shown) {
+    if (record.shown === shown) {
+        return;
+    }
+    const group = zoneGroups[record.type];
+    record.circles.forEach(circle => shown ? group.addLayer(circle) : group.removeLayer(circle));
+    shown ? group.addLayer(record.dot) : group.removeLayer(record.dot);
+    record.shown = shown;
+}
+
+// Attach zones near the viewport, clustering them at low zoom (call after pan/zoom)
+function refreshZoneLayers() {
+    if (!zoneMap) {
+        return;
+    }
+
+    const zoom = zoneMap.getZoom();
+    const nearView = zoneMap.getBounds().pad(0.5);
+    const clusterCells = {};
+    Object.keys(clusterGroups).forEach(type => clusterGroups[type].clearLayers());
+
+    zoneRecordList.forEach(record => {
+        if (!nearView.intersects(record.bounds)) {
+            setZoneShown(record, false);
+        } else if (zoom > CLUSTER_MAX_ZOOM) {
+            setZoneShown(record, true);
+        } else {
+            const point = zoneMap.project(record.latLng, zoom);
+            const key = record.type + ':' + Math.floor(point.x / CLUSTER_CELL_PX) + ':' + Math.floor(point.y / CLUSTER_CELL_PX);
+            (clusterCells[key] || (clusterCells[key] = [])).push(record);
+        }
+    });
+
+    Object.keys(clusterCells).forEach(key => {
+        const members = clusterCells[key];
+        if (members.length === 1) {
+            setZoneShown(members[0], true);
+            return;
+        }
+        members.forEach(record => setZoneShown(record, false));
+        clusterGroups[members[0].type].addLayer(createClusterMarker(members));
+    });
+
+    refreshVisiblePulsingZones();
+}
+
+function createClusterMarker(members) {
+    let lat = 0;
+    let lng = 0;
+    members.forEach(record => {
+        lat += record.latLng.lat;
+        lng += record.latLng.lng;
+    });
+
+    const style = zoneStyles[members[0].type];
+    const size = members.length < 10 ? 28 : (members.length < 100 ? 34 : 42);
+    const marker = L.marker([lat / members.length, lng / members.length], {
+        icon: L.divIcon({
+            className: 'zone-cluster',
+            html: '<div style="background: ' + style.fillColor + '; border: 2px solid ' + style.color + '; width: ' + size + 'px; height: ' + size + 'px; line-height: ' + (size - 4) + 'px; border-radius: 50%; color: white; font-weight: bold; text-align: center; opacity: 0.85;">' + members.length + '</div>',
+            iconSize: [size, size]
+        })
+    });
+    marker.on('click', () => {
+        zoneMap.setView(marker.getLatLng(), Math.min(zoneMap.getZoom() + 2, CLUSTER_MAX_ZOOM + 1));
+    });
+    return marker;
+}
+
+// Show or hide a whole category
+function setZoneTypeVisible(type, visible) {
+    activeTypes[type] = visible;
+    if (visible) {
+        zoneMap.addLayer(zoneGroups[type]);
+        zoneMap.addLayer(clusterGroups[type]);
+    } else {
+        zoneMap.removeLayer(zoneGroups[type]);
+        zoneMap.removeLayer(clusterGroups[type]);
+    }
+    refreshVisiblePulsingZones();
+}
+
+// Types the user switched off (saved with the map state)
+function getHiddenZoneTypes() {
+    return Object.keys(activeTypes).filter(type => !activeTypes[type]);
+}
+
+// Recompute which zones should animate
+function refreshVisiblePulsingZones() {
+    if (!zoneMap) {
+        return;
+    }
+    const viewBounds = zoneMap.getBounds();
+    visiblePulsingZones = zoneRecordList.filter(record =>
+        record.shown && activeTypes[record.type] && viewBounds.intersects(record.bounds));
+    updateAnimationLoop();
+}
+
+// Start or stop the shared loop depending on whether there is anything to animate
+function updateAnimationLoop() {
+    const shouldRun = !animationsPaused && visiblePulsingZones.length > 0;
+    if (shouldRun && animationHandle === null) {
+        animationHandle = requestAnimationFrame(animationTick);
+    } else if (!shouldRun && animationHandle !== null) {
+        cancelAnimationFrame(animationHandle);
+        animationHandle = null;
+    }
+}
+
+// Called from Android when the activity is paused or resumed
+function setAnimationsPaused(paused) {
+    animationsPaused = paused;
+    updateAnimationLoop();
+}
+
+function animationTick(time) {
+    animationHandle = requestAnimationFrame(animationTick);
+    if (time - lastTickTime < FRAME_INTERVAL_MS) {
+        return;
+    }
+    lastTickTime = time;
+
+    const start = performance.now();
+    // Triangle wave 0 -> MAX_PULSE -> 0 over one period
+    const phase = (time % PULSE_PERIOD_MS) / PULSE_PERIOD_MS;
+    const currentPulse = MAX_PULSE * (1 - Math.abs(2 * phase - 1));
+
+    // The canvas renderer merges these into a single repaint
+    for (let z = 0; z < visiblePulsingZones.length; z++) {
+        const circles = visiblePulsingZones[z].circles;
+        for (let index = 0; index < circles.length; index++) {
+            const baseOpacity = 0.4 - (index * 0.1);
+            const pulseOpacity = baseOpacity + (currentPulse * (1 - index * 0.2));
+            circles[index].setStyle({
+                fillOpacity: Math.max(0.1, Math.min(0.6, pulseOpacity))
+            });
+        }
+    }
+
+    recordFrame(performance.now() - start, time);
+}
+
+// Log animation cost and JS heap once a minute so growth is easy to spot
+function recordFrame(workMs, time) {
+    frameStats.frames++;
+    frameStats.workMs += workMs;
+    frameStats.maxWorkMs = Math.max(frameStats.maxWorkMs, workMs);
+    if (time - frameStats.since < STATS_INTERVAL_MS) {
+        return;
+    }
+    const heap = performance.memory ? (performance.memory.usedJSHeapSize / 1048576).toFixed(1) + ' MB' : 'n/a';
+    console.log('Pulse animation: ' + visiblePulsingZones.length + ' zones, ' +
+        (frameStats.workMs / frameStats.frames).toFixed(2) + ' ms avg / ' +
+        frameStats.maxWorkMs.toFixed(2) + ' ms max per frame, heap ' + heap);
+    frameStats = {frames: 0, workMs: 0, maxWorkMs: 0, since: time};
+}
@@ -2,30 +2,29 @@ package com.harsh.touristguardian;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
-
-import okhttp3.Call;
-import okhttp3.Callback;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
-import okhttp3.Response;
 
 public class AITravelPlannerActivity extends AppCompatActivity {
 
@@ -35,7 +34,9 @@ public class AITravelPlannerActivity extends AppCompatActivity {
     private MaterialButton shareButton;
     private ProgressBar progressBar;
     private CardView resultCardView;
-    private TextView resultTextView;
+    private TextView introTextView;
+    private RecyclerView planRecyclerView;
+    private final PlanSectionAdapter planAdapter = new PlanSectionAdapter();
     
     // Groq API Configuration
     private static final String GROQ_API_KEY = "";
@@ -43,6 +44,16 @@ public class AITravelPlannerActivity extends AppCompatActivity {
     // Updated to use current available models
     // Options: llama-3.3-70b-versatile, llama-3.1-8b-instant, mixtral-8x7b-32768, gemma2-9b-it
     private static final String GROQ_MODEL = "llama-3.3-70b-versatile";
+    private static final String TAG = "AITravelPlanner";
+
+    // Generation in progress (dropped when the screen closes)
+    private String activeKey;
+    private PlannerRequestScheduler.Listener activeListener;
+    private volatile boolean partialUpdatePending;
+    // Plan being shown; renderedLength is how much of the streamed text it has been fed
+    private PlanMarkdownRenderer renderer;
+    private int renderedLength;
+    private final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,7 +67,10 @@ public class AITravelPlannerActivity extends AppCompatActivity {
         shareButton = findViewById(R.id.shareButton);
         progressBar = findViewById(R.id.progressBar);
         resultCardView = findViewById(R.id.resultCardView);
-        resultTextView = findViewById(R.id.resultTextView);
+        introTextView = findViewById(R.id.introTextView);
+        planRecyclerView = findViewById(R.id.planRecyclerView);
+        planRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        planRecyclerView.setAdapter(planAdapter);
 
         // Set up back button in action bar
         if (getSupportActionBar() != null) {
@@ -71,6 +85,15 @@ public class AITravelPlannerActivity extends AppCompatActivity {
         shareButton.setOnClickListener(v -> shareTravelPlan());
     }
 
+    @Override
+    protected void onDestroy() {
+        if (activeListener != null) {
+            ((TouristGuardianApplication) getApplication()).getPlannerScheduler().cancel(activeKey, activeListener);
+        }
+        cacheExecutor.shutdown();
+        super.onDestroy();
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         finish();
@@ -116,60 +139,42 @@ public class AITravelPlannerActivity extends AppCompatActivity {
         generateButton.setEnabled(false);
         resultCardView.setVisibility(View.GONE);
         shareButton.setVisibility(View.GONE);
+        introTextView.setVisibility(View.VISIBLE);
+        renderer = new PlanMarkdownRenderer();
+        renderedLength = 0;
+        planAdapter.setRenderer(renderer);
 
         // Create prompt for AI
-        String prompt = createPrompt(destination, numDays);
-
-        // Call Groq API
-        callGroqAPI(prompt);
-    }
-
-    /**
-     * Create prompt for AI
-     */
-    private String createPrompt(String destination, int days) {
-        return "Create a detailed " + days + "-day travel itinerary for " + destination + ", India. " +
-                "Include:\n" +
-                "1. Day-by-day schedule with specific places to visit\n" +
-                "2. Best time to visit each place\n" +
-                "3. Estimated travel time between locations\n" +
-                "4. Safety tips specific to " + destination + "\n" +
-                "5. Local cuisine recommendations\n" +
-                "6. Budget estimates (budget, mid-range, luxury options)\n" +
-                "7. Important cultural notes and customs\n" +
-                "8. Emergency contacts for " + destination + "\n\n" +
-                "Format the response in a clear, organized manner with sections for each day. " +
-                "Make it practical and tourist-friendly. Use bullet points and clear headings.";
+        String prompt = PlannerPrompt.create(destination, numDays);
+
+        // Serve a cached plan for the same request if there is one, otherwise call Groq API
+        String cacheKey = ItineraryCache.key(destination, numDays, GROQ_MODEL, PlannerPrompt.VERSION);
+        ItineraryCache cache = ((TouristGuardianApplication) getApplication()).getItineraryCache();
+        long lookupStart = System.nanoTime();
+        cacheExecutor.execute(() -> {
+            String cached = cache.get(cacheKey);
+            Log.i(TAG, "Itinerary cache " + (cached != null ? "hit" : "miss") + " in "
+                    + (System.nanoTime() - lookupStart) / 1000 + " us (" + cache.getStatsSummary() + ")");
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                if (cached != null) {
+                    displayResult(cached);
+                } else {
+                    callGroqAPI(prompt, cacheKey);
+                }
+            });
+        });
     }
 
     /**
      * Call Groq API
      */
-    private void callGroqAPI(String prompt) {
+    private void callGroqAPI(String prompt, String cacheKey) {
         try {
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(60, TimeUnit.SECONDS)
-                    .build();
-
-            // Create JSON body for Groq API (OpenAI-compatible format)
-            JSONObject jsonBody = new JSONObject();
-            jsonBody.put("model", GROQ_MODEL);
-            
-            // Create messages array
-            JSONArray messagesArray = new JSONArray();
-            JSONObject messageObject = new JSONObject();
-            messageObject.put("role", "user");
-            messageObject.put("content", prompt);
-            messagesArray.put(messageObject);
-            
-            jsonBody.put("messages", messagesArray);
-            jsonBody.put("max_tokens", 2048);
-            jsonBody.put("temperature", 0.7);
-            jsonBody.put("stream", false);
-
             RequestBody body = RequestBody.create(
-                    jsonBody.toString(),
+                    PlannerPrompt.requestBody(GROQ_MODEL, prompt),
                     MediaType.parse("application/json; charset=utf-8")
             );
 
@@ -177,72 +182,66 @@ public class AITravelPlannerActivity extends AppCompatActivity {
                     .url(GROQ_API_URL)
                     .header("Authorization", "Bearer " + GROQ_API_KEY)
                     .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
                     .post(body)
                     .build();
 
-            client.newCall(request).enqueue(new Callback() {
+            // Identical requests share one call; retries, rate limits and hedging happen in the scheduler
+            long requestStart = System.nanoTime();
+            StreamStats stats = new StreamStats(requestStart);
+            StringBuilder plan = new StringBuilder();
+            activeKey = cacheKey;
+            activeListener = new PlannerRequestScheduler.Listener() {
                 @Override
-                public void onFailure(Call call, IOException e) {
-                    runOnUiThread(() -> {
-                        progressBar.setVisibility(View.GONE);
-                        generateButton.setEnabled(true);
-                        Toast.makeText(AITravelPlannerActivity.this, 
-                                "Network Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    });
+                public void onToken(String text) {
+                    stats.onToken(text.length());
+                    synchronized (plan) {
+                        plan.append(text);
+                    }
+                    schedulePartialUpdate(plan);
                 }
 
                 @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    String responseBody = response.body().string();
-                    
-                    if (response.isSuccessful()) {
+                public void onComplete(String content) {
+                    stats.log(true);
+                    // Only whole plans are worth reusing; compressing and writing is left to the
+                    // cache thread so the stream thread is free at once
+                    if (!content.isEmpty()) {
+                        ItineraryCache cache = ((TouristGuardianApplication) getApplication()).getItineraryCache();
                         try {
-                            JSONObject jsonResponse = new JSONObject(responseBody);
-                            
-                            // Parse Groq API response (OpenAI-compatible format)
-                            JSONArray choices = jsonResponse.getJSONArray("choices");
-                            if (choices.length() > 0) {
-                                JSONObject choice = choices.getJSONObject(0);
-                                JSONObject message = choice.getJSONObject("message");
-                                String content = message.getString("content");
-                                
-                                runOnUiThread(() -> {
-                                    displayResult(content);
-                                });
-                            } else {
-                                throw new Exception("No choices in response");
-                            }
-                        } catch (Exception e) {
-                            runOnUiThread(() -> {
-                                progressBar.setVisibility(View.GONE);
-                                generateButton.setEnabled(true);
-                                Toast.makeText(AITravelPlannerActivity.this, 
-                                        "Error parsing response: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                            });
+                            cacheExecutor.execute(() -> cache.put(cacheKey, content));
+                        } catch (RejectedExecutionException e) {
+                            Log.w(TAG, "Planner closed before the itinerary could be cached");
                         }
-                    } else {
-                        runOnUiThread(() -> {
+                    }
+                    runOnUiThread(() -> {
+                        if (content.isEmpty()) {
                             progressBar.setVisibility(View.GONE);
                             generateButton.setEnabled(true);
-                            String errorMsg = "API Error: " + response.code();
-                            try {
-                                JSONObject errorJson = new JSONObject(responseBody);
-                                if (errorJson.has("error")) {
-                                    JSONObject error = errorJson.getJSONObject("error");
-                                    errorMsg = error.optString("message", errorMsg);
-                                    if (error.has("type")) {
-                                        errorMsg = error.optString("type") + ": " + errorMsg;
-                                    }
-                                }
-                            } catch (Exception e) {
-                                // Show first 200 chars of response for debugging
-                                errorMsg += "\nResponse: " + responseBody.substring(0, Math.min(200, responseBody.length()));
-                            }
-                            Toast.makeText(AITravelPlannerActivity.this, errorMsg, Toast.LENGTH_LONG).show();
-                        });
-                    }
+                            Toast.makeText(AITravelPlannerActivity.this,
+                                    "Error parsing response: No choices in response", Toast.LENGTH_LONG).show();
+                        } else {
+                            displayResult(content);
+                        }
+                    });
                 }
-            });
+
+                @Override
+                public void onFailure(int code, String message) {
+                    stats.log(false);
+                    runOnUiThread(() -> {
+                        if (code > 0) {
+                            showApiError(code, message);
+                            return;
+                        }
+                        progressBar.setVisibility(View.GONE);
+                        generateButton.setEnabled(true);
+                        Toast.makeText(AITravelPlannerActivity.this, message, Toast.LENGTH_LONG).show();
+                    });
+                }
+            };
+            ((TouristGuardianApplication) getApplication()).getPlannerScheduler()
+                    .submit(cacheKey, request, activeListener);
 
         } catch (Exception e) {
             progressBar.setVisibility(View.GONE);
@@ -251,30 +250,107 @@ public class AITravelPlannerActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Show the text received so far, at most once per UI message-loop turn
+     */
+    private void schedulePartialUpdate(StringBuilder plan) {
+        if (partialUpdatePending) {
+            return;
+        }
+        partialUpdatePending = true;
+        runOnUiThread(() -> {
+            partialUpdatePending = false;
+            String chunk;
+            synchronized (plan) {
+                chunk = plan.substring(renderedLength);
+                renderedLength = plan.length();
+            }
+            renderer.append(chunk);
+            planAdapter.refresh();
+            progressBar.setVisibility(View.GONE);
+            introTextView.setVisibility(View.GONE);
+            resultCardView.setVisibility(View.VISIBLE);
+        });
+    }
+
+    private void showApiError(int code, String responseBody) {
+        progressBar.setVisibility(View.GONE);
+        generateButton.setEnabled(true);
+        Toast.makeText(this, GroqResponses.errorMessage(code, responseBody), Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Time to first token and total generation time of one streamed response
+     */
+    private static class StreamStats {
+        private final long requestStart;
+        private long firstTokenAt;
+        private int chunks;
+        private int chars;
+
+        StreamStats(long requestStart) {
+            this.requestStart = requestStart;
+        }
+
+        void onToken(int length) {
+            if (chunks == 0) {
+                firstTokenAt = System.nanoTime();
+            }
+            chunks++;
+            chars += length;
+        }
+
+        void log(boolean completed) {
+            long now = System.nanoTime();
+            Log.i(TAG, String.format(Locale.US, "Itinerary stream %s: first token %d ms, total %d ms, %d chunks, %d chars",
+                    completed ? "done" : "failed",
+                    chunks == 0 ? -1 : (firstTokenAt - requestStart) / 1_000_000,
+                    (now - requestStart) / 1_000_000, chunks, chars));
+        }
+    }
+
     /**
      * Display the generated travel plan
      */
     private void displayResult(String plan) {
         progressBar.setVisibility(View.GONE);
         generateButton.setEnabled(true);
+        introTextView.setVisibility(View.GONE);
         resultCardView.setVisibility(View.VISIBLE);
         shareButton.setVisibility(View.VISIBLE);
-        
-        // Format the text nicely - replace markdown formatting if needed
-        String formattedPlan = plan
-                .replace("**", "")  // Remove markdown bold
-                .replace("*", "•")  // Replace asterisks with bullets
-                .replace("\n\n", "\n")  // Clean up extra newlines
-                .trim();
-        
-        resultTextView.setText(formattedPlan);
+
+        // Streamed plans were rendered as they arrived; only the tail is left
+        long renderStart = System.nanoTime();
+        renderer.append(plan.substring(renderedLength));
+        renderedLength = plan.length();
+        renderer.finish();
+        planAdapter.refresh();
+        long renderNanos = System.nanoTime() - renderStart;
+        logLayoutTime(plan.length(), renderNanos, System.nanoTime());
+    }
+
+    /**
+     * Log render and first layout time of the plan list (visible days only)
+     */
+    private void logLayoutTime(int chars, long renderNanos, long layoutStart) {
+        int sections = renderer.getSectionCount();
+        planRecyclerView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                planRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                Log.i(TAG, String.format(Locale.US, "Plan shown: %d sections, %d chars, render %.2f ms, layout %.2f ms (%d rows laid out)",
+                        sections, chars, renderNanos / 1e6, (System.nanoTime() - layoutStart) / 1e6,
+                        planRecyclerView.getChildCount()));
+                return true;
+            }
+        });
     }
 
     /**
      * Share travel plan
      */
     private void shareTravelPlan() {
-        String plan = resultTextView.getText().toString();
+        String plan = renderer != null ? renderer.getPlainText() : "";
         if (plan.isEmpty()) {
             Toast.makeText(this, "No plan to share", Toast.LENGTH_SHORT).show();
             return;
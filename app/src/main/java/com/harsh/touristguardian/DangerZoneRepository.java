@@ -0,0 +1,300 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single source of truth for danger zones.
+ *
+ * Hand-curated zones are loaded from assets/danger_zones.json into a DangerZoneIndex. Large
+ * datasets ship as binary zone files (assets/zones/*.zdb, see ZoneFileWriter) that are
+ * memory-mapped and queried in place, so they cost almost no heap or startup time. A zone in the
+ * in-memory index hides a file zone with the same id. Updates from the Zones tree in Firebase
+ * (ZoneSyncManager) are applied to the in-memory index one zone at a time. Both the Java side
+ * ("which zones am I in or near?") and map.html (zones for the visible area) query this class.
+ */
+public class DangerZoneRepository {
+
+    private static final String TAG = "DangerZoneRepository";
+    private static final String ZONES_ASSET = "danger_zones.json";
+    private static final String ZONE_FILE_DIR = "zones";
+    private static final String ZONE_FILE_SUFFIX = ".zdb";
+
+    private static volatile DangerZoneRepository instance;
+
+    /**
+     * Notified on the main thread after a batch of zone updates was applied
+     */
+    public interface Listener {
+        void onZonesChanged();
+    }
+
+    private final DangerZoneIndex index = new DangerZoneIndex();
+    private final List<ZoneFile> zoneFiles = new ArrayList<>();
+    // Ids removed remotely; they also hide bundled zones with the same id
+    private final Set<String> hiddenIds = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public static DangerZoneRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DangerZoneRepository.class) {
+                if (instance == null) {
+                    instance = new DangerZoneRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DangerZoneRepository(Context context) {
+        loadFromAssets(context);
+        mapZoneFiles(context);
+    }
+
+    /**
+     * Load the bundled zone list
+     */
+    private void loadFromAssets(Context context) {
+        long start = System.nanoTime();
+        try (InputStream input = context.getAssets().open(ZONES_ASSET)) {
+            JSONArray zones = new JSONObject(readFully(input)).getJSONArray("zones");
+            for (int i = 0; i < zones.length(); i++) {
+                index.put(fromJson(zones.getJSONObject(i)));
+            }
+            Log.d(TAG, "Loaded " + index.size() + " zones in "
+                    + (System.nanoTime() - start) / 1000 + " us");
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Failed to load " + ZONES_ASSET, e);
+        }
+    }
+
+    /**
+     * Map the bundled binary zone files
+     */
+    private void mapZoneFiles(Context context) {
+        AssetManager assets = context.getAssets();
+        String[] names;
+        try {
+            names = assets.list(ZONE_FILE_DIR);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to list " + ZONE_FILE_DIR, e);
+            return;
+        }
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            if (!name.endsWith(ZONE_FILE_SUFFIX)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                ZoneFile file = mapAsset(context, ZONE_FILE_DIR + "/" + name);
+                zoneFiles.add(file);
+                Log.d(TAG, "Mapped " + file.size() + " zones from " + name + " in "
+                        + (System.nanoTime() - start) / 1000 + " us");
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to map " + name, e);
+            }
+        }
+    }
+
+    /**
+     * Map an asset straight out of the APK (zone files are stored uncompressed), falling back
+     * to a one-time copy into internal storage
+     */
+    private static ZoneFile mapAsset(Context context, String path) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(path);
+             FileInputStream input = descriptor.createInputStream()) {
+            FileChannel channel = input.getChannel();
+            return new ZoneFile(channel.map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength()));
+        } catch (IOException e) {
+            // openFd fails for compressed assets
+            File copy = new File(context.getFilesDir(), path);
+            if (!copy.isFile()) {
+                copyAsset(context, path, copy);
+            }
+            return ZoneFile.map(copy);
+        }
+    }
+
+    private static void copyAsset(Context context, String path, File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File temp = new File(parent, target.getName() + ".tmp");
+        try (InputStream input = context.getAssets().open(path);
+             OutputStream output = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot write " + target);
+        }
+    }
+
+    /**
+     * Add or replace a zone received from the server
+     */
+    public synchronized void applyRemoteZone(DangerZone zone) {
+        hiddenIds.remove(zone.getId());
+        index.put(zone);
+    }
+
+    /**
+     * Remove a zone (bundled or synced) by id
+     */
+    public synchronized void hideZone(String id) {
+        index.remove(id);
+        hiddenIds.add(id);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Tell the map and the geofence engine to re-query (main thread)
+     */
+    public void notifyZonesChanged() {
+        for (Listener listener : listeners) {
+            listener.onZonesChanged();
+        }
+    }
+
+    public synchronized int getZoneCount() {
+        int count = index.size();
+        for (ZoneFile file : zoneFiles) {
+            count += file.size();
+        }
+        return count;
+    }
+
+    /**
+     * Zones the point is currently inside
+     */
+    public synchronized List<DangerZone> getZonesContaining(double lat, double lng) {
+        List<DangerZone> result = index.findContaining(lat, lng);
+        for (ZoneFile file : zoneFiles) {
+            addVisible(result, file.findContaining(lat, lng), Integer.MAX_VALUE);
+        }
+        return result;
+    }
+
+    /**
+     * The closest zones to the point, nearest boundary first
+     */
+    public synchronized List<DangerZone> getNearestZones(double lat, double lng, int count) {
+        List<DangerZone> result = index.findNearest(lat, lng, count);
+        for (ZoneFile file : zoneFiles) {
+            // Ask for extra candidates in case some of them were removed remotely
+            addVisible(result, file.findNearest(lat, lng, count + hiddenIds.size()), Integer.MAX_VALUE);
+        }
+        result.sort(Comparator.comparingDouble(zone -> zone.distanceToBoundaryKm(lat, lng)));
+        return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+    }
+
+    /**
+     * Zones overlapping the given map bounds
+     */
+    public synchronized List<DangerZone> getZonesInBounds(double south, double west, double north, double east, int limit) {
+        List<DangerZone> result = index.findInBounds(south, west, north, east, limit);
+        for (ZoneFile file : zoneFiles) {
+            if (result.size() >= limit) {
+                break;
+            }
+            addVisible(result, file.findInBounds(south, west, north, east, limit - result.size()), limit);
+        }
+        return result;
+    }
+
+    /**
+     * Add file zones that are neither overridden by the in-memory index nor hidden
+     */
+    private void addVisible(List<DangerZone> result, List<DangerZone> fileZones, int limit) {
+        for (DangerZone zone : fileZones) {
+            if (result.size() >= limit) {
+                return;
+            }
+            if (index.get(zone.getId()) == null && !hiddenIds.contains(zone.getId())) {
+                result.add(zone);
+            }
+        }
+    }
+
+    /**
+     * Serialize zones in the shape map.html expects (radius in km)
+     */
+    public static String toJson(List<DangerZone> zones) {
+        JSONArray array = new JSONArray();
+        try {
+            for (DangerZone zone : zones) {
+                JSONObject object = new JSONObject();
+                object.put("id", zone.getId());
+                object.put("type", zone.getType());
+                object.put("name", zone.getName());
+                object.put("lat", zone.getLat());
+                object.put("lng", zone.getLng());
+                object.put("radius", zone.getRadiusKm());
+                object.put("info", zone.getInfo());
+                array.put(object);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to serialize zones", e);
+        }
+        return array.toString();
+    }
+
+    private static DangerZone fromJson(JSONObject object) throws JSONException {
+        return new DangerZone(
+                object.getString("id"),
+                object.getString("type"),
+                object.getString("name"),
+                object.getDouble("lat"),
+                object.getDouble("lng"),
+                object.getDouble("radius"),
+                object.optString("info", ""));
+    }
+
+    private static String readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
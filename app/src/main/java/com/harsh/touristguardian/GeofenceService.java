@@ -0,0 +1,310 @@
+package com.harsh.touristguardian;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.location.Location;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+import java.util.Locale;
+
+/**
+ * Foreground service that keeps streaming location fixes into a GeofenceEngine and notifies the
+ * user when they enter, stay in or leave a danger zone. The same fixes drive a ProximityEngine,
+ * which warns ahead of time when the user is heading towards a zone.
+ *
+ * The request interval and priority follow the engine's recommendation, so GPS is only used at a
+ * high rate close to a zone boundary.
+ */
+public class GeofenceService extends Service {
+
+    private static final String TAG = "GeofenceService";
+    private static final String CHANNEL_STATUS = "geofence_status";
+    private static final String CHANNEL_ALERTS = "geofence_alerts";
+    private static final int STATUS_NOTIFICATION_ID = 2001;
+    // Alerts are tagged with the zone id, so a zone's newer alert replaces its older one
+    private static final int ZONE_ALERT_NOTIFICATION_ID = 2002;
+    private static final long DWELL_MILLIS = 5 * 60 * 1000;
+    private static final long INITIAL_INTERVAL_MILLIS = 10_000;
+    private static final int STATS_LOG_EVERY_FIXES = 20;
+
+    private FusedLocationProviderClient fusedLocationClient;
+    private GeofenceEngine engine;
+    private ProximityEngine proximity;
+    private boolean updatesRequested;
+    private long currentIntervalMillis;
+    private int currentPriority;
+
+    // Battery baseline for drain-per-hour reporting
+    private long startedAtElapsed;
+    private int startChargeMicroAh;
+    private int startBatteryPercent;
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult locationResult) {
+            TrailRecorder trail = TrailRecorder.getInstance(GeofenceService.this);
+            for (Location location : locationResult.getLocations()) {
+                trail.record(location);
+                engine.onFix(location.getLatitude(), location.getLongitude(),
+                        location.getAccuracy(), location.getSpeed(), location.getTime());
+                proximity.onFix(location.getLatitude(), location.getLongitude(), location.getAccuracy(),
+                        location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                        location.hasBearing() ? location.getBearing() : Float.NaN, location.getTime());
+            }
+            // Keeps the shared fix cache warm, so SOS rarely has to wait for GPS
+            Location last = locationResult.getLastLocation();
+            if (last != null) {
+                LocationEngine.getInstance(GeofenceService.this).onExternalFix(last);
+            }
+            adaptSampling();
+            if (engine.getFixCount() % STATS_LOG_EVERY_FIXES == 0) {
+                logStats();
+            }
+        }
+    };
+
+    private final DangerZoneRepository.Listener zonesListener = () -> {
+        engine.invalidate();
+        proximity.invalidate();
+    };
+
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, GeofenceService.class));
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, GeofenceService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        DangerZoneRepository repository = DangerZoneRepository.getInstance(this);
+        engine = new GeofenceEngine(repository::getNearestZones, this::onGeofenceEvent, DWELL_MILLIS);
+        proximity = new ProximityEngine(repository::getNearestZones, this::onProximity);
+        // Synced zone updates must be seen on the next fix, not after the next requery
+        repository.addListener(zonesListener);
+        createNotificationChannels();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION : 0;
+        ServiceCompat.startForeground(this, STATUS_NOTIFICATION_ID, buildStatusNotification(), type);
+
+        if (!updatesRequested) {
+            recordBatteryBaseline();
+            if (!requestUpdates(INITIAL_INTERVAL_MILLIS, Priority.PRIORITY_HIGH_ACCURACY)) {
+                stopSelf();
+                return START_NOT_STICKY;
+            }
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        DangerZoneRepository.getInstance(this).removeListener(zonesListener);
+        fusedLocationClient.removeLocationUpdates(locationCallback);
+        updatesRequested = false;
+        TrailRecorder.getInstance(this).flush();
+        logStats();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    /**
+     * (Re)subscribe to fused location with the given interval and priority
+     */
+    private boolean requestUpdates(long intervalMillis, int priority) {
+        LocationRequest request = new LocationRequest.Builder(priority, intervalMillis)
+                .setMinUpdateIntervalMillis(GeofenceEngine.MIN_INTERVAL_MILLIS)
+                .build();
+        try {
+            fusedLocationClient.requestLocationUpdates(request, locationCallback, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location permission missing, stopping geofencing", e);
+            return false;
+        }
+        updatesRequested = true;
+        currentIntervalMillis = intervalMillis;
+        currentPriority = priority;
+        return true;
+    }
+
+    /**
+     * Follow the engine's recommendation when it differs enough from the active request
+     */
+    private void adaptSampling() {
+        long interval = engine.getRecommendedIntervalMillis();
+        int priority = toPriority(engine.getRecommendedAccuracy());
+        boolean intervalChanged = Math.abs(interval - currentIntervalMillis) > currentIntervalMillis / 4;
+        if (intervalChanged || priority != currentPriority) {
+            Log.d(TAG, "Sampling every " + interval / 1000 + " s, priority " + priority
+                    + ", nearest boundary " + String.format(Locale.US, "%.2f", engine.getNearestBoundaryKm()) + " km");
+            requestUpdates(interval, priority);
+        }
+    }
+
+    private static int toPriority(int accuracy) {
+        switch (accuracy) {
+            case GeofenceEngine.ACCURACY_HIGH:
+                return Priority.PRIORITY_HIGH_ACCURACY;
+            case GeofenceEngine.ACCURACY_BALANCED:
+                return Priority.PRIORITY_BALANCED_POWER_ACCURACY;
+            default:
+                return Priority.PRIORITY_LOW_POWER;
+        }
+    }
+
+    /**
+     * Notify the user about a zone transition
+     */
+    private void onGeofenceEvent(int event, DangerZone zone, long timeMillis) {
+        String title;
+        if (event == GeofenceEngine.EVENT_ENTER) {
+            title = "⚠️ Entered danger zone";
+        } else if (event == GeofenceEngine.EVENT_DWELL) {
+            title = "⚠️ Still inside danger zone";
+        } else {
+            title = "You left a danger zone";
+        }
+        Log.i(TAG, title + ": " + zone.getName());
+
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ALERTS)
+                .setSmallIcon(R.mipmap.logo)
+                .setContentTitle(title)
+                .setContentText(zone.getName() + " - " + zone.getInfo())
+                .setPriority(event == GeofenceEngine.EVENT_EXIT
+                        ? NotificationCompat.PRIORITY_DEFAULT : NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(openAppIntent())
+                .setAutoCancel(true)
+                .build();
+        try {
+            NotificationManagerCompat.from(this).notify(zone.getId(), ZONE_ALERT_NOTIFICATION_ID, notification);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Notification permission missing", e);
+        }
+    }
+
+    /**
+     * Warn the user that their current heading leads into a zone
+     */
+    private void onProximity(int tier, DangerZone zone, double secondsToBoundary, double distanceMeters) {
+        if (tier == ProximityEngine.TIER_INSIDE) {
+            // onGeofenceEvent already reports the enter
+            return;
+        }
+        String title;
+        if (Double.isInfinite(secondsToBoundary)) {
+            title = String.format(Locale.US, "Danger zone %.0f m away", distanceMeters);
+        } else if (secondsToBoundary < 60) {
+            title = "⚠️ Entering danger zone in under a minute";
+        } else {
+            title = String.format(Locale.US, "Approaching danger zone in ~%d min", Math.round(secondsToBoundary / 60));
+        }
+        Log.i(TAG, title + ": " + zone.getName() + " (tier " + tier + ")");
+
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ALERTS)
+                .setSmallIcon(R.mipmap.logo)
+                .setContentTitle(title)
+                .setContentText(zone.getName() + " - " + zone.getInfo())
+                .setPriority(tier >= ProximityEngine.TIER_CRITICAL
+                        ? NotificationCompat.PRIORITY_HIGH : NotificationCompat.PRIORITY_DEFAULT)
+                .setContentIntent(openAppIntent())
+                .setAutoCancel(true)
+                .build();
+        try {
+            NotificationManagerCompat.from(this).notify(zone.getId(), ZONE_ALERT_NOTIFICATION_ID, notification);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Notification permission missing", e);
+        }
+    }
+
+    private Notification buildStatusNotification() {
+        return new NotificationCompat.Builder(this, CHANNEL_STATUS)
+                .setSmallIcon(R.mipmap.logo)
+                .setContentTitle("Tourist Guardian")
+                .setContentText("Watching for danger zones nearby")
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setOngoing(true)
+                .setContentIntent(openAppIntent())
+                .build();
+    }
+
+    private PendingIntent openAppIntent() {
+        Intent intent = new Intent(this, MainActivity.class);
+        // Back to the existing map screen rather than a second MainActivity on top of the planner
+        intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        return PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private void createNotificationChannels() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        manager.createNotificationChannel(new NotificationChannel(
+                CHANNEL_STATUS, "Danger zone monitoring", NotificationManager.IMPORTANCE_LOW));
+        manager.createNotificationChannel(new NotificationChannel(
+                CHANNEL_ALERTS, "Danger zone alerts", NotificationManager.IMPORTANCE_HIGH));
+    }
+
+    private void recordBatteryBaseline() {
+        BatteryManager batteryManager = (BatteryManager) getSystemService(BATTERY_SERVICE);
+        startedAtElapsed = SystemClock.elapsedRealtime();
+        startChargeMicroAh = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+        startBatteryPercent = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+    }
+
+    /**
+     * Log per-fix evaluation cost and battery drain per hour since the service started
+     */
+    private void logStats() {
+        BatteryManager batteryManager = (BatteryManager) getSystemService(BATTERY_SERVICE);
+        double hours = (SystemClock.elapsedRealtime() - startedAtElapsed) / 3_600_000.0;
+        int chargeMicroAh = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+        int batteryPercent = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+
+        String drain = "n/a";
+        if (hours > 0 && startChargeMicroAh > 0 && chargeMicroAh > 0) {
+            drain = String.format(Locale.US, "%.1f mAh/h (%.2f %%/h)",
+                    (startChargeMicroAh - chargeMicroAh) / 1000.0 / hours,
+                    (startBatteryPercent - batteryPercent) / hours);
+        }
+        Log.i(TAG, String.format(Locale.US, "fixes=%d requeries=%d eval avg=%.1f us max=%.1f us"
+                        + " proximity avg=%.1f us max=%.1f us interval=%d s drain=%s",
+                engine.getFixCount(), engine.getRequeryCount(), engine.getAverageEvalMicros(),
+                engine.getMaxEvalMicros(), proximity.getAverageEvalMicros(), proximity.getMaxEvalMicros(),
+                currentIntervalMillis / 1000, drain));
+    }
+}
@@ -0,0 +1,372 @@
+package com.harsh.touristguardian;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Shows the live positions of a group trip's members on the map.
+ *
+ * A group is created with createGroup(), which makes the user its leader and gives it an invite
+ * code; others join with that code (joinGroup()). Members who share with the group
+ * (LiveShareSession) write their position to Groups/$groupId/positions/$uid, so the whole group
+ * is one ChildEventListener instead of a listener per member. Each member gets a small slot number; updates go to MapBridge by slot, are
+ * merged per frame, and map.html (group_layers.js) glides each marker to its new position.
+ *
+ * startSyntheticLoad() feeds fake members through the same path, to check frame time and memory
+ * with a few hundred members without a real group. Main thread only.
+ */
+public class GroupTracker {
+
+    public static final int MAX_SYNTHETIC_MEMBERS = 1000;
+
+    private static final String TAG = "GroupTracker";
+    private static final long STATS_INTERVAL_MILLIS = 60_000;
+    private static final long SYNTHETIC_TICK_MILLIS = 250;
+    private static final long SYNTHETIC_UPDATE_MILLIS = 3_000;
+    // Entries left behind by members whose app stopped without leaving
+    private static final long STALE_MILLIS = 30 * 60_000;
+    private static final String INVITE_ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final int INVITE_LENGTH = 8;
+
+    private static volatile GroupTracker instance;
+
+    /**
+     * Result of createGroup() and joinGroup(), on the main thread
+     */
+    public interface MembershipCallback {
+        void onMember(String groupId, String inviteCode);
+
+        void onError(String message);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Integer> slots = new HashMap<>();
+    // Slots of members who left, reused before new ones are handed out
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    private int nextSlot;
+
+    private MapBridge bridge;
+    private String ownUid;
+    private String groupId;
+    private String inviteCode;
+    private DatabaseReference positionsRef;
+    private Runnable syntheticTick;
+
+    // Stats
+    private long updates;
+    private long statsSinceElapsed;
+    private long updatesAtStatsStart;
+
+    private final ChildEventListener positionsListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            onMemberSnapshot(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            onMemberSnapshot(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            onMemberLeft(snapshot.getKey());
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.w(TAG, "Group positions unavailable: " + error.getMessage());
+        }
+    };
+
+    public static GroupTracker getInstance() {
+        if (instance == null) {
+            synchronized (GroupTracker.class) {
+                if (instance == null) {
+                    instance = new GroupTracker();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private GroupTracker() {
+    }
+
+    public boolean isTracking() {
+        return positionsRef != null || syntheticTick != null;
+    }
+
+    /**
+     * Invite code of the group being followed, null for a synthetic one
+     */
+    public String getInviteCode() {
+        return inviteCode;
+    }
+
+    /**
+     * Create a group trip led by the user, with a new invite code
+     */
+    public void createGroup(String uid, MembershipCallback callback) {
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (database == null) {
+            Log.w(TAG, "Group tracking is unavailable");
+            callback.onError("Group trips are not available right now");
+            return;
+        }
+        DatabaseReference root = database.getReference();
+        String groupId = root.child("Groups").push().getKey();
+        String code = newInviteCode();
+        // One update, so the rules see the leader while checking the rest
+        Map<String, Object> group = new HashMap<>();
+        group.put("Groups/" + groupId + "/leader", uid);
+        group.put("Groups/" + groupId + "/inviteCode", code);
+        group.put("Groups/" + groupId + "/members/" + uid, true);
+        group.put("Invites/" + code, groupId);
+        root.updateChildren(group, (error, unused) -> {
+            if (error != null) {
+                Log.w(TAG, "Could not create group: " + error.getMessage());
+                callback.onError("Could not create the group trip");
+                return;
+            }
+            callback.onMember(groupId, code);
+        });
+    }
+
+    /**
+     * Join the group trip with the given invite code
+     */
+    public void joinGroup(String uid, String inviteCode, MembershipCallback callback) {
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (database == null) {
+            Log.w(TAG, "Group tracking is unavailable");
+            callback.onError("Group trips are not available right now");
+            return;
+        }
+        DatabaseReference root = database.getReference();
+        String code = inviteCode.toUpperCase(Locale.US);
+        root.child("Invites").child(code).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                String groupId = snapshot.getValue(String.class);
+                if (groupId == null) {
+                    callback.onError("No group trip has that code");
+                    return;
+                }
+                // The rules let users add themselves when joins/$uid holds the group's code
+                Map<String, Object> join = new HashMap<>();
+                join.put("Groups/" + groupId + "/joins/" + uid, code);
+                join.put("Groups/" + groupId + "/members/" + uid, true);
+                root.updateChildren(join, (error, unused) -> {
+                    if (error != null) {
+                        Log.w(TAG, "Could not join group: " + error.getMessage());
+                        callback.onError("Could not join the group trip");
+                        return;
+                    }
+                    callback.onMember(groupId, code);
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Invite lookup failed: " + error.getMessage());
+                callback.onError("Could not check the code");
+            }
+        });
+    }
+
+    /**
+     * Stop following the group and remove the user from its members
+     */
+    public void leaveGroup() {
+        String groupId = this.groupId;
+        String uid = ownUid;
+        stop();
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (groupId != null && uid != null && database != null) {
+            database.getReference("Groups").child(groupId).child("members").child(uid).removeValue();
+        }
+    }
+
+    private static String newInviteCode() {
+        SecureRandom random = new SecureRandom();
+        StringBuilder code = new StringBuilder(INVITE_LENGTH);
+        for (int i = 0; i < INVITE_LENGTH; i++) {
+            code.append(INVITE_ALPHABET.charAt(random.nextInt(INVITE_ALPHABET.length())));
+        }
+        return code.toString();
+    }
+
+    /**
+     * Follow the members of a group on the map (the user's own entry is skipped).
+     * Returns false when the database is not available.
+     */
+    public boolean start(MapBridge bridge, String ownUid, String groupId, String inviteCode) {
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (database == null) {
+            Log.w(TAG, "Group tracking is unavailable");
+            return false;
+        }
+        stop();
+        this.bridge = bridge;
+        this.ownUid = ownUid;
+        this.groupId = groupId;
+        this.inviteCode = inviteCode;
+        resetStats();
+        positionsRef = database.getReference("Groups").child(groupId).child("positions");
+        positionsRef.addChildEventListener(positionsListener);
+        Log.i(TAG, "Tracking group " + groupId);
+        return true;
+    }
+
+    /**
+     * Show members that walk around the given point, each reporting every few seconds
+     * (count clamped to 1..MAX_SYNTHETIC_MEMBERS)
+     */
+    public void startSyntheticLoad(MapBridge bridge, int members, double lat, double lng) {
+        members = Math.max(1, Math.min(members, MAX_SYNTHETIC_MEMBERS));
+        stop();
+        this.bridge = bridge;
+        this.ownUid = null;
+        resetStats();
+
+        Random random = new Random(members);
+        double[] memberLat = new double[members];
+        double[] memberLng = new double[members];
+        long[] nextUpdate = new long[members];
+        long now = SystemClock.elapsedRealtime();
+        for (int i = 0; i < members; i++) {
+            // Spread over ~2 km, reports staggered over the update interval
+            memberLat[i] = lat + (random.nextDouble() - 0.5) * 0.02;
+            memberLng[i] = lng + (random.nextDouble() - 0.5) * 0.02;
+            nextUpdate[i] = now + random.nextInt((int) SYNTHETIC_UPDATE_MILLIS);
+            onMemberUpdate("synthetic-" + i, "Member " + (i + 1), memberLat[i], memberLng[i]);
+        }
+        syntheticTick = new Runnable() {
+            @Override
+            public void run() {
+                long time = SystemClock.elapsedRealtime();
+                for (int i = 0; i < members; i++) {
+                    if (time >= nextUpdate[i]) {
+                        // ~1.5 m/s random walk
+                        memberLat[i] += (random.nextDouble() - 0.5) * 0.00008;
+                        memberLng[i] += (random.nextDouble() - 0.5) * 0.00008;
+                        nextUpdate[i] = time + SYNTHETIC_UPDATE_MILLIS;
+                        onMemberUpdate("synthetic-" + i, null, memberLat[i], memberLng[i]);
+                    }
+                }
+                mainHandler.postDelayed(this, SYNTHETIC_TICK_MILLIS);
+            }
+        };
+        mainHandler.postDelayed(syntheticTick, SYNTHETIC_TICK_MILLIS);
+        Log.i(TAG, "Synthetic group load with " + members + " members");
+    }
+
+    /**
+     * Stop following the group and remove its markers
+     */
+    public void stop() {
+        if (positionsRef != null) {
+            positionsRef.removeEventListener(positionsListener);
+            positionsRef = null;
+        }
+        if (syntheticTick != null) {
+            mainHandler.removeCallbacks(syntheticTick);
+            syntheticTick = null;
+        }
+        if (bridge != null) {
+            logStats();
+            bridge.clearMembers();
+            bridge = null;
+        }
+        groupId = null;
+        inviteCode = null;
+        slots.clear();
+        freeSlotCount = 0;
+        nextSlot = 0;
+    }
+
+    private void onMemberSnapshot(DataSnapshot snapshot) {
+        String uid = snapshot.getKey();
+        Double lat = snapshot.child("lat").getValue(Double.class);
+        Double lng = snapshot.child("lng").getValue(Double.class);
+        Long updatedAt = snapshot.child("updatedAt").getValue(Long.class);
+        if (uid == null || uid.equals(ownUid) || lat == null || lng == null) {
+            return;
+        }
+        if (updatedAt != null && System.currentTimeMillis() - updatedAt > STALE_MILLIS) {
+            onMemberLeft(uid);
+            return;
+        }
+        onMemberUpdate(uid, snapshot.child("name").getValue(String.class), lat, lng);
+    }
+
+    private void onMemberUpdate(String id, String name, double lat, double lng) {
+        if (bridge == null) {
+            return;
+        }
+        Integer slot = slots.get(id);
+        if (slot == null) {
+            slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : nextSlot++;
+            slots.put(id, slot);
+            bridge.setMemberName(slot, name != null ? name : "Group member");
+        }
+        bridge.setMemberPosition(slot, lat, lng);
+        updates++;
+        if (SystemClock.elapsedRealtime() - statsSinceElapsed >= STATS_INTERVAL_MILLIS) {
+            logStats();
+            resetStats();
+        }
+    }
+
+    private void onMemberLeft(String id) {
+        Integer slot = slots.remove(id);
+        if (slot == null || bridge == null) {
+            return;
+        }
+        bridge.removeMember(slot);
+        if (freeSlotCount == freeSlots.length) {
+            int[] grown = new int[freeSlots.length * 2];
+            System.arraycopy(freeSlots, 0, grown, 0, freeSlotCount);
+            freeSlots = grown;
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void resetStats() {
+        statsSinceElapsed = SystemClock.elapsedRealtime();
+        updatesAtStatsStart = updates;
+    }
+
+    private void logStats() {
+        double seconds = Math.max(1, SystemClock.elapsedRealtime() - statsSinceElapsed) / 1000.0;
+        Runtime runtime = Runtime.getRuntime();
+        Log.i(TAG, String.format(Locale.US, "%d members, %.1f updates/s, Java heap %.1f MB; bridge: %s",
+                slots.size(), (updates - updatesAtStatsStart) / seconds,
+                (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0,
+                bridge != null ? bridge.getStatsSummary() : "-"));
+    }
+}
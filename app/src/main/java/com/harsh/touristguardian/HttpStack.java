@@ -0,0 +1,148 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * The one HTTP client of the app, owned by TouristGuardianApplication.
+ *
+ * Every feature shares the same connection pool, dispatcher threads and on-disk response cache,
+ * so repeated calls to a host reuse a warm (HTTP/2 multiplexed) connection instead of paying DNS,
+ * TCP and TLS again. Features that need different timeouts get a derived client from
+ * withTimeouts(), which still shares all of the above.
+ */
+public class HttpStack {
+
+    private static final String TAG = "HttpStack";
+    private static final String CACHE_DIR = "http";
+    private static final long CACHE_BYTES = 20L * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int STATS_LOG_EVERY_CALLS = 50;
+
+    private final OkHttpClient client;
+
+    // Stats, updated from OkHttp threads
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong dnsLookups = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong http2Connections = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong conditionalCacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * Shortcut for TouristGuardianApplication.getHttpStack()
+     */
+    public static HttpStack get(Context context) {
+        return ((TouristGuardianApplication) context.getApplicationContext()).getHttpStack();
+    }
+
+    public HttpStack(Context context) {
+        Cache cache = new Cache(new File(context.getCacheDir(), CACHE_DIR), CACHE_BYTES);
+        client = new OkHttpClient.Builder()
+                .cache(cache)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .writeTimeout(20, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .eventListener(new StatsListener())
+                .build();
+    }
+
+    /**
+     * A client with other timeouts that shares this stack's pool, threads and cache
+     */
+    public OkHttpClient withTimeouts(long connectMillis, long readMillis) {
+        return client.newBuilder()
+                .connectTimeout(connectMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Calls, connection reuse, HTTP/2 share and cache hit rate since start
+     */
+    public String getStatsSummary() {
+        long acquired = connectionsAcquired.get();
+        long opened = connectionsOpened.get();
+        long hits = cacheHits.get();
+        long conditional = conditionalCacheHits.get();
+        long cacheable = hits + conditional + cacheMisses.get();
+        return String.format(Locale.US, "calls=%d failed=%d dns=%d connections=%d (h2=%d) reuse=%.1f%%"
+                        + " cacheHit=%d conditional=%d hitRate=%.1f%% pool=%d idle=%d",
+                calls.get(), failedCalls.get(), dnsLookups.get(), opened, http2Connections.get(),
+                acquired == 0 ? 0 : (acquired - opened) * 100.0 / acquired,
+                hits, conditional, cacheable == 0 ? 0 : (hits + conditional) * 100.0 / cacheable,
+                client.connectionPool().connectionCount(), client.connectionPool().idleConnectionCount());
+    }
+
+    private class StatsListener extends EventListener {
+        @Override
+        public void callStart(Call call) {
+            if (calls.incrementAndGet() % STATS_LOG_EVERY_CALLS == 0) {
+                Log.i(TAG, getStatsSummary());
+            }
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            failedCalls.incrementAndGet();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsLookups.incrementAndGet();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connectionsOpened.incrementAndGet();
+            if (protocol == Protocol.HTTP_2) {
+                http2Connections.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.incrementAndGet();
+        }
+
+        @Override
+        public void cacheHit(Call call, Response response) {
+            cacheHits.incrementAndGet();
+        }
+
+        @Override
+        public void cacheConditionalHit(Call call, Response cachedResponse) {
+            conditionalCacheHits.incrementAndGet();
+        }
+
+        @Override
+        public void cacheMiss(Call call) {
+            cacheMisses.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Publishes the user's position while live sharing is on, to Users/$uid/live for the watchers
+ * named when sharing starts, and/or to Groups/$groupId/positions/$uid for a group trip, where
+ * GroupTracker follows the whole group with one listener. The two are started and stopped on
+ * their own: joining a group keeps the current watchers, and each is a separate write, so one
+ * being rejected does not hold back the other.
+ *
+ * The watchers are listed under live/watchers, which is what lets them read the node (see
+ * database.rules.json). Every fix from LocationEngine goes through a LiveSharePolicy, so only
+ * movement worth showing is written, and at most one publish is in flight: fixes arriving
+ * meanwhile (or while offline) replace each other and only the newest is sent when the writes
+ * complete.
+ *
+ * Writes per hour, superseded and throttled fixes and write latency are logged. Main thread only.
+ */
+public class LiveShareSession {
+
+    private static final String TAG = "LiveShareSession";
+    private static final int LATENCY_WINDOW = 50;
+
+    private static volatile LiveShareSession instance;
+
+    private final Context appContext;
+    private final LocationEngine locationEngine;
+    private final LiveSharePolicy policy = new LiveSharePolicy();
+    private final LocationEngine.Listener locationListener = this::onLocation;
+    private final LocationEngine.FixCallback firstFixCallback = location -> {
+        if (location != null) {
+            onLocation(location);
+        }
+    };
+
+    private DatabaseReference rootRef;
+    // Not null while sharing with watchers
+    private String livePath;
+    // Not null while sharing with a group
+    private DatabaseReference groupRef;
+    private String displayName;
+    // The next fix goes out whatever the policy says, so a newly added target gets a position
+    private boolean publishNext;
+    private int writesInFlight;
+    private boolean publishWritten;
+    private Location pending;
+
+    // Stats
+    private final LatencyStats writeMillis = new LatencyStats(LATENCY_WINDOW);
+    private int writes;
+    private int superseded;
+    private int throttled;
+
+    public static LiveShareSession getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LiveShareSession.class) {
+                if (instance == null) {
+                    instance = new LiveShareSession(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private LiveShareSession(Context context) {
+        appContext = context;
+        locationEngine = LocationEngine.getInstance(context);
+    }
+
+    /**
+     * Whether the position is shared with watchers
+     */
+    public boolean isActive() {
+        return livePath != null;
+    }
+
+    /**
+     * Start sharing with the given users (replaces the earlier watchers; a group trip is kept).
+     * Returns false when the database is not available.
+     */
+    public boolean start(String uid, List<String> watcherUids) {
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (database == null) {
+            Log.w(TAG, "Live sharing is unavailable");
+            return false;
+        }
+        stop();
+        rootRef = database.getReference();
+        livePath = "Users/" + uid + "/live/";
+
+        Map<String, Object> watchers = new HashMap<>();
+        for (String watcher : watcherUids) {
+            watchers.put(watcher, true);
+        }
+        Map<String, Object> session = new HashMap<>();
+        session.put(livePath + "active", true);
+        session.put(livePath + "startedAt", ServerValue.TIMESTAMP);
+        session.put(livePath + "watchers", watchers);
+        rootRef.updateChildren(session);
+
+        onTargetAdded();
+        Log.i(TAG, "Live sharing started with " + watcherUids.size() + " watchers");
+        return true;
+    }
+
+    /**
+     * Stop sharing with watchers and remove the last position from the database
+     */
+    public void stop() {
+        if (livePath == null) {
+            return;
+        }
+        Map<String, Object> end = new HashMap<>();
+        end.put(livePath + "active", false);
+        end.put(livePath + "position", null);
+        rootRef.updateChildren(end);
+        livePath = null;
+        onTargetRemoved();
+    }
+
+    /**
+     * Share the position with a group trip the user is a member of (replaces an earlier group;
+     * watchers are kept). Returns false when the database is not available.
+     */
+    public boolean startGroup(String uid, String groupId, String displayName) {
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (database == null) {
+            Log.w(TAG, "Live sharing is unavailable");
+            return false;
+        }
+        stopGroup();
+        groupRef = database.getReference("Groups").child(groupId).child("positions").child(uid);
+        this.displayName = displayName;
+        onTargetAdded();
+        Log.i(TAG, "Sharing with group " + groupId);
+        return true;
+    }
+
+    /**
+     * Stop sharing with the group and remove the position from it
+     */
+    public void stopGroup() {
+        if (groupRef == null) {
+            return;
+        }
+        groupRef.removeValue();
+        groupRef = null;
+        onTargetRemoved();
+    }
+
+    private void onTargetAdded() {
+        if (livePath != null && groupRef != null) {
+            // Already listening for the other target
+            publishNext = true;
+        } else {
+            policy.reset();
+            writes = 0;
+            superseded = 0;
+            throttled = 0;
+            locationEngine.addListener(locationListener);
+            // The geofence service keeps fixes coming while the app is in the background
+            GeofenceService.start(appContext);
+        }
+        locationEngine.requestFix(LocationEngine.Purpose.SHARE, firstFixCallback);
+    }
+
+    private void onTargetRemoved() {
+        if (livePath != null || groupRef != null) {
+            return;
+        }
+        pending = null;
+        publishNext = false;
+        locationEngine.removeListener(locationListener);
+        locationEngine.cancel(firstFixCallback);
+        logStats();
+    }
+
+    private void onLocation(Location location) {
+        if (livePath == null && groupRef == null) {
+            return;
+        }
+        if (writesInFlight > 0) {
+            // Only the newest fix is worth sending once the current writes are done
+            if (pending != null) {
+                superseded++;
+            }
+            pending = location;
+            return;
+        }
+        publishIfDue(location);
+    }
+
+    private void publishIfDue(Location location) {
+        if (!publishNext && !policy.shouldPublish(location.getLatitude(), location.getLongitude(), location.getAccuracy(),
+                location.hasSpeed() ? location.getSpeed() : 0, location.getTime())) {
+            throttled++;
+            return;
+        }
+        publishNext = false;
+        long sentAt = SystemClock.elapsedRealtime();
+
+        if (livePath != null) {
+            Map<String, Object> position = new HashMap<>();
+            position.put("lat", location.getLatitude());
+            position.put("lng", location.getLongitude());
+            position.put("accuracy", (double) location.getAccuracy());
+            position.put("speed", location.hasSpeed() ? (double) location.getSpeed() : 0.0);
+            position.put("time", location.getTime());
+            Map<String, Object> update = new HashMap<>();
+            update.put(livePath + "position", position);
+            update.put(livePath + "updatedAt", ServerValue.TIMESTAMP);
+            writesInFlight++;
+            rootRef.updateChildren(update, (error, unused) ->
+                    onWriteComplete(error, "Live position", location, sentAt));
+        }
+        if (groupRef != null) {
+            Map<String, Object> member = new HashMap<>();
+            member.put("lat", location.getLatitude());
+            member.put("lng", location.getLongitude());
+            member.put("name", displayName);
+            member.put("updatedAt", ServerValue.TIMESTAMP);
+            writesInFlight++;
+            groupRef.setValue(member, (error, unused) ->
+                    onWriteComplete(error, "Group position", location, sentAt));
+        }
+    }
+
+    private void onWriteComplete(DatabaseError error, String what, Location location, long sentAt) {
+        writesInFlight--;
+        if (error != null) {
+            Log.w(TAG, what + " write failed: " + error.getMessage());
+        } else {
+            publishWritten = true;
+            writeMillis.record(SystemClock.elapsedRealtime() - sentAt);
+        }
+        if (writesInFlight > 0) {
+            return;
+        }
+        if (publishWritten) {
+            // A publish that no target accepted is not counted against the hourly budget; the
+            // next fix is measured from the last position that was actually written
+            policy.onPublished(location.getLatitude(), location.getLongitude(), location.getTime());
+            writes++;
+            logStats();
+        }
+        publishWritten = false;
+        Location next = pending;
+        pending = null;
+        if (next != null && (livePath != null || groupRef != null)) {
+            publishIfDue(next);
+        }
+    }
+
+    private void logStats() {
+        Log.i(TAG, String.format(Locale.US, "Live share: %d writes (%d in the last hour), %d superseded, %d throttled, write p50=%d p99=%d ms",
+                writes, policy.getWritesInLastHour(System.currentTimeMillis()), superseded, throttled,
+                writeMillis.percentile(0.5), writeMillis.percentile(0.99)));
+    }
+}
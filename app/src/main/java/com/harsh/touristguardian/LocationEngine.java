@@ -0,0 +1,285 @@
+package com.harsh.touristguardian;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Single source of location fixes for the app.
+ *
+ * Callers ask for a fix with a Purpose that says how old and how inaccurate a fix may be. A cached
+ * fix that qualifies is delivered right away; otherwise the caller joins the one shared GPS
+ * request, which stays open until every waiting caller is served or has timed out. A caller that
+ * times out gets the best fix seen so far (or null), since a rough position beats none for SOS.
+ * Fixes from other subscriptions (the geofence service) are fed in with onExternalFix() so they
+ * keep the cache fresh too.
+ *
+ * Fix-acquisition latency is tracked per purpose. Main thread only.
+ */
+public class LocationEngine {
+
+    private static final String TAG = "LocationEngine";
+    private static final long UPDATE_INTERVAL_MILLIS = 1000;
+    private static final int LATENCY_WINDOW = 100;
+
+    /**
+     * What a fix is for, and how fresh and accurate it must be
+     */
+    public enum Purpose {
+        MAP(30_000, 100, 20_000),
+        SOS(60_000, 150, 8_000),
+        // Keeps GPS on after an SOS went out until a precise position is known
+        SOS_PRECISE(10_000, 20, 60_000),
+        SHARE(120_000, 200, 15_000);
+
+        final long maxAgeMillis;
+        final float maxAccuracyMeters;
+        final long timeoutMillis;
+
+        Purpose(long maxAgeMillis, float maxAccuracyMeters, long timeoutMillis) {
+            this.maxAgeMillis = maxAgeMillis;
+            this.maxAccuracyMeters = maxAccuracyMeters;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        boolean accepts(Location location) {
+            long ageMillis = (SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()) / 1_000_000;
+            return ageMillis <= maxAgeMillis && location.hasAccuracy() && location.getAccuracy() <= maxAccuracyMeters;
+        }
+    }
+
+    /**
+     * Receives one fix; location is null when none could be obtained before the timeout
+     */
+    public interface FixCallback {
+        void onFix(Location location);
+    }
+
+    /**
+     * Receives every fix the engine sees
+     */
+    public interface Listener {
+        void onLocation(Location location);
+    }
+
+    private static volatile LocationEngine instance;
+
+    private final FusedLocationProviderClient fusedLocationClient;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<PendingFix> pending = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean updatesRequested;
+    private Location lastFix;
+
+    // Stats
+    private final Map<Purpose, LatencyStats> latency = new EnumMap<>(Purpose.class);
+    private final Map<Purpose, Integer> cacheHits = new EnumMap<>(Purpose.class);
+    private int sharedRequests;
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult locationResult) {
+            Location location = locationResult.getLastLocation();
+            if (location != null) {
+                onFix(location);
+            }
+        }
+    };
+
+    public static LocationEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LocationEngine.class) {
+                if (instance == null) {
+                    instance = new LocationEngine(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private LocationEngine(Context context) {
+        fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
+        for (Purpose purpose : Purpose.values()) {
+            latency.put(purpose, new LatencyStats(LATENCY_WINDOW));
+            cacheHits.put(purpose, 0);
+        }
+    }
+
+    /**
+     * Deliver a fix good enough for the purpose, from cache or the shared request
+     * (callers must hold a location permission)
+     */
+    public void requestFix(Purpose purpose, FixCallback callback) {
+        long start = SystemClock.elapsedRealtime();
+        if (lastFix != null && purpose.accepts(lastFix)) {
+            cacheHits.merge(purpose, 1, Integer::sum);
+            record(purpose, start, true);
+            callback.onFix(lastFix);
+            return;
+        }
+
+        PendingFix fix = new PendingFix(purpose, callback, start);
+        fix.timeout = () -> {
+            pending.remove(fix);
+            record(purpose, start, false);
+            Log.w(TAG, purpose + " fix timed out, using " + (lastFix != null ? "last known fix" : "nothing"));
+            stopUpdatesIfIdle();
+            callback.onFix(lastFix);
+        };
+        pending.add(fix);
+        mainHandler.postDelayed(fix.timeout, purpose.timeoutMillis);
+        startUpdates();
+    }
+
+    /**
+     * Stop waiting for a fix (e.g. the screen closed)
+     */
+    public void cancel(FixCallback callback) {
+        Iterator<PendingFix> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            PendingFix fix = iterator.next();
+            if (fix.callback == callback) {
+                mainHandler.removeCallbacks(fix.timeout);
+                iterator.remove();
+            }
+        }
+        stopUpdatesIfIdle();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Most recent fix from any source, or null
+     */
+    public Location getLastFix() {
+        return lastFix;
+    }
+
+    /**
+     * Seed the cache with the platform's last known fix so the map can centre before GPS answers
+     * (any thread; the fix is delivered on the main thread, nothing happens without permission)
+     */
+    @SuppressLint("MissingPermission")
+    public void warmUp() {
+        try {
+            fusedLocationClient.getLastLocation().addOnSuccessListener(location -> {
+                if (location != null) {
+                    onFix(location);
+                }
+            });
+        } catch (SecurityException e) {
+            Log.d(TAG, "No location permission yet, skipping warm-up");
+        }
+    }
+
+    /**
+     * Fix obtained by another subscription (main thread)
+     */
+    public void onExternalFix(Location location) {
+        onFix(location);
+    }
+
+    private void onFix(Location location) {
+        if (lastFix == null || location.getElapsedRealtimeNanos() >= lastFix.getElapsedRealtimeNanos()) {
+            lastFix = location;
+        }
+
+        // Copy first: callbacks may request or cancel fixes
+        List<PendingFix> served = new ArrayList<>();
+        Iterator<PendingFix> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            PendingFix fix = iterator.next();
+            if (fix.purpose.accepts(location)) {
+                mainHandler.removeCallbacks(fix.timeout);
+                iterator.remove();
+                served.add(fix);
+            }
+        }
+        stopUpdatesIfIdle();
+
+        for (PendingFix fix : served) {
+            record(fix.purpose, fix.startElapsed, false);
+            fix.callback.onFix(location);
+        }
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onLocation(location);
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private void startUpdates() {
+        if (updatesRequested) {
+            return;
+        }
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, UPDATE_INTERVAL_MILLIS)
+                .setMinUpdateIntervalMillis(UPDATE_INTERVAL_MILLIS)
+                .build();
+        try {
+            fusedLocationClient.requestLocationUpdates(request, locationCallback, Looper.getMainLooper());
+            updatesRequested = true;
+            sharedRequests++;
+            // The platform's last known fix may already be good enough
+            fusedLocationClient.getLastLocation().addOnSuccessListener(location -> {
+                if (location != null) {
+                    onFix(location);
+                }
+            });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location permission missing", e);
+        }
+    }
+
+    private void stopUpdatesIfIdle() {
+        if (updatesRequested && pending.isEmpty()) {
+            fusedLocationClient.removeLocationUpdates(locationCallback);
+            updatesRequested = false;
+        }
+    }
+
+    private void record(Purpose purpose, long startElapsed, boolean cached) {
+        LatencyStats stats = latency.get(purpose);
+        stats.record(SystemClock.elapsedRealtime() - startElapsed);
+        Log.i(TAG, String.format(Locale.US, "%s fix%s: p50=%d p90=%d p99=%d ms over %d, cache hits %d, shared GPS requests %d",
+                purpose, cached ? " (cached)" : "", stats.percentile(0.5), stats.percentile(0.9),
+                stats.percentile(0.99), stats.size(), cacheHits.get(purpose), sharedRequests));
+    }
+
+    private static class PendingFix {
+        final Purpose purpose;
+        final FixCallback callback;
+        final long startElapsed;
+        Runnable timeout;
+
+        PendingFix(Purpose purpose, FixCallback callback, long startElapsed) {
+            this.purpose = purpose;
+            this.callback = callback;
+            this.startElapsed = startElapsed;
+        }
+    }
+}
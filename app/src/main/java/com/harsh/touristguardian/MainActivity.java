@@ -3,16 +3,18 @@ package com.harsh.touristguardian;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.location.Location;
-import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
-import android.webkit.JavascriptInterface;
-import android.webkit.WebSettings;
 import android.webkit.WebView;
-import android.webkit.WebViewClient;
+import android.widget.EditText;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -20,6 +22,7 @@ import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
@@ -29,35 +32,71 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
-import com.google.android.gms.location.LocationServices;
-import com.google.android.gms.location.Priority;
 import com.google.android.material.navigation.NavigationView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 public class MainActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener {
 
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
+    private static final int NOTIFICATION_PERMISSION_REQUEST_CODE = 1002;
+    private static final String SYNTHETIC_GROUP_PREFIX = "synthetic:";
+    private static final long SNAPSHOT_CROSSFADE_MILLIS = 250;
+    private static final String TAG = "MainActivity";
+    private static final String KEY_LAST_LOCATION = "last_location";
+    private static final String KEY_MAP_LOCATED = "map_located";
 
     private FirebaseAuth firebaseAuth;
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
     private ImageButton menuButton;
     private ProgressBar locationProgressBar;
+    // Last session's map, shown until the live map is ready
+    private ImageView mapSnapshotView;
+    private boolean snapshotShown;
     
     // WebView for Leaflet.js Map
     private WebView mapView;
-    private FusedLocationProviderClient fusedLocationClient;
-    private LocationCallback locationCallback;
+    private MapBridge mapBridge;
+    private LocationEngine locationEngine;
     private Location currentLocation;
+    // The map has been centred on the user (saved across recreation)
+    private boolean mapLocated;
+    // Zone ids last sent to the map as highlighted
+    private List<String> highlightedZoneIds;
+    // Set when recreated (rotation, theme change, process restore)
+    private Location restoredLocation;
+    private boolean restoredMapLocated;
+    private long recreateStartNanos;
+    // When the user last lifted a finger, for SOS tap-to-dispatch latency
+    private long lastTapUptimeMillis;
+
+    private TrailRecorder trailRecorder;
+
+    // Latest fix from any source (map request, SOS, geofence service), kept for SOS/Share and
+    // added to the breadcrumb trail
+    private final LocationEngine.Listener locationListener = this::onLocation;
+    private final LocationEngine.FixCallback mapFixCallback = this::onMapFix;
+    private final LocationEngine.FixCallback shareFixCallback = location -> {
+        if (location != null) {
+            currentLocation = location;
+            shareLocation();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.mark("main_created");
+        if (savedInstanceState != null) {
+            recreateStartNanos = System.nanoTime();
+            restoredLocation = savedInstanceState.getParcelable(KEY_LAST_LOCATION);
+            restoredMapLocated = savedInstanceState.getBoolean(KEY_MAP_LOCATED);
+        }
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -74,6 +113,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         navigationView = findViewById(R.id.navigationView);
         menuButton = findViewById(R.id.menuButton);
         locationProgressBar = findViewById(R.id.locationProgressBar);
+        mapSnapshotView = findViewById(R.id.mapSnapshot);
 
         // Setup navigation drawer
         setupNavigationDrawer();
@@ -88,11 +128,26 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         // Update navigation header with user info
         updateNavigationHeader(currentUser);
 
+        // Keep danger zones in sync with the Zones tree (cached zones load even offline), once
+        // database persistence is set up
+        ((TouristGuardianApplication) getApplication()).getStartupOrchestrator()
+                .whenDone(StartupOrchestrator.PHASE_DATABASE, () -> {
+                    if (!isFinishing() && firebaseAuth.getCurrentUser() != null) {
+                        ZoneSyncManager.getInstance(this).start();
+                    }
+                });
+
         // Set menu button listener
         menuButton.setOnClickListener(v -> drawerLayout.openDrawer(GravityCompat.END));
 
-        // Initialize FusedLocationProviderClient
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        // Location fixes are shared with the geofence service and between map, SOS and share
+        trailRecorder = TrailRecorder.getInstance(this);
+        locationEngine = LocationEngine.getInstance(this);
+        locationEngine.addListener(locationListener);
+        currentLocation = locationEngine.getLastFix();
+        if (currentLocation == null) {
+            currentLocation = restoredLocation;
+        }
 
         // Initialize WebView Map
         initializeMap();
@@ -130,7 +185,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         if (itemId == R.id.nav_sos) {
             handleSOS();
         } else if (itemId == R.id.nav_share_location) {
-            shareLocation();
+            showShareOptions();
+        } else if (itemId == R.id.nav_group_trip) {
+            showGroupTripOptions();
         } else if (itemId == R.id.nav_danger_zones) {
             // Already on danger zones page
             Toast.makeText(this, "You are viewing danger zones", Toast.LENGTH_SHORT).show();
@@ -156,85 +213,225 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
      * Handle SOS Emergency
      */
     private void handleSOS() {
+        // Never wait for GPS here: call and alert go out with the best fix at hand and the
+        // stored alert is refined as better fixes arrive
+        SosManager.getInstance(this).trigger(this, lastTapUptimeMillis);
+        if (locationEngine.getLastFix() == null) {
+            Toast.makeText(this, "SOS Alert Activated! Your location will be added when found", Toast.LENGTH_LONG).show();
+        } else {
+            Toast.makeText(this, "SOS Alert Activated!", Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Share current location
+     */
+    private void shareLocation() {
         if (currentLocation == null) {
             Toast.makeText(this, "Getting your location...", Toast.LENGTH_SHORT).show();
-            getCurrentLocationForSOS();
+            getCurrentLocationForShare();
             return;
         }
         
-        // Create SOS message with location
-        String sosMessage = "🚨 SOS EMERGENCY 🚨\n\n" +
-                "I need immediate help!\n\n" +
-                "My Location:\n" +
+        String locationMessage = "My Current Location:\n" +
                 "Latitude: " + currentLocation.getLatitude() + "\n" +
                 "Longitude: " + currentLocation.getLongitude() + "\n\n" +
                 "Google Maps: https://maps.google.com/?q=" + 
                 currentLocation.getLatitude() + "," + currentLocation.getLongitude();
         
-        // Call emergency number
-        Intent callIntent = new Intent(Intent.ACTION_DIAL);
-        callIntent.setData(Uri.parse("tel:112")); // Emergency number (112 in India)
-        startActivity(callIntent);
-        
-        // Share location via SMS/WhatsApp
         Intent shareIntent = new Intent(Intent.ACTION_SEND);
         shareIntent.setType("text/plain");
-        shareIntent.putExtra(Intent.EXTRA_TEXT, sosMessage);
-        shareIntent.putExtra(Intent.EXTRA_SUBJECT, "SOS Emergency - Help Needed");
-        startActivity(Intent.createChooser(shareIntent, "Share SOS Alert"));
-        
-        Toast.makeText(this, "SOS Alert Activated!", Toast.LENGTH_LONG).show();
+        shareIntent.putExtra(Intent.EXTRA_TEXT, locationMessage);
+        shareIntent.putExtra(Intent.EXTRA_SUBJECT, "My Location");
+        startActivity(Intent.createChooser(shareIntent, "Share Location"));
     }
 
     /**
-     * Get current location for SOS
+     * Send a one-off location or start/stop live sharing
      */
-    private void getCurrentLocationForSOS() {
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED
-                && ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-            Toast.makeText(this, "Location permission required for SOS", Toast.LENGTH_LONG).show();
+    private void showShareOptions() {
+        LiveShareSession session = LiveShareSession.getInstance(this);
+        String[] options = session.isActive()
+                ? new String[]{"Send my location once", "Stop live sharing"}
+                : new String[]{"Send my location once", "Share live location..."};
+        new AlertDialog.Builder(this)
+                .setTitle("Share Location")
+                .setItems(options, (dialog, which) -> {
+                    if (which == 0) {
+                        shareLocation();
+                    } else if (session.isActive()) {
+                        session.stop();
+                        Toast.makeText(this, "Live sharing stopped", Toast.LENGTH_SHORT).show();
+                    } else {
+                        askForWatchers();
+                    }
+                })
+                .show();
+    }
+
+    /**
+     * Ask which users may follow the live location
+     */
+    private void askForWatchers() {
+        EditText input = new EditText(this);
+        input.setHint("User IDs, separated by commas");
+        new AlertDialog.Builder(this)
+                .setTitle("Who can follow you?")
+                .setView(input)
+                .setPositiveButton("Start", (dialog, which) -> startLiveShare(input.getText().toString()))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void startLiveShare(String watcherText) {
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        if (user == null) {
             return;
         }
+        List<String> watchers = new ArrayList<>();
+        for (String id : watcherText.split(",")) {
+            id = id.trim();
+            // Must be usable as a database key
+            if (id.matches("[A-Za-z0-9_-]+") && !id.equals(user.getUid())) {
+                watchers.add(id);
+            }
+        }
+        if (watchers.isEmpty()) {
+            Toast.makeText(this, "Enter at least one valid user ID", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (!LiveShareSession.getInstance(this).start(user.getUid(), watchers)) {
+            Toast.makeText(this, "Live sharing is not available right now", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Toast.makeText(this, "Live sharing started. Your user ID: " + user.getUid(), Toast.LENGTH_LONG).show();
+    }
 
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 5000)
-                .setMaxUpdates(1)
-                .build();
+    /**
+     * Create or join a group trip (share with it and follow its members), or leave it
+     */
+    private void showGroupTripOptions() {
+        GroupTracker tracker = GroupTracker.getInstance();
+        if (tracker.isTracking()) {
+            String code = tracker.getInviteCode();
+            new AlertDialog.Builder(this)
+                    .setTitle("Group Trip")
+                    .setMessage((code != null ? "Invite code: " + code + "\n\n" : "")
+                            + "Stop following the group and sharing your location with it?")
+                    .setPositiveButton("Leave", (dialog, which) -> {
+                        LiveShareSession.getInstance(this).stopGroup();
+                        tracker.leaveGroup();
+                        Toast.makeText(this, "Left the group trip", Toast.LENGTH_SHORT).show();
+                    })
+                    .setNegativeButton("Cancel", null)
+                    .show();
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Group Trip")
+                .setItems(new String[]{"Start a group trip", "Join with an invite code..."}, (dialog, which) -> {
+                    if (which == 0) {
+                        createGroupTrip();
+                    } else {
+                        askForInviteCode();
+                    }
+                })
+                .show();
+    }
 
-        locationCallback = new LocationCallback() {
+    private void askForInviteCode() {
+        EditText input = new EditText(this);
+        input.setHint("Invite code");
+        new AlertDialog.Builder(this)
+                .setTitle("Join Group Trip")
+                .setView(input)
+                .setPositiveButton("Join", (dialog, which) -> joinGroupTrip(input.getText().toString().trim()))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void createGroupTrip() {
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        if (user == null || mapBridge == null) {
+            return;
+        }
+        GroupTracker.getInstance().createGroup(user.getUid(), new GroupTracker.MembershipCallback() {
+            @Override
+            public void onMember(String groupId, String inviteCode) {
+                if (followGroup(user, groupId, inviteCode)) {
+                    new AlertDialog.Builder(MainActivity.this)
+                            .setTitle("Group Trip Started")
+                            .setMessage("Share this invite code with your group: " + inviteCode)
+                            .setPositiveButton("OK", null)
+                            .show();
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void joinGroupTrip(String code) {
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        if (user == null || mapBridge == null) {
+            return;
+        }
+        // "synthetic:N" shows N fake members, to check the map with large groups (debug builds)
+        if (BuildConfig.DEBUG && code.startsWith(SYNTHETIC_GROUP_PREFIX)) {
+            try {
+                int members = Integer.parseInt(code.substring(SYNTHETIC_GROUP_PREFIX.length()));
+                if (members < 1 || members > GroupTracker.MAX_SYNTHETIC_MEMBERS) {
+                    Toast.makeText(this, "Member count must be 1 to " + GroupTracker.MAX_SYNTHETIC_MEMBERS,
+                            Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                double lat = currentLocation != null ? currentLocation.getLatitude() : 15.4909;
+                double lng = currentLocation != null ? currentLocation.getLongitude() : 73.8278;
+                GroupTracker.getInstance().startSyntheticLoad(mapBridge, members, lat, lng);
+            } catch (NumberFormatException e) {
+                Toast.makeText(this, "Invalid member count", Toast.LENGTH_SHORT).show();
+            }
+            return;
+        }
+        if (!code.matches("[A-Za-z0-9]{8}")) {
+            Toast.makeText(this, "Enter the 8-character invite code", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        GroupTracker.getInstance().joinGroup(user.getUid(), code, new GroupTracker.MembershipCallback() {
             @Override
-            public void onLocationResult(LocationResult locationResult) {
-                if (locationResult != null && locationResult.getLastLocation() != null) {
-                    currentLocation = locationResult.getLastLocation();
-                    handleSOS();
-                    stopLocationUpdates();
+            public void onMember(String groupId, String inviteCode) {
+                if (followGroup(user, groupId, inviteCode)) {
+                    Toast.makeText(MainActivity.this, "Joined the group trip", Toast.LENGTH_SHORT).show();
                 }
             }
-        };
 
-        fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, getMainLooper());
+            @Override
+            public void onError(String message) {
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
-     * Share current location
+     * Follow a group the user is a member of and share with it (live sharing with watchers,
+     * if on, carries on as before)
      */
-    private void shareLocation() {
-        if (currentLocation == null) {
-            Toast.makeText(this, "Getting your location...", Toast.LENGTH_SHORT).show();
-            getCurrentLocationForShare();
-            return;
+    private boolean followGroup(FirebaseUser user, String groupId, String inviteCode) {
+        if (mapBridge == null || isFinishing()) {
+            return false;
         }
-        
-        String locationMessage = "My Current Location:\n" +
-                "Latitude: " + currentLocation.getLatitude() + "\n" +
-                "Longitude: " + currentLocation.getLongitude() + "\n\n" +
-                "Google Maps: https://maps.google.com/?q=" + 
-                currentLocation.getLatitude() + "," + currentLocation.getLongitude();
-        
-        Intent shareIntent = new Intent(Intent.ACTION_SEND);
-        shareIntent.setType("text/plain");
-        shareIntent.putExtra(Intent.EXTRA_TEXT, locationMessage);
-        shareIntent.putExtra(Intent.EXTRA_SUBJECT, "My Location");
-        startActivity(Intent.createChooser(shareIntent, "Share Location"));
+        String name = user.getDisplayName() != null && !user.getDisplayName().isEmpty()
+                ? user.getDisplayName()
+                : user.getEmail() != null ? user.getEmail().split("@")[0] : "Group member";
+        if (!GroupTracker.getInstance().start(mapBridge, user.getUid(), groupId, inviteCode)
+                || !LiveShareSession.getInstance(this).startGroup(user.getUid(), groupId, name)) {
+            Toast.makeText(this, "Group trips are not available right now", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -246,22 +443,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             return;
         }
 
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 5000)
-                .setMaxUpdates(1)
-                .build();
-
-        locationCallback = new LocationCallback() {
-            @Override
-            public void onLocationResult(LocationResult locationResult) {
-                if (locationResult != null && locationResult.getLastLocation() != null) {
-                    currentLocation = locationResult.getLastLocation();
-                    shareLocation();
-                    stopLocationUpdates();
-                }
-            }
-        };
-
-        fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, getMainLooper());
+        locationEngine.requestFix(LocationEngine.Purpose.SHARE, shareFixCallback);
     }
 
     /**
@@ -289,6 +471,13 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     }
 
     private void logoutUser() {
+        GeofenceService.stop(this);
+        // Clear the live position while the session is still authorized to write it
+        LiveShareSession.getInstance(this).stop();
+        LiveShareSession.getInstance(this).stopGroup();
+        GroupTracker.getInstance().stop();
+        SosManager.getInstance(this).disarm();
+        ZoneSyncManager.getInstance(this).stop();
         firebaseAuth.signOut();
         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
         redirectToLogin();
@@ -310,6 +499,52 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (mapView != null) {
+            mapView.onResume();
+            mapBridge.setAnimationsPaused(false);
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (currentLocation != null) {
+            outState.putParcelable(KEY_LAST_LOCATION, currentLocation);
+        }
+        outState.putBoolean(KEY_MAP_LOCATED, mapLocated);
+    }
+
+    @Override
+    protected void onPause() {
+        saveMapSnapshot();
+        // Stop the zone pulse animation while the map is not visible
+        if (mapView != null) {
+            mapBridge.setAnimationsPaused(true);
+            mapView.onPause();
+        }
+        super.onPause();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (trailRecorder != null) {
+            // The process may be killed while in the background
+            trailRecorder.flush();
+        }
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            lastTapUptimeMillis = event.getEventTime();
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
     @Override
     public void onBackPressed() {
         if (drawerLayout.isDrawerOpen(GravityCompat.END)) {
@@ -320,45 +555,93 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     }
 
     /**
-     * Initialize WebView with Leaflet.js map
+     * Attach the app-wide (usually pre-warmed) map WebView
      */
     private void initializeMap() {
-        mapView = findViewById(R.id.mapView);
-        
-        // Configure WebView
-        WebSettings webSettings = mapView.getSettings();
-        webSettings.setJavaScriptEnabled(true);
-        webSettings.setDomStorageEnabled(true);
-        webSettings.setGeolocationEnabled(true);
-        webSettings.setAllowFileAccess(true);
-        webSettings.setAllowContentAccess(true);
-        
-        // Add JavaScript interface to communicate with Android
-        mapView.addJavascriptInterface(new WebAppInterface(), "AndroidInterface");
-        
-        // Set WebViewClient to handle page loading
-        mapView.setWebViewClient(new WebViewClient() {
+        MapWebViewHost mapHost = ((TouristGuardianApplication) getApplication()).getMapHost();
+        // After a configuration change the page (zones, animations, marker) is still loaded
+        boolean pageKept = mapHost.isPageLoaded();
+        if (!pageKept) {
+            restoredMapLocated = false;
+        }
+        mapBridge = mapHost.getBridge();
+        mapView = mapHost.attach(this, findViewById(R.id.mapContainer), new MapWebViewHost.Listener() {
             @Override
-            public void onPageFinished(WebView view, String url) {
-                super.onPageFinished(view, url);
+            public void onMapPageLoaded() {
                 // Page loaded, now request location
                 requestLocationPermissionAndGetLocation();
             }
+
+            @Override
+            public void onMapReady() {
+                StartupTrace.mark("main_map_shown");
+                StartupTrace.report("Time to map after login", "main_created", "main_map_shown");
+                StartupTrace.report("Time to map from launch", "application_created", "main_map_shown");
+                StartupTrace.report("Perceived time to map", "application_created",
+                        snapshotShown ? "map_snapshot_shown" : "main_map_shown");
+                hideMapSnapshot();
+                if (recreateStartNanos != 0) {
+                    Log.i(TAG, String.format(Locale.US, "Map back after recreation in %.1f ms (page %s)",
+                            (System.nanoTime() - recreateStartNanos) / 1e6, pageKept ? "kept" : "reloaded"));
+                    recreateStartNanos = 0;
+                }
+            }
         });
-        
-        // Load HTML file
-        mapView.loadUrl("file:///android_asset/map.html");
+        // Until the live map is ready, show the last session's picture as soon as it is decoded
+        if (!mapHost.isMapReady()) {
+            ((TouristGuardianApplication) getApplication()).getStartupOrchestrator()
+                    .whenDone(StartupOrchestrator.PHASE_SNAPSHOT, this::showMapSnapshot);
+        }
+    }
+
+    /**
+     * Show the last session's map picture while the live map loads
+     */
+    private void showMapSnapshot() {
+        if (mapView == null || isFinishing()
+                || ((TouristGuardianApplication) getApplication()).getMapHost().isMapReady()) {
+            return;
+        }
+        Bitmap snapshot = MapSnapshotStore.getInstance(this).takeSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        mapSnapshotView.setImageBitmap(snapshot);
+        mapSnapshotView.setAlpha(1f);
+        mapSnapshotView.setVisibility(View.VISIBLE);
+        snapshotShown = true;
+        StartupTrace.mark("map_snapshot_shown");
+        StartupTrace.report("Time to map snapshot from launch", "application_created", "map_snapshot_shown");
     }
 
     /**
-     * JavaScript interface to communicate with WebView
+     * Cross-fade from the picture to the live map (it starts at the same view)
      */
-    public class WebAppInterface {
-        @JavascriptInterface
-        public void onMapReady() {
-            // Map is ready, request location
-            runOnUiThread(() -> requestLocationPermissionAndGetLocation());
+    private void hideMapSnapshot() {
+        if (mapSnapshotView.getVisibility() != View.VISIBLE) {
+            return;
         }
+        mapSnapshotView.animate()
+                .alpha(0f)
+                .setDuration(SNAPSHOT_CROSSFADE_MILLIS)
+                .withEndAction(() -> {
+                    mapSnapshotView.setVisibility(View.GONE);
+                    mapSnapshotView.setImageDrawable(null);
+                })
+                .start();
+    }
+
+    /**
+     * Save the map's view and a picture of it for the next launch (while it is still on screen)
+     */
+    private void saveMapSnapshot() {
+        MapWebViewHost mapHost = ((TouristGuardianApplication) getApplication()).getMapHost();
+        String state = mapHost.getMapState();
+        if (mapView == null || state == null || !mapHost.isMapReady()
+                || mapSnapshotView.getVisibility() == View.VISIBLE) {
+            return;
+        }
+        MapSnapshotStore.getInstance(this).save(getWindow(), mapView, state, currentLocation);
     }
 
     /**
@@ -401,33 +684,67 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             return;
         }
 
-        // Request high accuracy GPS location
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 10000)
-                .setMinUpdateIntervalMillis(1000)
-                .setMaxUpdateDelayMillis(5000)
-                .setMaxUpdates(1)
-                .setWaitForAccurateLocation(true)
-                .build();
+        // Keep watching for danger zones after this one-off fix
+        startGeofencing();
+        SosManager.getInstance(this).arm();
 
-        locationCallback = new LocationCallback() {
-            @Override
-            public void onLocationResult(LocationResult locationResult) {
-                if (locationResult != null && locationResult.getLastLocation() != null) {
-                    Location location = locationResult.getLastLocation();
-                    currentLocation = location; // Store for SOS/Share
-                    updateMapLocation(location);
-                    stopLocationUpdates();
-                }
-            }
-        };
+        if (restoredMapLocated) {
+            // Recreated with the page kept: the map already shows the user where they left it
+            restoredMapLocated = false;
+            mapLocated = true;
+            locationProgressBar.setVisibility(android.view.View.GONE);
+            return;
+        }
+        Location restored = restoredLocation;
+        restoredLocation = null;
+        if (restored != null && LocationEngine.Purpose.MAP.accepts(restored)) {
+            // Position saved before the process was killed is still recent: no GPS round trip
+            updateMapLocation(restored, false);
+            return;
+        }
+
+        // A recent accurate fix is shown at once; otherwise wait for the shared GPS request
+        locationEngine.requestFix(LocationEngine.Purpose.MAP, mapFixCallback);
+    }
 
-        fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, getMainLooper());
+    private void onLocation(Location location) {
+        currentLocation = location;
+        trailRecorder.record(location);
+        if (mapBridge != null) {
+            // Queued per fix; the bridge sends only the newest position and highlight per frame
+            mapBridge.setPosition(location.getLatitude(), location.getLongitude(), location.getAccuracy());
+            highlightZonesAt(location.getLatitude(), location.getLongitude());
+            mapBridge.addTrailPoint(location.getLatitude(), location.getLongitude());
+        }
+    }
+
+    private void onMapFix(Location location) {
+        if (location == null) {
+            locationProgressBar.setVisibility(android.view.View.GONE);
+            Toast.makeText(this, "Unable to get your location", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        currentLocation = location; // Store for SOS/Share
+        updateMapLocation(location, true);
+    }
+
+    /**
+     * Start background danger zone monitoring
+     */
+    private void startGeofencing() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.POST_NOTIFICATIONS},
+                    NOTIFICATION_PERMISSION_REQUEST_CODE);
+        }
+        GeofenceService.start(this);
     }
 
     /**
      * Update map with location
      */
-    private void updateMapLocation(Location location) {
+    private void updateMapLocation(Location location, boolean announce) {
         if (mapView == null || location == null) {
             locationProgressBar.setVisibility(android.view.View.GONE);
             return;
@@ -443,21 +760,45 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             return;
         }
 
-        // Call JavaScript function to update map
-        String jsCode = "javascript:onLocationUpdate(" + lat + ", " + lng + ");";
-        mapView.evaluateJavascript(jsCode, null);
+        // Queue the map update; the bridge sends it with the next frame
+        mapBridge.setPosition(lat, lng, location.getAccuracy());
+        mapLocated = true;
         
         locationProgressBar.setVisibility(android.view.View.GONE);
-        Toast.makeText(this, "Location found!", Toast.LENGTH_SHORT).show();
+
+        // Warn right away if the fix is already inside a danger zone
+        List<DangerZone> zones = highlightZonesAt(lat, lng);
+        if (!zones.isEmpty()) {
+            Toast.makeText(this, "⚠️ You are inside a danger zone: " + zones.get(0).getName(), Toast.LENGTH_LONG).show();
+        } else if (announce) {
+            Toast.makeText(this, "Location found!", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Highlight the zones containing the point (sent only when they change) and return them
+     */
+    private List<DangerZone> highlightZonesAt(double lat, double lng) {
+        List<DangerZone> zones = DangerZoneRepository.getInstance(this).getZonesContaining(lat, lng);
+        List<String> zoneIds = new ArrayList<>();
+        for (DangerZone zone : zones) {
+            zoneIds.add(zone.getId());
+        }
+        if (!zoneIds.equals(highlightedZoneIds)) {
+            highlightedZoneIds = zoneIds;
+            mapBridge.setHighlightedZones(zoneIds);
+        }
+        return zones;
     }
 
     /**
-     * Stop location updates
+     * Stop waiting for fixes requested by this screen
      */
     private void stopLocationUpdates() {
-        if (locationCallback != null) {
-            fusedLocationClient.removeLocationUpdates(locationCallback);
-            locationCallback = null;
+        if (locationEngine != null) {
+            locationEngine.removeListener(locationListener);
+            locationEngine.cancel(mapFixCallback);
+            locationEngine.cancel(shareFixCallback);
         }
     }
 
@@ -466,7 +807,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         super.onDestroy();
         stopLocationUpdates();
         if (mapView != null) {
-            mapView.destroy();
+            // The WebView belongs to the application; keep it loaded for the next MainActivity
+            ((TouristGuardianApplication) getApplication()).getMapHost().detach(this);
+            mapView = null;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.harsh.touristguardian;
+
+import android.util.Log;
+import android.view.Choreographer;
+import android.webkit.WebView;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Java-to-JavaScript channel for the map WebView.
+ *
+ * Callers enqueue commands at any rate; they are merged in a MapCommandQueue and sent as one
+ * evaluateJavascript call per display frame. Only one batch is in flight at a time: while the
+ * WebView is still applying the previous batch, new commands keep merging in the queue
+ * (backpressure) instead of piling up as separate bridge calls. A batch that is not confirmed
+ * within STALL_TIMEOUT_NANOS (e.g. the renderer is busy) no longer blocks the next one.
+ *
+ * Main thread only.
+ */
+public class MapBridge implements Choreographer.FrameCallback {
+
+    private static final String TAG = "MapBridge";
+    private static final long STALL_TIMEOUT_NANOS = 1_000_000_000L;
+    private static final int STATS_LOG_EVERY_FLUSHES = 200;
+    private static final int LATENCY_SAMPLES = 128;
+
+    private final WebView webView;
+    private final MapCommandQueue queue = new MapCommandQueue();
+    private boolean pageReady;
+    private boolean frameScheduled;
+    private boolean inFlight;
+    private long inFlightSinceNanos;
+    private int batchSequence;
+
+    // Stats
+    private long flushes;
+    private long stalls;
+    private int maxDepth;
+    private final long[] waitNanos = new long[LATENCY_SAMPLES];
+    private final long[] roundTripNanos = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+
+    public MapBridge(WebView webView) {
+        this.webView = webView;
+    }
+
+    /**
+     * Commands are held until map.html has loaded (applyMapBatch is defined there)
+     */
+    public void setPageReady(boolean ready) {
+        pageReady = ready;
+        inFlight = false;
+        scheduleFlush();
+    }
+
+    public void setPosition(double lat, double lng, double accuracyM) {
+        queue.setPosition(lat, lng, accuracyM);
+        scheduleFlush();
+    }
+
+    public void setHighlightedZones(Collection<String> zoneIds) {
+        queue.setHighlightedZones(zoneIds);
+        scheduleFlush();
+    }
+
+    public void addTrailPoint(double lat, double lng) {
+        queue.addTrailPoint(lat, lng);
+        scheduleFlush();
+    }
+
+    public void setMemberPosition(int slot, double lat, double lng) {
+        queue.setMemberPosition(slot, lat, lng);
+        scheduleFlush();
+    }
+
+    public void setMemberName(int slot, String name) {
+        queue.setMemberName(slot, name);
+        scheduleFlush();
+    }
+
+    public void removeMember(int slot) {
+        queue.removeMember(slot);
+        scheduleFlush();
+    }
+
+    public void clearMembers() {
+        queue.clearMembers();
+        scheduleFlush();
+    }
+
+    public void setAnimationsPaused(boolean paused) {
+        queue.setAnimationsPaused(paused);
+        scheduleFlush();
+    }
+
+    public void requestZoneReload() {
+        queue.requestZoneReload();
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        maxDepth = Math.max(maxDepth, queue.getPendingCommands());
+        if (!frameScheduled && pageReady && !queue.isEmpty()) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (!pageReady || queue.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (inFlight) {
+            if (now - inFlightSinceNanos < STALL_TIMEOUT_NANOS) {
+                // Previous batch not applied yet: keep merging and look again next frame
+                scheduleFlush();
+                return;
+            }
+            stalls++;
+        }
+
+        long waited = now - queue.getOldestEnqueueNanos();
+        String script = queue.drainScript();
+        int sequence = ++batchSequence;
+        inFlight = true;
+        inFlightSinceNanos = now;
+        webView.evaluateJavascript(script, result -> onBatchApplied(sequence, waited, now));
+    }
+
+    private void onBatchApplied(int sequence, long waited, long sentNanos) {
+        if (sequence == batchSequence) {
+            inFlight = false;
+        }
+        int sample = latencyCount++ % LATENCY_SAMPLES;
+        waitNanos[sample] = waited;
+        roundTripNanos[sample] = System.nanoTime() - sentNanos;
+        if (++flushes % STATS_LOG_EVERY_FLUSHES == 0) {
+            Log.i(TAG, getStatsSummary());
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Flush counts, merge ratio, queue depth and latency percentiles of recent flushes
+     */
+    public String getStatsSummary() {
+        int samples = Math.min(latencyCount, LATENCY_SAMPLES);
+        long[] waits = Arrays.copyOf(waitNanos, samples);
+        long[] trips = Arrays.copyOf(roundTripNanos, samples);
+        Arrays.sort(waits);
+        Arrays.sort(trips);
+        return String.format(Locale.US, "flushes=%d commands=%d superseded=%d trailDropped=%d maxDepth=%d stalls=%d"
+                        + " wait p50=%.1f max=%.1f ms, apply p50=%.1f max=%.1f ms",
+                flushes, queue.getEnqueuedCount(), queue.getSupersededCount(), queue.getDroppedTrailPoints(),
+                maxDepth, stalls,
+                percentileMillis(waits, 0.5), percentileMillis(waits, 1.0),
+                percentileMillis(trips, 0.5), percentileMillis(trips, 1.0));
+    }
+
+    private static double percentileMillis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = Math.min(sorted.length - 1, (int) (quantile * sorted.length));
+        return sorted[index] / 1e6;
+    }
+}
@@ -0,0 +1,233 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.Window;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last map state (centre, zoom, hidden zone types, last known position) and a downscaled picture
+ * of the map, saved when the map is left.
+ *
+ * On the next launch MainActivity shows the picture right away while map.html starts from the
+ * saved state (getStateJson() through WebAppInterface), so the live map comes up at the same
+ * view and can cross-fade in over the picture once it is ready.
+ *
+ * load() does disk I/O and runs during startup (StartupOrchestrator); save() is called on the
+ * main thread and writes on a background thread.
+ */
+public class MapSnapshotStore {
+
+    private static final String TAG = "MapSnapshotStore";
+    private static final String DIR = "map_snapshot";
+    private static final String STATE_FILE = "state.json";
+    private static final String IMAGE_FILE = "snapshot.jpg";
+    // Snapshot is a quarter of the pixels: enough for a few hundred ms before the live map
+    private static final int DOWNSCALE = 2;
+    private static final int JPEG_QUALITY = 80;
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static volatile MapSnapshotStore instance;
+
+    private final File dir;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private boolean loaded;
+    private String stateJson;
+    private Bitmap bitmap;
+
+    public static MapSnapshotStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MapSnapshotStore.class) {
+                if (instance == null) {
+                    instance = new MapSnapshotStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private MapSnapshotStore(Context context) {
+        dir = new File(context.getFilesDir(), DIR);
+    }
+
+    /**
+     * Read the saved state and decode the picture (once; any thread but main)
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        long start = System.nanoTime();
+        File stateFile = new File(dir, STATE_FILE);
+        File imageFile = new File(dir, IMAGE_FILE);
+        if (!stateFile.isFile() || System.currentTimeMillis() - stateFile.lastModified() > MAX_AGE_MILLIS) {
+            return;
+        }
+        try {
+            stateJson = readText(stateFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read saved map state", e);
+            return;
+        }
+        if (imageFile.isFile()) {
+            bitmap = BitmapFactory.decodeFile(imageFile.getPath());
+        }
+        Log.i(TAG, "Loaded map state" + (bitmap != null ? " and " + bitmap.getWidth() + "x" + bitmap.getHeight()
+                + " snapshot" : "") + " in " + (System.nanoTime() - start) / 1000 + " us");
+    }
+
+    /**
+     * Saved state as JSON for map.html, or "null" when there is none
+     */
+    public synchronized String getStateJson() {
+        load();
+        return stateJson != null ? stateJson : "null";
+    }
+
+    /**
+     * The saved picture, handed out once (null if there is none)
+     */
+    public synchronized Bitmap takeSnapshot() {
+        load();
+        Bitmap snapshot = bitmap;
+        bitmap = null;
+        return snapshot;
+    }
+
+    /**
+     * Capture the map view and save it with the map's state (main thread, while the view is
+     * still on screen)
+     *
+     * @param mapState JSON reported by map.html ({lat, lng, zoom, hidden})
+     * @param position last known fix, or null
+     */
+    public void save(Window window, View mapView, String mapState, Location position) {
+        String state;
+        try {
+            JSONObject json = new JSONObject(mapState);
+            if (position != null) {
+                json.put("position", new JSONArray()
+                        .put(position.getLatitude())
+                        .put(position.getLongitude())
+                        .put(position.getAccuracy()));
+            }
+            state = json.toString();
+        } catch (JSONException e) {
+            Log.w(TAG, "Ignoring malformed map state", e);
+            return;
+        }
+        synchronized (this) {
+            // What is on screen now supersedes anything loaded from disk
+            loaded = true;
+            stateJson = state;
+            bitmap = null;
+        }
+
+        int width = mapView.getWidth() / DOWNSCALE;
+        int height = mapView.getHeight() / DOWNSCALE;
+        if (width == 0 || height == 0) {
+            io.execute(() -> write(state, null));
+            return;
+        }
+        long start = System.nanoTime();
+        Bitmap capture = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            // Reads the rendered frame, so it also works for the hardware-accelerated WebView
+            int[] location = new int[2];
+            mapView.getLocationInWindow(location);
+            Rect rect = new Rect(location[0], location[1],
+                    location[0] + mapView.getWidth(), location[1] + mapView.getHeight());
+            PixelCopy.request(window, rect, capture, result -> {
+                Log.d(TAG, "Map captured in " + (System.nanoTime() - start) / 1000 + " us, result " + result);
+                Bitmap image = result == PixelCopy.SUCCESS ? capture : null;
+                io.execute(() -> write(state, image));
+            }, mainHandler);
+        } else {
+            Canvas canvas = new Canvas(capture);
+            canvas.scale(1f / DOWNSCALE, 1f / DOWNSCALE);
+            mapView.draw(canvas);
+            Log.d(TAG, "Map drawn in " + (System.nanoTime() - start) / 1000 + " us");
+            io.execute(() -> write(state, capture));
+        }
+    }
+
+    /**
+     * Write the picture, then the state (io thread); each file is replaced atomically
+     */
+    private void write(String state, Bitmap image) {
+        long start = System.nanoTime();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create " + dir);
+            return;
+        }
+        try {
+            File imageFile = new File(dir, IMAGE_FILE);
+            if (image != null) {
+                File temp = new File(dir, IMAGE_FILE + ".tmp");
+                try (OutputStream output = new FileOutputStream(temp)) {
+                    image.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, output);
+                }
+                replace(temp, imageFile);
+            } else {
+                // A picture of another view would not match the restored state
+                imageFile.delete();
+            }
+            File temp = new File(dir, STATE_FILE + ".tmp");
+            try (OutputStream output = new FileOutputStream(temp)) {
+                output.write(state.getBytes(StandardCharsets.UTF_8));
+            }
+            replace(temp, new File(dir, STATE_FILE));
+            Log.i(TAG, "Saved map state" + (image != null ? " and snapshot" : "") + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save map snapshot", e);
+        }
+    }
+
+    private static String readText(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void replace(File temp, File target) throws IOException {
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot write " + target);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.harsh.touristguardian;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import java.util.List;
+
+/**
+ * Owns the map WebView for the whole process (held by TouristGuardianApplication).
+ *
+ * The WebView is created with a MutableContextWrapper around the application context, so it can
+ * start loading map.html during the splash screen and later be attached to MainActivity (and
+ * detached again) without reloading the page.
+ */
+public class MapWebViewHost {
+
+    private static final String TAG = "MapWebViewHost";
+    private static final String MAP_URL = "file:///android_asset/map.html";
+
+    /**
+     * Map events forwarded to the attached Activity (always on the main thread)
+     */
+    public interface Listener {
+        void onMapPageLoaded();
+
+        void onMapReady();
+    }
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private MutableContextWrapper contextWrapper;
+    private WebView webView;
+    private MapBridge bridge;
+    private Listener listener;
+    // Activity the WebView is currently shown in
+    private Activity owner;
+    private boolean pageLoaded;
+    private boolean mapReady;
+    private boolean prewarmed;
+    // Latest {lat, lng, zoom, hidden} reported by map.html, saved when the map is left
+    private volatile String mapState;
+
+    public MapWebViewHost(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /**
+     * Create the WebView and start loading the map (main thread only)
+     */
+    public void prewarm() {
+        if (webView != null) {
+            return;
+        }
+        StartupTrace.mark("map_prewarm_started");
+        prewarmed = true;
+        createWebView();
+    }
+
+    /**
+     * Attach the WebView to the given container, creating it now if it was not pre-warmed
+     */
+    public WebView attach(Activity activity, ViewGroup container, Listener listener) {
+        long start = System.nanoTime();
+        boolean reused = pageLoaded;
+        if (webView == null) {
+            createWebView();
+        }
+        StartupTrace.mark(prewarmed ? "map_attached_prewarmed" : "map_attached_cold");
+
+        owner = activity;
+        contextWrapper.setBaseContext(activity);
+        ViewParent parent = webView.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(webView);
+        }
+        container.addView(webView, 0, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+        this.listener = listener;
+        // Replay what already happened while nobody was attached
+        if (pageLoaded) {
+            listener.onMapPageLoaded();
+        }
+        if (mapReady) {
+            listener.onMapReady();
+        }
+        Log.d(TAG, "Map attached (" + (reused ? "page kept" : "page loading") + ") in "
+                + (System.nanoTime() - start) / 1000 + " us");
+        return webView;
+    }
+
+    /**
+     * Detach from the Activity but keep the page (and its JS state) alive. Does nothing when the
+     * WebView has since been attached to another Activity.
+     */
+    public void detach(Activity activity) {
+        if (activity != owner) {
+            return;
+        }
+        owner = null;
+        listener = null;
+        if (webView == null) {
+            return;
+        }
+        ViewParent parent = webView.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(webView);
+        }
+        contextWrapper.setBaseContext(appContext);
+    }
+
+    /**
+     * Batched command channel into map.html (created with the WebView)
+     */
+    public MapBridge getBridge() {
+        if (webView == null) {
+            createWebView();
+        }
+        return bridge;
+    }
+
+    /**
+     * Whether map.html has finished loading, e.g. before an Activity recreated after rotation
+     */
+    public boolean isPageLoaded() {
+        return pageLoaded;
+    }
+
+    public boolean isMapReady() {
+        return mapReady;
+    }
+
+    /**
+     * Current view of the map as JSON, or null before the page reported one
+     */
+    public String getMapState() {
+        return mapState;
+    }
+
+    private void createWebView() {
+        contextWrapper = new MutableContextWrapper(appContext);
+        webView = new WebView(contextWrapper);
+        bridge = new MapBridge(webView);
+
+        // Configure WebView
+        WebSettings webSettings = webView.getSettings();
+        webSettings.setJavaScriptEnabled(true);
+        webSettings.setDomStorageEnabled(true);
+        webSettings.setGeolocationEnabled(true);
+        webSettings.setAllowFileAccess(true);
+        webSettings.setAllowContentAccess(true);
+
+        // Add JavaScript interface to communicate with Android
+        webView.addJavascriptInterface(new WebAppInterface(), "AndroidInterface");
+
+        TileCache tileCache = TileCache.getInstance(appContext);
+        webView.setWebViewClient(new WebViewClient() {
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                // Serve map tiles from the offline tile cache
+                WebResourceResponse tile = tileCache.intercept(request.getUrl().toString());
+                return tile != null ? tile : super.shouldInterceptRequest(view, request);
+            }
+
+            @Override
+            public void onPageFinished(WebView view, String url) {
+                super.onPageFinished(view, url);
+                StartupTrace.mark("map_page_loaded");
+                pageLoaded = true;
+                bridge.setPageReady(true);
+                if (listener != null) {
+                    listener.onMapPageLoaded();
+                }
+            }
+        });
+
+        // Re-query the visible zones after synced updates
+        DangerZoneRepository.getInstance(appContext).addListener(bridge::requestZoneReload);
+
+        webView.loadUrl(MAP_URL);
+    }
+
+    /**
+     * JavaScript interface to communicate with WebView
+     */
+    public class WebAppInterface {
+        @JavascriptInterface
+        public void onMapReady() {
+            mainHandler.post(() -> {
+                StartupTrace.mark("map_ready");
+                mapReady = true;
+                if (listener != null) {
+                    listener.onMapReady();
+                }
+            });
+        }
+
+        @JavascriptInterface
+        public void onMapStateChanged(String state) {
+            mapState = state;
+        }
+
+        @JavascriptInterface
+        public String getSavedMapState() {
+            // View of the last session, so the first tiles match the snapshot on screen
+            return MapSnapshotStore.getInstance(appContext).getStateJson();
+        }
+
+        @JavascriptInterface
+        public String getZonesInBounds(double south, double west, double north, double east, int limit) {
+            // Map asks for the zones of the visible area instead of holding every zone itself
+            List<DangerZone> zones = DangerZoneRepository.getInstance(appContext)
+                    .getZonesInBounds(south, west, north, east, limit);
+            return DangerZoneRepository.toJson(zones);
+        }
+
+        @JavascriptInterface
+        public String getTrail(double zoom, double south, double west, double north, double east) {
+            // Recorded trail of the area, already simplified for the zoom level
+            return TrailRecorder.getInstance(appContext).getTrailJson(zoom, south, west, north, east);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.harsh.touristguardian;
+
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.BulletSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the sections of a PlanMarkdownRenderer (one per day) as RecyclerView items, so only the
+ * days on screen are measured and laid out.
+ *
+ * Styled text is built once per section version and reused when a row is re-bound; while a plan
+ * streams in only the last section changes.
+ */
+public class PlanSectionAdapter extends RecyclerView.Adapter<PlanSectionAdapter.ViewHolder> {
+
+    private static final float HEADING_SIZE = 1.15f;
+    private static final int BULLET_GAP_PX = 16;
+
+    private PlanMarkdownRenderer renderer;
+    private int shownCount;
+
+    // Styled text per section, rebuilt when the section's version changes
+    private final List<CharSequence> styled = new ArrayList<>();
+    private final List<Integer> styledVersions = new ArrayList<>();
+
+    /**
+     * Show a new plan (clears the list)
+     */
+    public void setRenderer(PlanMarkdownRenderer renderer) {
+        this.renderer = renderer;
+        styled.clear();
+        styledVersions.clear();
+        shownCount = 0;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Pick up lines the renderer added since the last call
+     */
+    public void refresh() {
+        if (renderer == null) {
+            return;
+        }
+        int count = renderer.getSectionCount();
+        if (shownCount > 0 && isStale(shownCount - 1)) {
+            notifyItemChanged(shownCount - 1);
+        }
+        if (count > shownCount) {
+            int previous = shownCount;
+            shownCount = count;
+            notifyItemRangeInserted(previous, count - previous);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return shownCount;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_plan_section, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.textView.setText(styledText(position));
+    }
+
+    private boolean isStale(int position) {
+        return position >= styledVersions.size()
+                || styledVersions.get(position) != renderer.getSection(position).getVersion();
+    }
+
+    private CharSequence styledText(int position) {
+        while (styled.size() <= position) {
+            styled.add(null);
+            styledVersions.add(-1);
+        }
+        if (isStale(position)) {
+            PlanMarkdownRenderer.Section section = renderer.getSection(position);
+            styled.set(position, toSpanned(section));
+            styledVersions.set(position, section.getVersion());
+        }
+        return styled.get(position);
+    }
+
+    /**
+     * Map the renderer's style ranges onto Android spans
+     */
+    private static CharSequence toSpanned(PlanMarkdownRenderer.Section section) {
+        int length = section.getVisibleLength();
+        SpannableString text = new SpannableString(section.getText().subSequence(0, length));
+        for (int[] span : section.getSpans()) {
+            int start = Math.min(span[0], length);
+            int end = Math.min(span[1], length);
+            if (start >= end) {
+                continue;
+            }
+            switch (span[2]) {
+                case PlanMarkdownRenderer.STYLE_BOLD:
+                    text.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case PlanMarkdownRenderer.STYLE_ITALIC:
+                    text.setSpan(new StyleSpan(Typeface.ITALIC), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case PlanMarkdownRenderer.STYLE_CODE:
+                    text.setSpan(new TypefaceSpan("monospace"), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case PlanMarkdownRenderer.STYLE_HEADING:
+                    text.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    text.setSpan(new RelativeSizeSpan(HEADING_SIZE), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case PlanMarkdownRenderer.STYLE_BULLET:
+                    text.setSpan(new BulletSpan(BULLET_GAP_PX), start, end, Spanned.SPAN_PARAGRAPH);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return text;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView textView;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            textView = itemView.findViewById(R.id.sectionTextView);
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.harsh.touristguardian;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Runs the planner's streamed chat-completion calls to the LLM provider.
+ *
+ * - Requests with the same key that are already running are merged: a late subscriber first
+ *   gets the text streamed so far, then the remaining tokens.
+ * - At most MAX_CONCURRENT requests run at once; the rest wait in a queue.
+ * - 429 and 5xx responses and network errors are retried with jittered exponential backoff
+ *   (RetryPolicy). Retry-After and the x-ratelimit-* headers pause every request until the
+ *   provider's limit resets, not just the one that was refused.
+ * - When hedging is on and no token arrived within the recent p95 time-to-first-token, one
+ *   duplicate request is sent; whichever streams first wins and the other is cancelled. A hedge
+ *   is a second billed completion and takes a concurrency slot of its own, so it is only sent
+ *   when a slot is free and nothing is queued.
+ *
+ * A request is only retried or hedged before its first token; after that the stream is committed.
+ * Listener methods run on background threads, in order per request and outside the scheduler lock.
+ * They still hold up that request's stream, so they should only hand the data off (e.g.
+ * runOnUiThread).
+ *
+ * Locking: a Job's monitor guards its listeners and text and is held while they are called; the
+ * scheduler lock guards everything else. When both are needed the Job's is taken first.
+ */
+public class PlannerRequestScheduler {
+
+    private static final String TAG = "PlannerScheduler";
+    private static final String STREAM_DONE = "[DONE]";
+    private static final int MAX_CONCURRENT = 2;
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    private static final double HEDGE_QUANTILE = 0.95;
+    private static final int LATENCY_WINDOW = 200;
+
+    /**
+     * Progress of one request
+     */
+    public interface Listener {
+        void onToken(String text);
+
+        void onComplete(String content);
+
+        /**
+         * code is the HTTP status, or 0 for network and stream errors
+         */
+        void onFailure(int code, String message);
+    }
+
+    private final OkHttpClient client;
+    private final RetryPolicy retryPolicy;
+    private final boolean hedgingEnabled;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    // Guarded by this (Job fields except listeners and text, see Job)
+    private final Map<String, Job> inFlight = new HashMap<>();
+    private final ArrayDeque<Job> waiting = new ArrayDeque<>();
+    private int running;
+    private long notBeforeElapsed;
+    private boolean pumpScheduled;
+
+    // Stats
+    private final LatencyStats queueWait = new LatencyStats(LATENCY_WINDOW);
+    private final LatencyStats firstToken = new LatencyStats(LATENCY_WINDOW);
+    private final LatencyStats endToEnd = new LatencyStats(LATENCY_WINDOW);
+    private long submitted;
+    private long coalesced;
+    private long retries;
+    private long hedgesSent;
+    private long hedgesWon;
+    private long failures;
+
+    public PlannerRequestScheduler(OkHttpClient client, boolean hedgingEnabled) {
+        this.client = client;
+        this.hedgingEnabled = hedgingEnabled;
+        this.retryPolicy = new RetryPolicy(3, 1000, 30_000, new Random());
+    }
+
+    /**
+     * Run the request, or join the running one with the same key
+     */
+    public void submit(String key, Request request, Listener listener) {
+        synchronized (this) {
+            submitted++;
+        }
+        while (true) {
+            Job job;
+            synchronized (this) {
+                job = inFlight.get(key);
+                if (job == null) {
+                    job = new Job(key, request);
+                    job.listeners.add(listener);
+                    inFlight.put(key, job);
+                    waiting.add(job);
+                    pump();
+                    return;
+                }
+            }
+            synchronized (job) {
+                synchronized (this) {
+                    if (job.done) {
+                        // Finished in between; look again
+                        continue;
+                    }
+                    coalesced++;
+                }
+                job.listeners.add(listener);
+                if (job.text.length() > 0) {
+                    listener.onToken(job.text.toString());
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop delivering to the listener; the request is cancelled once nobody listens
+     */
+    public void cancel(String key, Listener listener) {
+        Job job;
+        synchronized (this) {
+            job = inFlight.get(key);
+        }
+        if (job == null) {
+            return;
+        }
+        synchronized (job) {
+            if (!job.listeners.remove(listener) || !job.listeners.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                if (job.done) {
+                    return;
+                }
+                finish(job);
+                cancelCalls(job, null);
+                pump();
+            }
+        }
+    }
+
+    /**
+     * Start waiting jobs while there are free slots and the provider is not rate limiting us
+     */
+    private void pump() {
+        while (running < MAX_CONCURRENT && !waiting.isEmpty()) {
+            long wait = notBeforeElapsed - SystemClock.elapsedRealtime();
+            if (wait > 0) {
+                if (!pumpScheduled) {
+                    pumpScheduled = true;
+                    timer.schedule(() -> {
+                        synchronized (this) {
+                            pumpScheduled = false;
+                            pump();
+                        }
+                    }, wait, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            Job job = waiting.poll();
+            if (job.done) {
+                continue;
+            }
+            running++;
+            job.holdsSlot = true;
+            if (job.attempts == 0) {
+                queueWait.record(millisSince(job.submittedNanos));
+            }
+            startAttempt(job, false);
+        }
+    }
+
+    private void startAttempt(Job job, boolean hedge) {
+        Call call = client.newCall(job.request);
+        if (hedge) {
+            job.hedge = call;
+        } else {
+            job.primary = call;
+            job.primaryStartNanos = System.nanoTime();
+            job.attempts++;
+            scheduleHedge(job, call);
+        }
+        call.enqueue(new AttemptCallback(job));
+    }
+
+    private void scheduleHedge(Job job, Call primary) {
+        if (!hedgingEnabled || firstToken.size() < HEDGE_MIN_SAMPLES) {
+            return;
+        }
+        long delay = firstToken.percentile(HEDGE_QUANTILE);
+        job.hedgeTimer = timer.schedule(() -> {
+            synchronized (this) {
+                boolean rateLimited = SystemClock.elapsedRealtime() < notBeforeElapsed;
+                boolean busy = running >= MAX_CONCURRENT || !waiting.isEmpty();
+                if (job.done || job.winner != null || job.hedge != null || job.primary != primary || rateLimited || busy) {
+                    return;
+                }
+                running++;
+                job.hedgeHoldsSlot = true;
+                hedgesSent++;
+                startAttempt(job, true);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private class AttemptCallback implements Callback {
+        private final Job job;
+
+        AttemptCallback(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            attemptFailed(job, call, 0, "Network Error: " + e.getMessage(), -1);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            try (ResponseBody body = response.body()) {
+                long serverDelay = updateRateLimit(response);
+                if (!response.isSuccessful()) {
+                    String error = body != null ? body.string() : "";
+                    attemptFailed(job, call, response.code(), error, serverDelay);
+                    return;
+                }
+                if (body == null) {
+                    attemptFailed(job, call, 0, "Empty response", -1);
+                    return;
+                }
+                readStream(job, call, new SseEventReader(body.byteStream()));
+            } catch (IOException | JSONException e) {
+                attemptFailed(job, call, 0, "Error reading response: " + e.getMessage(), -1);
+            }
+        }
+    }
+
+    private void readStream(Job job, Call call, SseEventReader events) throws IOException, JSONException {
+        String data;
+        while ((data = events.nextData()) != null) {
+            if (STREAM_DONE.equals(data)) {
+                synchronized (job) {
+                    synchronized (this) {
+                        if (job.done || (job.winner != call && (job.winner != null || job.text.length() > 0))) {
+                            return;
+                        }
+                        complete(job);
+                    }
+                    String content = job.text.toString();
+                    for (Listener listener : job.listeners) {
+                        listener.onComplete(content);
+                    }
+                }
+                return;
+            }
+            String token = GroqResponses.parseToken(data);
+            if (token.isEmpty()) {
+                continue;
+            }
+            synchronized (job) {
+                synchronized (this) {
+                    if (job.done || (job.winner != null && job.winner != call)) {
+                        return;
+                    }
+                    if (job.winner == null) {
+                        claim(job, call);
+                    }
+                }
+                job.text.append(token);
+                for (Listener listener : job.listeners) {
+                    listener.onToken(token);
+                }
+            }
+        }
+        attemptFailed(job, call, 0, "Error reading response: stream ended early", -1);
+    }
+
+    /**
+     * The first attempt to stream a token wins; the other one is cancelled
+     */
+    private void claim(Job job, Call call) {
+        job.winner = call;
+        firstToken.record(millisSince(job.primaryStartNanos));
+        if (call == job.hedge) {
+            hedgesWon++;
+        }
+        cancelCalls(job, call);
+        releaseHedgeSlot(job);
+        pump();
+    }
+
+    private void attemptFailed(Job job, Call call, int code, String message, long serverDelay) {
+        synchronized (job) {
+            if (!retryOrFail(job, call, code, message, serverDelay)) {
+                return;
+            }
+            for (Listener listener : job.listeners) {
+                listener.onFailure(code, message);
+            }
+        }
+    }
+
+    /**
+     * Retry, wait for the other attempt or give up; returns true when the job failed
+     */
+    private synchronized boolean retryOrFail(Job job, Call call, int code, String message, long serverDelay) {
+        if (job.done || (job.winner != null && job.winner != call)) {
+            return false;
+        }
+        if (job.winner == call) {
+            // Tokens were already shown; a retry would produce a different plan
+            fail(job);
+            return true;
+        }
+
+        // The other attempt (primary or hedge) may still succeed
+        if (call == job.primary) {
+            job.primary = null;
+        } else if (call == job.hedge) {
+            job.hedge = null;
+        }
+        if (job.primary != null || job.hedge != null) {
+            // Down to one call again
+            releaseHedgeSlot(job);
+            pump();
+            return false;
+        }
+
+        boolean retryable = code == 0 || RetryPolicy.isRetryable(code);
+        if (!retryable || job.attempts > retryPolicy.getMaxRetries()) {
+            fail(job);
+            return true;
+        }
+
+        retries++;
+        long delay = retryPolicy.delayMillis(job.attempts, serverDelay);
+        if (code == 429) {
+            notBeforeElapsed = Math.max(notBeforeElapsed, SystemClock.elapsedRealtime() + delay);
+        }
+        Log.w(TAG, "Retry " + job.attempts + " for " + job.key + " in " + delay + " ms (" + (code == 0 ? message : "HTTP " + code) + ")");
+        releaseSlot(job);
+        timer.schedule(() -> {
+            synchronized (this) {
+                if (!job.done) {
+                    waiting.addFirst(job);
+                    pump();
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        pump();
+        return false;
+    }
+
+    /**
+     * Honour Retry-After and x-ratelimit-* headers; returns the server-requested delay or -1
+     */
+    private synchronized long updateRateLimit(Response response) {
+        long delay = RetryPolicy.parseRetryAfterMillis(response.header("Retry-After"), System.currentTimeMillis());
+        if ("0".equals(response.header("x-ratelimit-remaining-requests"))) {
+            delay = Math.max(delay, RetryPolicy.parseDurationMillis(response.header("x-ratelimit-reset-requests")));
+        }
+        if ("0".equals(response.header("x-ratelimit-remaining-tokens"))) {
+            delay = Math.max(delay, RetryPolicy.parseDurationMillis(response.header("x-ratelimit-reset-tokens")));
+        }
+        if (delay > 0) {
+            notBeforeElapsed = Math.max(notBeforeElapsed, SystemClock.elapsedRealtime() + delay);
+        }
+        return delay;
+    }
+
+    /**
+     * Finish a streamed job; the caller notifies the listeners after leaving the scheduler lock
+     */
+    private void complete(Job job) {
+        finish(job);
+        cancelCalls(job, job.winner);
+        endToEnd.record(millisSince(job.submittedNanos));
+        Log.i(TAG, getStatsSummary());
+        pump();
+    }
+
+    private void fail(Job job) {
+        finish(job);
+        failures++;
+        cancelCalls(job, null);
+        Log.i(TAG, getStatsSummary());
+        pump();
+    }
+
+    private void finish(Job job) {
+        job.done = true;
+        inFlight.remove(job.key);
+        waiting.remove(job);
+        releaseSlot(job);
+        if (job.hedgeTimer != null) {
+            job.hedgeTimer.cancel(false);
+        }
+    }
+
+    private void releaseSlot(Job job) {
+        if (job.holdsSlot) {
+            job.holdsSlot = false;
+            running--;
+        }
+        releaseHedgeSlot(job);
+    }
+
+    private void releaseHedgeSlot(Job job) {
+        if (job.hedgeHoldsSlot) {
+            job.hedgeHoldsSlot = false;
+            running--;
+        }
+    }
+
+    private static void cancelCalls(Job job, Call keep) {
+        if (job.primary != null && job.primary != keep) {
+            job.primary.cancel();
+        }
+        if (job.hedge != null && job.hedge != keep) {
+            job.hedge.cancel();
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Queue wait, time to first token and end-to-end percentiles plus retry/hedge counts
+     */
+    public synchronized String getStatsSummary() {
+        return String.format(Locale.US, "requests=%d coalesced=%d retries=%d hedges=%d (won %d) failures=%d"
+                        + " queueWait p50=%d p99=%d ms, firstToken p50=%d p95=%d ms, endToEnd p50=%d p99=%d ms",
+                submitted, coalesced, retries, hedgesSent, hedgesWon, failures,
+                queueWait.percentile(0.5), queueWait.percentile(0.99),
+                firstToken.percentile(0.5), firstToken.percentile(0.95),
+                endToEnd.percentile(0.5), endToEnd.percentile(0.99));
+    }
+
+    private static class Job {
+        final String key;
+        final Request request;
+        // Guarded by the Job itself
+        final List<Listener> listeners = new ArrayList<>();
+        final StringBuilder text = new StringBuilder();
+        final long submittedNanos = System.nanoTime();
+        int attempts;
+        long primaryStartNanos;
+        Call primary;
+        Call hedge;
+        Call winner;
+        boolean holdsSlot;
+        // A second slot, taken while a hedge runs next to the primary
+        boolean hedgeHoldsSlot;
+        boolean done;
+        ScheduledFuture<?> hedgeTimer;
+
+        Job(String key, Request request) {
+            this.key = key;
+            this.request = request;
+        }
+    }
+}
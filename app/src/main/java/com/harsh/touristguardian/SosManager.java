@@ -0,0 +1,171 @@
+package com.harsh.touristguardian;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.Locale;
+
+/**
+ * SOS fast path.
+ *
+ * While armed it keeps the latest fix (LocationEngine, warmed by the geofence service) and the
+ * alert text built from it, so a tap only has to start the dialer and the share sheet: nothing
+ * waits for GPS. The alert is queued in the SosOutbox for Users/$uid/sos with the fix at hand, and
+ * for REFINE_WINDOW_MILLIS afterwards clearly better fixes are queued as updates of its position
+ * while GPS is kept on. The outbox delivers them even if the user is offline right now.
+ *
+ * Tap-to-dispatch latency is recorded for every SOS. Main thread only.
+ */
+public class SosManager {
+
+    private static final String TAG = "SosManager";
+    private static final String EMERGENCY_NUMBER = "112"; // Emergency number (112 in India)
+    private static final long REFINE_WINDOW_MILLIS = 2 * 60 * 1000;
+    private static final int LATENCY_WINDOW = 50;
+
+    private static volatile SosManager instance;
+
+    private final LocationEngine locationEngine;
+    private final SosOutbox outbox;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LatencyStats dispatchLatency = new LatencyStats(LATENCY_WINDOW);
+    private final Intent dialIntent = new Intent(Intent.ACTION_DIAL, Uri.parse("tel:" + EMERGENCY_NUMBER));
+    private boolean armed;
+
+    // Alert text for the latest fix, rebuilt whenever a fix arrives
+    private Location preparedFix;
+    private String preparedMessage = SosAlert.buildMessage(false, 0, 0, 0);
+
+    // Alert being refined
+    private SosAlert activeAlert;
+    private String activeUid;
+
+    private final LocationEngine.Listener prepareListener = this::prepare;
+    private final LocationEngine.Listener refineListener = this::refine;
+    private final LocationEngine.FixCallback warmUpCallback = location -> { };
+    private final LocationEngine.FixCallback preciseCallback = location -> { };
+    private final Runnable endRefinement = this::endRefinement;
+
+    public static SosManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SosManager.class) {
+                if (instance == null) {
+                    instance = new SosManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private SosManager(Context context) {
+        locationEngine = LocationEngine.getInstance(context);
+        outbox = SosOutbox.getInstance(context);
+    }
+
+    /**
+     * Keep a warm position and a ready alert (call once location permission is granted)
+     */
+    public void arm() {
+        if (armed) {
+            return;
+        }
+        armed = true;
+        locationEngine.addListener(prepareListener);
+        Location last = locationEngine.getLastFix();
+        if (last != null) {
+            prepare(last);
+        } else {
+            locationEngine.requestFix(LocationEngine.Purpose.SOS, warmUpCallback);
+        }
+    }
+
+    public void disarm() {
+        armed = false;
+        locationEngine.removeListener(prepareListener);
+        locationEngine.cancel(warmUpCallback);
+        endRefinement();
+    }
+
+    /**
+     * Dispatch the call and alert now with the best fix at hand; tapUptimeMillis is when the user tapped
+     */
+    public void trigger(Activity activity, long tapUptimeMillis) {
+        Location fix = locationEngine.getLastFix();
+        if (fix != null && fix != preparedFix) {
+            prepare(fix);
+        }
+
+        activity.startActivity(dialIntent);
+        Intent shareIntent = new Intent(Intent.ACTION_SEND);
+        shareIntent.setType("text/plain");
+        shareIntent.putExtra(Intent.EXTRA_TEXT, preparedMessage);
+        shareIntent.putExtra(Intent.EXTRA_SUBJECT, "SOS Emergency - Help Needed");
+        activity.startActivity(Intent.createChooser(shareIntent, "Share SOS Alert"));
+
+        long latency = SystemClock.uptimeMillis() - tapUptimeMillis;
+        dispatchLatency.record(latency);
+        Log.i(TAG, String.format(Locale.US, "SOS dispatched %d ms after tap (fix %s), p50=%d p99=%d ms over %d",
+                latency, describe(fix), dispatchLatency.percentile(0.5), dispatchLatency.percentile(0.99),
+                dispatchLatency.size()));
+
+        // Store the alert, then keep improving its position in the background
+        endRefinement();
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        activeUid = user != null ? user.getUid() : null;
+        activeAlert = new SosAlert(outbox.newAlertId(), System.currentTimeMillis());
+        if (fix != null) {
+            activeAlert.offerFix(fix.getLatitude(), fix.getLongitude(), fix.getAccuracy(), fix.getTime());
+        }
+        if (activeUid != null) {
+            outbox.enqueue(activeUid, activeAlert.getId(), activeAlert.toMap());
+        }
+        locationEngine.addListener(refineListener);
+        locationEngine.requestFix(LocationEngine.Purpose.SOS_PRECISE, preciseCallback);
+        mainHandler.postDelayed(endRefinement, REFINE_WINDOW_MILLIS);
+    }
+
+    private void prepare(Location fix) {
+        preparedFix = fix;
+        preparedMessage = SosAlert.buildMessage(true, fix.getLatitude(), fix.getLongitude(), fix.getAccuracy());
+    }
+
+    private void refine(Location fix) {
+        if (activeAlert == null
+                || !activeAlert.offerFix(fix.getLatitude(), fix.getLongitude(), fix.getAccuracy(), fix.getTime())) {
+            return;
+        }
+        if (activeUid != null) {
+            outbox.enqueue(activeUid, activeAlert.getId(), activeAlert.locationFields());
+        }
+        Log.i(TAG, "SOS " + activeAlert.getId() + " refined to " + describe(fix));
+    }
+
+    private void endRefinement() {
+        mainHandler.removeCallbacks(endRefinement);
+        locationEngine.removeListener(refineListener);
+        locationEngine.cancel(preciseCallback);
+        if (activeAlert != null) {
+            Log.i(TAG, "SOS " + activeAlert.getId() + " refinement ended after " + activeAlert.getRefinements() + " updates");
+        }
+        activeAlert = null;
+        activeUid = null;
+    }
+
+    private static String describe(Location fix) {
+        if (fix == null) {
+            return "none";
+        }
+        long ageMillis = (SystemClock.elapsedRealtimeNanos() - fix.getElapsedRealtimeNanos()) / 1_000_000;
+        return String.format(Locale.US, "±%.0f m, %d s old", fix.getAccuracy(), ageMillis / 1000);
+    }
+}
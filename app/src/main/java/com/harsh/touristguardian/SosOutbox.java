@@ -0,0 +1,244 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store-and-forward delivery of SOS alerts to the Realtime Database.
+ *
+ * enqueue() appends the event to a SosJournal (fsync'ed) on a background thread; a replicator on
+ * the same thread then sends pending events as one multi-path updateChildren() whenever the
+ * database is connected (.info/connected), and acks them in the journal when the server confirms.
+ * Event ids are fixed when the event is created, so a batch re-sent after a crash or a failed write
+ * lands on the same nodes. Events of a user who is no longer signed in wait until they are.
+ *
+ * Enqueue latency (to durable), queue depth and replication lag (event creation to server ack)
+ * are logged.
+ */
+public class SosOutbox {
+
+    private static final String TAG = "SosOutbox";
+    private static final String JOURNAL_FILE = "sos.journal";
+    private static final int MAX_BATCH = 50;
+    private static final long RETRY_DELAY_MILLIS = 30_000;
+    private static final int LATENCY_WINDOW = 100;
+
+    private static volatile SosOutbox instance;
+
+    private final File journalFile;
+    private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+    private final Random random = new Random();
+
+    // Only touched on the io thread
+    private SosJournal journal;
+    private boolean batchInFlight;
+    private boolean retryScheduled;
+
+    private volatile boolean connected;
+    // Set once on the main thread, read on the io thread
+    private volatile FirebaseDatabase database;
+    // Main thread only
+    private boolean started;
+
+    // Stats
+    private final LatencyStats enqueueMillis = new LatencyStats(LATENCY_WINDOW);
+    private final LatencyStats lagMillis = new LatencyStats(LATENCY_WINDOW);
+    private long replicated;
+
+    private final ValueEventListener connectionListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            connected = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+            if (connected) {
+                io.execute(SosOutbox.this::drain);
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.w(TAG, "Connection state unavailable: " + error.getMessage());
+        }
+    };
+
+    public static SosOutbox getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SosOutbox.class) {
+                if (instance == null) {
+                    instance = new SosOutbox(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private SosOutbox(Context context) {
+        journalFile = new File(context.getFilesDir(), JOURNAL_FILE);
+    }
+
+    /**
+     * Open the journal and start replicating (main thread; events left from earlier runs go first)
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        database = TouristGuardianApplication.getDatabase();
+        if (database != null) {
+            database.getReference(".info/connected").addValueEventListener(connectionListener);
+        } else {
+            Log.w(TAG, "SOS alerts stay on the device");
+        }
+        io.execute(() -> {
+            if (openJournal() && journal.getPendingCount() > 0) {
+                Log.i(TAG, journal.getPendingCount() + " SOS events left from a previous run");
+            }
+        });
+    }
+
+    /**
+     * New id for an alert (sorts by time, safe as a database key)
+     */
+    public String newAlertId() {
+        return SosJournal.newId(System.currentTimeMillis(), random);
+    }
+
+    /**
+     * Durably queue a change to Users/$uid/sos/$alertId for delivery
+     */
+    public void enqueue(String uid, String alertId, Map<String, Object> fields) {
+        long start = System.nanoTime();
+        long createdAt = System.currentTimeMillis();
+        String eventId = SosJournal.newId(createdAt, random);
+        SosJournal.Event event = new SosJournal.Event(eventId, uid, alertId, createdAt, fields);
+        io.execute(() -> {
+            if (!openJournal()) {
+                return;
+            }
+            try {
+                journal.append(event);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not journal SOS event " + eventId, e);
+                return;
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            enqueueMillis.record(millis);
+            Log.i(TAG, String.format(Locale.US, "SOS event %s journaled in %d ms (p50=%d p99=%d), queue depth %d",
+                    eventId, millis, enqueueMillis.percentile(0.5), enqueueMillis.percentile(0.99),
+                    journal.getPendingCount()));
+            drain();
+        });
+    }
+
+    private boolean openJournal() {
+        if (journal != null) {
+            return true;
+        }
+        try {
+            journal = new SosJournal(journalFile);
+            if (journal.getDroppedBytes() > 0) {
+                Log.w(TAG, "Dropped " + journal.getDroppedBytes() + " bytes of a torn journal record");
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not open SOS journal", e);
+            return false;
+        }
+    }
+
+    /**
+     * Send the next batch if connected and nothing is in flight (io thread)
+     */
+    private void drain() {
+        if (batchInFlight || !connected || database == null || !openJournal()) {
+            return;
+        }
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return;
+        }
+
+        List<SosJournal.Event> batch = new ArrayList<>();
+        for (SosJournal.Event event : journal.getPending()) {
+            if (event.getUid().equals(user.getUid())) {
+                batch.add(event);
+                if (batch.size() == MAX_BATCH) {
+                    break;
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Later events overwrite earlier ones for the same field, as if applied in order
+        Map<String, Object> update = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (SosJournal.Event event : batch) {
+            event.putUpdates(update);
+            ids.add(event.getId());
+        }
+        batchInFlight = true;
+        long sentAt = System.nanoTime();
+        database.getReference().updateChildren(update, (error, ref) -> io.execute(() -> {
+            batchInFlight = false;
+            if (error != null) {
+                Log.w(TAG, "SOS batch of " + batch.size() + " failed: " + error.getMessage());
+                scheduleRetry();
+                return;
+            }
+            onReplicated(batch, ids, (System.nanoTime() - sentAt) / 1_000_000);
+            drain();
+        }));
+    }
+
+    private void onReplicated(List<SosJournal.Event> batch, List<String> ids, long writeMillis) {
+        try {
+            journal.markReplicated(ids);
+        } catch (IOException e) {
+            // Events will be sent again; the writes are idempotent
+            Log.w(TAG, "Could not ack SOS events", e);
+        }
+        long now = System.currentTimeMillis();
+        for (SosJournal.Event event : batch) {
+            lagMillis.record(now - event.getCreatedAt());
+        }
+        replicated += batch.size();
+        Log.i(TAG, String.format(Locale.US, "Replicated %d SOS events in %d ms; lag p50=%d p99=%d ms, queue depth %d, total %d",
+                batch.size(), writeMillis, lagMillis.percentile(0.5), lagMillis.percentile(0.99),
+                journal.getPendingCount(), replicated));
+    }
+
+    private void scheduleRetry() {
+        if (retryScheduled) {
+            return;
+        }
+        retryScheduled = true;
+        io.schedule(() -> {
+            retryScheduled = false;
+            drain();
+        }, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -22,9 +22,19 @@ public class SplashActivity extends AppCompatActivity {
         // Called when the activity is created. Sets up the splash screen, Lottie animation, and navigation to LoginActivity after animation.
         SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
 
-        splashScreen.setKeepOnScreenCondition(() -> !isAnimationReady);
-
         super.onCreate(savedInstanceState);
+        StartupTrace.mark("splash_created");
+
+        // Signed-in users go straight to the map (it is already loading, see StartupOrchestrator);
+        // the animation is only played before login
+        if (((TouristGuardianApplication) getApplication()).getStartupOrchestrator().isSignedIn()) {
+            StartupTrace.mark("splash_skipped_signed_in");
+            startActivity(new Intent(this, MainActivity.class));
+            finish();
+            return;
+        }
+
+        splashScreen.setKeepOnScreenCondition(() -> !isAnimationReady);
 
         setContentView(R.layout.activity_splash);
 
@@ -0,0 +1,161 @@
+package com.harsh.touristguardian;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cold-start work, run side by side instead of one screen after another.
+ *
+ * start() is called from Application.onCreate. It initializes FirebaseApp right away (cached auth
+ * state needs it, see isSignedIn()) and then runs the phases in parallel: loading the last map
+ * snapshot, Realtime Database setup, zone data loading and location client warm-up on background
+ * threads, WebView warm-up on the main thread once it is idle (a WebView can only be created
+ * there). Each phase is timed with StartupTrace, and the timeline is logged when the last one
+ * finishes.
+ *
+ * Code that depends on a phase waits for it with whenDone().
+ */
+public class StartupOrchestrator {
+
+    private static final String TAG = "StartupOrchestrator";
+    private static final long PERSISTENCE_CACHE_BYTES = 50L * 1024 * 1024;
+
+    public static final String PHASE_SNAPSHOT = "map_snapshot";
+    public static final String PHASE_DATABASE = "database_init";
+    public static final String PHASE_ZONES = "zone_data";
+    public static final String PHASE_LOCATION = "location_client";
+    public static final String PHASE_WEBVIEW = "webview_warmup";
+    private static final int PHASE_COUNT = 5;
+
+    private final Application application;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private final Set<String> finished = new HashSet<>();
+    private final Map<String, List<Runnable>> waiting = new HashMap<>();
+    private boolean started;
+
+    public StartupOrchestrator(Application application) {
+        this.application = application;
+    }
+
+    /**
+     * Kick off every startup phase (main thread, once)
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        // The google-services plugin usually does this from its content provider; it must be done
+        // before FirebaseAuth reads the signed-in user
+        if (FirebaseApp.getApps(application).isEmpty()) {
+            FirebaseApp.initializeApp(application);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        // First: it is what a returning user sees before anything else
+        executor.execute(() -> runPhase(PHASE_SNAPSHOT, () -> MapSnapshotStore.getInstance(application).load()));
+        executor.execute(() -> runPhase(PHASE_DATABASE, this::initDatabase));
+        executor.execute(() -> runPhase(PHASE_ZONES, () -> DangerZoneRepository.getInstance(application)));
+        executor.execute(() -> runPhase(PHASE_LOCATION, () -> LocationEngine.getInstance(application).warmUp()));
+        // Threads exit once the phases are done
+        executor.shutdown();
+
+        // Once the main thread first runs out of work, which is usually after the first activity
+        // has drawn, though nothing guarantees it
+        Looper.myQueue().addIdleHandler(() -> {
+            runPhase(PHASE_WEBVIEW, () -> ((TouristGuardianApplication) application).getMapHost().prewarm());
+            return false;
+        });
+    }
+
+    /**
+     * Whether a user is signed in, from Firebase Auth's on-disk state (no network)
+     */
+    public boolean isSignedIn() {
+        return FirebaseAuth.getInstance().getCurrentUser() != null;
+    }
+
+    /**
+     * Run the action on the main thread once the phase has finished (right away if it has)
+     */
+    public void whenDone(String phase, Runnable action) {
+        if (finished.contains(phase)) {
+            action.run();
+            return;
+        }
+        List<Runnable> actions = waiting.get(phase);
+        if (actions == null) {
+            actions = new ArrayList<>();
+            waiting.put(phase, actions);
+        }
+        actions.add(action);
+    }
+
+    private void runPhase(String phase, Runnable work) {
+        StartupTrace.beginPhase(phase);
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            // Whatever the phase prepares is created again on first use
+            Log.e(TAG, "Startup phase " + phase + " failed", e);
+        }
+        StartupTrace.endPhase(phase);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            onPhaseFinished(phase);
+        } else {
+            mainHandler.post(() -> onPhaseFinished(phase));
+        }
+    }
+
+    private void onPhaseFinished(String phase) {
+        finished.add(phase);
+        List<Runnable> actions = waiting.remove(phase);
+        if (actions != null) {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+        if (finished.size() == PHASE_COUNT) {
+            StartupTrace.logTimeline();
+        }
+    }
+
+    /**
+     * Disk persistence for synced data, then the SOS outbox
+     */
+    private void initDatabase() {
+        // Keep a disk copy of synced data (the Zones tree) so it is available offline and on
+        // cold start. Must run before any other FirebaseDatabase call.
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (database != null) {
+            try {
+                database.setPersistenceEnabled(true);
+                database.setPersistenceCacheSizeBytes(PERSISTENCE_CACHE_BYTES);
+            } catch (Exception e) {
+                Log.w(TAG, "Realtime Database persistence not enabled", e);
+            }
+        }
+
+        // Deliver SOS alerts left in the outbox by an earlier run (offline, crash); start() is
+        // main-thread only
+        mainHandler.post(() -> SosOutbox.getInstance(application).start());
+    }
+}
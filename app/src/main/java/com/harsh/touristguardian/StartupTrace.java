@@ -0,0 +1,137 @@
+package com.harsh.touristguardian;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Startup timing probe. Records named milestones as milliseconds since the process started and
+ * logs them under the "StartupTrace" tag, so cold-start changes can be compared with logcat.
+ *
+ * Phases (beginPhase/endPhase) additionally record a duration and the thread they ran on;
+ * logTimeline() prints them ordered by start time, which shows what overlapped.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+    private static final int TIMELINE_WIDTH = 40;
+
+    private static final Map<String, Long> marks = new HashMap<>();
+    private static final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Record a milestone (only the first occurrence of each name is kept)
+     */
+    public static synchronized long mark(String name) {
+        Long existing = marks.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        long sinceStart = sinceStart();
+        marks.put(name, sinceStart);
+        Log.i(TAG, name + " at " + sinceStart + " ms");
+        return sinceStart;
+    }
+
+    /**
+     * Start timing a phase on the calling thread (only the first start of each name is kept)
+     */
+    public static synchronized void beginPhase(String name) {
+        if (!phases.containsKey(name)) {
+            phases.put(name, new Phase(name, sinceStart(), Thread.currentThread().getName()));
+        }
+    }
+
+    /**
+     * Finish a phase and log its duration; returns it in ms, or -1 if the phase was not started
+     */
+    public static synchronized long endPhase(String name) {
+        Phase phase = phases.get(name);
+        if (phase == null) {
+            return -1;
+        }
+        if (phase.end < 0) {
+            phase.end = sinceStart();
+            Log.i(TAG, String.format(Locale.US, "phase %s: %d ms (%d -> %d ms, %s)",
+                    name, phase.end - phase.start, phase.start, phase.end, phase.thread));
+        }
+        return phase.end - phase.start;
+    }
+
+    /**
+     * Log every phase ordered by start time, with a bar showing how they overlap
+     */
+    public static void logTimeline() {
+        List<Phase> ordered;
+        synchronized (StartupTrace.class) {
+            ordered = new ArrayList<>(phases.values());
+        }
+        ordered.sort((a, b) -> Long.compare(a.start, b.start));
+        if (ordered.isEmpty()) {
+            return;
+        }
+        // Bars span from the first phase start to the last phase end
+        long first = ordered.get(0).start;
+        long span = 1;
+        for (Phase phase : ordered) {
+            span = Math.max(span, (phase.end >= 0 ? phase.end : phase.start) - first);
+        }
+        StringBuilder timeline = new StringBuilder("Startup timeline (start ms since process start, duration ms):");
+        for (Phase phase : ordered) {
+            int from = (int) Math.min(TIMELINE_WIDTH - 1, (phase.start - first) * TIMELINE_WIDTH / span);
+            int to = phase.end >= 0
+                    ? Math.max(from + 1, (int) ((phase.end - first) * TIMELINE_WIDTH / span))
+                    : TIMELINE_WIDTH;
+            timeline.append(String.format(Locale.US, "%n  %-18s %5d %5s |", phase.name, phase.start,
+                    phase.end >= 0 ? String.valueOf(phase.end - phase.start) : "..."));
+            for (int i = 0; i < TIMELINE_WIDTH; i++) {
+                timeline.append(i >= from && i < to ? '#' : ' ');
+            }
+            timeline.append("| ").append(phase.thread);
+        }
+        Log.i(TAG, timeline.toString());
+    }
+
+    private static long sinceStart() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+
+    /**
+     * Log the time between two milestones under a readable label
+     */
+    public static void report(String label, String from, String to) {
+        Log.i(TAG, label + ": " + between(from, to) + " ms (" + from + " -> " + to + ")");
+    }
+
+    /**
+     * Milliseconds between two recorded milestones, or -1 if either is missing
+     */
+    public static synchronized long between(String from, String to) {
+        Long start = marks.get(from);
+        Long end = marks.get(to);
+        return start != null && end != null ? end - start : -1;
+    }
+
+    private static class Phase {
+        final String name;
+        final long start;
+        final String thread;
+        long end = -1;
+
+        Phase(String name, long start, String thread) {
+            this.name = name;
+            this.start = start;
+            this.thread = thread;
+        }
+    }
+}
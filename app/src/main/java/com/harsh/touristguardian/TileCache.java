@@ -0,0 +1,291 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Disk-backed store for OpenStreetMap tiles, served to the map WebView through
+ * WebViewClient.shouldInterceptRequest.
+ *
+ * Tiles are stored as files under tiles/z/x/y.png (the z and x directories shard the store) and
+ * tracked in an in-memory LRU index that evicts the least recently used tiles once the store
+ * grows past MAX_CACHE_BYTES. A cached tile is served without touching the network; only a miss
+ * or a tile older than MAX_TILE_AGE_MILLIS is fetched, and a stale tile still wins when offline.
+ */
+public class TileCache {
+
+    private static final String TAG = "TileCache";
+    private static final String TILE_DIR = "tiles";
+    private static final long MAX_CACHE_BYTES = 200L * 1024 * 1024;
+    private static final long MAX_TILE_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final int STATS_LOG_EVERY = 200;
+    // Tiles are stored by this class; keep them out of the shared HTTP cache
+    private static final CacheControl NO_STORE = new CacheControl.Builder().noStore().build();
+    private static final Pattern TILE_URL = Pattern.compile(
+            "^https://[a-c]\\.tile\\.openstreetmap\\.org/(\\d+)/(\\d+)/(\\d+)\\.png$");
+
+    private static volatile TileCache instance;
+
+    private final File root;
+    private final OkHttpClient httpClient;
+    // key "z/x/y" -> size in bytes, least recently used first
+    private final LinkedHashMap<String, Long> lruIndex = new LinkedHashMap<>(1024, 0.75f, true);
+    private boolean indexLoaded;
+    private long totalBytes;
+
+    // Stats
+    private long hits;
+    private long misses;
+    private long networkErrors;
+    private long hitNanos;
+    private long missNanos;
+
+    public static TileCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TileCache.class) {
+                if (instance == null) {
+                    instance = new TileCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private TileCache(Context context) {
+        root = new File(context.getFilesDir(), TILE_DIR);
+        httpClient = HttpStack.get(context).withTimeouts(10_000, 15_000);
+    }
+
+    /**
+     * Serve a tile request from disk (fetching and storing it on a miss).
+     * Returns null for URLs that are not map tiles.
+     */
+    public WebResourceResponse intercept(String url) {
+        Matcher matcher = TILE_URL.matcher(url);
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        String key = matcher.group(1) + "/" + matcher.group(2) + "/" + matcher.group(3);
+        File file = new File(root, key + ".png");
+
+        boolean cached;
+        synchronized (this) {
+            ensureIndexLoaded();
+            // get() also moves the tile to the most recently used end
+            cached = lruIndex.get(key) != null;
+        }
+
+        if (cached && System.currentTimeMillis() - file.lastModified() < MAX_TILE_AGE_MILLIS) {
+            WebResourceResponse response = fileResponse(file);
+            if (response != null) {
+                recordRequest(true, System.nanoTime() - start);
+                return response;
+            }
+        }
+
+        byte[] tile = download(url);
+        if (tile != null) {
+            store(key, file, tile);
+            recordRequest(false, System.nanoTime() - start);
+            return tileResponse(new ByteArrayInputStream(tile));
+        }
+
+        // Offline: a stale tile is better than a blank map
+        if (cached) {
+            WebResourceResponse response = fileResponse(file);
+            if (response != null) {
+                recordRequest(true, System.nanoTime() - start);
+                return response;
+            }
+        }
+        recordRequest(false, System.nanoTime() - start);
+        return new WebResourceResponse("image/png", null, 504, "Offline", corsHeaders(), new ByteArrayInputStream(new byte[0]));
+    }
+
+    private byte[] download(String url) {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", "TouristGuardian/1.0 (Android)")
+                .cacheControl(NO_STORE)
+                .build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                synchronized (this) {
+                    networkErrors++;
+                }
+                return null;
+            }
+            return body.bytes();
+        } catch (IOException e) {
+            synchronized (this) {
+                networkErrors++;
+            }
+            return null;
+        }
+    }
+
+    private void store(String key, File file, byte[] tile) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            return;
+        }
+        // Write to a temp file first so a crash never leaves a truncated tile behind; each write
+        // gets its own, as several WebView threads may fetch the same tile at once
+        File temp;
+        try {
+            temp = File.createTempFile(file.getName(), ".tmp", parent);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to store tile " + key, e);
+            return;
+        }
+        try (OutputStream output = new FileOutputStream(temp)) {
+            output.write(tile);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to store tile " + key, e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            Long previous = lruIndex.put(key, (long) tile.length);
+            totalBytes += tile.length - (previous != null ? previous : 0);
+            evictIfNeeded();
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> iterator = lruIndex.entrySet().iterator();
+        while (totalBytes > MAX_CACHE_BYTES && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(root, eldest.getKey() + ".png").delete();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Rebuild the LRU index from disk, oldest tiles first (recency across restarts is
+     * approximated by download time)
+     */
+    private void ensureIndexLoaded() {
+        if (indexLoaded) {
+            return;
+        }
+        indexLoaded = true;
+
+        List<File> files = new ArrayList<>();
+        collectTiles(root, files);
+        Map<File, Long> modified = new HashMap<>();
+        for (File file : files) {
+            modified.put(file, file.lastModified());
+        }
+        files.sort((a, b) -> Long.compare(modified.get(a), modified.get(b)));
+
+        int rootLength = root.getPath().length() + 1;
+        for (File file : files) {
+            String path = file.getPath();
+            String key = path.substring(rootLength, path.length() - ".png".length());
+            lruIndex.put(key, file.length());
+            totalBytes += file.length();
+        }
+        evictIfNeeded();
+        Log.d(TAG, "Tile index loaded: " + lruIndex.size() + " tiles, " + totalBytes / 1024 + " KB");
+    }
+
+    private static void collectTiles(File dir, List<File> out) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectTiles(child, out);
+            } else if (child.getName().endsWith(".png")) {
+                out.add(child);
+            } else {
+                // Leftover temp file from an interrupted write
+                child.delete();
+            }
+        }
+    }
+
+    private static WebResourceResponse fileResponse(File file) {
+        try {
+            InputStream input = new FileInputStream(file);
+            return tileResponse(input);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static WebResourceResponse tileResponse(InputStream input) {
+        return new WebResourceResponse("image/png", null, 200, "OK", corsHeaders(), input);
+    }
+
+    private static Map<String, String> corsHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Access-Control-Allow-Origin", "*");
+        headers.put("Cache-Control", "max-age=86400");
+        return headers;
+    }
+
+    private synchronized void recordRequest(boolean hit, long nanos) {
+        if (hit) {
+            hits++;
+            hitNanos += nanos;
+        } else {
+            misses++;
+            missNanos += nanos;
+        }
+        if ((hits + misses) % STATS_LOG_EVERY == 0) {
+            Log.i(TAG, getStatsSummary());
+        }
+    }
+
+    /**
+     * Hit rate, average hit/miss latency and disk usage
+     */
+    public synchronized String getStatsSummary() {
+        long total = hits + misses;
+        return String.format(Locale.US, "tiles=%d hitRate=%.1f%% hit=%.2f ms miss=%.1f ms errors=%d cached=%d (%d KB)",
+                total,
+                total == 0 ? 0 : hits * 100.0 / total,
+                hits == 0 ? 0 : hitNanos / 1e6 / hits,
+                misses == 0 ? 0 : missNanos / 1e6 / misses,
+                networkErrors,
+                lruIndex.size(),
+                totalBytes / 1024);
+    }
+}
@@ -1,8 +1,12 @@
 package com.harsh.touristguardian;
 
 import android.app.Application;
+import android.util.Log;
 
-import com.google.firebase.FirebaseApp;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Custom Application class for TouristGuardian app.
@@ -11,7 +15,7 @@ import com.google.firebase.FirebaseApp;
  * It's the perfect place for app-wide initialization code.
  * 
  * Purpose:
- * 1. Initialize Firebase early to prevent "configuration not found" errors
+ * 1. Initialize Firebase early to prevent "configuration not found" errors (StartupOrchestrator)
  * 2. Centralized place for app-wide setup (analytics, crash reporting, etc.)
  * 3. Can store global variables that need to persist across activities
  * 
@@ -22,19 +26,43 @@ import com.google.firebase.FirebaseApp;
  */
 public class TouristGuardianApplication extends Application {
 
+    private static final String TAG = "TouristGuardianApp";
+    private static final String DATABASE_URL = "https://tourist-guardian-a0d19-default-rtdb.firebaseio.com/";
+    private static final String ITINERARY_CACHE_DIR = "itineraries";
+    private static final long ITINERARY_CACHE_BYTES = 2L * 1024 * 1024;
+    private static final long ITINERARY_TTL_MILLIS = TimeUnit.DAYS.toMillis(14);
+    private static final long PLANNER_CONNECT_TIMEOUT_MILLIS = 30_000;
+    private static final long PLANNER_READ_TIMEOUT_MILLIS = 60_000;
+    // Off: every hedge is a second billed completion against a rate-limited API
+    private static final boolean PLANNER_HEDGING_ENABLED = false;
+
+    // Map WebView shared by every MainActivity instance (pre-warmed during startup)
+    private MapWebViewHost mapHost;
+
+    // Parallel cold-start work and the signed-in check used for routing
+    private StartupOrchestrator startupOrchestrator;
+
+    // Shared HTTP client (created on first use to keep cold start short)
+    private HttpStack httpStack;
+
+    // Generated itineraries, reused for repeat requests and offline
+    private ItineraryCache itineraryCache;
+
+    // Planner LLM calls (coalescing, rate-limit backoff, hedging)
+    private PlannerRequestScheduler plannerScheduler;
+
     @Override
     public void onCreate() {
         super.onCreate();
-        
-        // Initialize Firebase - this ensures Firebase is initialized early
-        // The google-services.json plugin usually handles this, but explicit initialization
-        // ensures it's done before any Firebase services are used
-        if (FirebaseApp.getApps(this).isEmpty()) {
-            FirebaseApp.initializeApp(this);
-        }
-        
-        // Note: FirebaseDatabase initialization is handled in individual Activities
-        // (SignUpActivity, MainActivity) with proper error handling and fallback to explicit URL
+        StartupTrace.mark("application_created");
+        mapHost = new MapWebViewHost(this);
+
+        // Firebase, zone data, location client and map WebView are prepared in parallel
+        startupOrchestrator = new StartupOrchestrator(this);
+        startupOrchestrator.start();
+
+        // Note: Realtime Database access goes through getDatabase(), which falls back to the
+        // explicit database URL like SignUpActivity does
         
         // Future: You can add other app-wide initialization here, such as:
         // - Analytics initialization (Firebase Analytics, Google Analytics)
@@ -42,5 +70,53 @@ public class TouristGuardianApplication extends Application {
         // - Global configuration settings
         // - Third-party SDK initialization
     }
-}
 
+    /**
+     * Realtime Database instance, or the one at the explicit URL when the default instance is not
+     * configured; null when neither is available
+     */
+    public static FirebaseDatabase getDatabase() {
+        try {
+            return FirebaseDatabase.getInstance();
+        } catch (Exception e) {
+            try {
+                return FirebaseDatabase.getInstance(DATABASE_URL);
+            } catch (Exception ex) {
+                Log.e(TAG, "Firebase Database is not configured", ex);
+                return null;
+            }
+        }
+    }
+
+    public MapWebViewHost getMapHost() {
+        return mapHost;
+    }
+
+    public StartupOrchestrator getStartupOrchestrator() {
+        return startupOrchestrator;
+    }
+
+    public synchronized ItineraryCache getItineraryCache() {
+        if (itineraryCache == null) {
+            itineraryCache = new ItineraryCache(new File(getFilesDir(), ITINERARY_CACHE_DIR),
+                    ITINERARY_CACHE_BYTES, ITINERARY_TTL_MILLIS);
+        }
+        return itineraryCache;
+    }
+
+    public synchronized HttpStack getHttpStack() {
+        if (httpStack == null) {
+            httpStack = new HttpStack(this);
+        }
+        return httpStack;
+    }
+
+    public synchronized PlannerRequestScheduler getPlannerScheduler() {
+        if (plannerScheduler == null) {
+            plannerScheduler = new PlannerRequestScheduler(
+                    getHttpStack().withTimeouts(PLANNER_CONNECT_TIMEOUT_MILLIS, PLANNER_READ_TIMEOUT_MILLIS),
+                    PLANNER_HEDGING_ENABLED);
+        }
+        return plannerScheduler;
+    }
+}
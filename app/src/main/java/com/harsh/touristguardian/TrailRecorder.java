@@ -0,0 +1,366 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Breadcrumb trail of the last week, kept on the device.
+ *
+ * Fixes go into a TrailRing (two int columns, no Location per point) for drawing, and into the
+ * current TrailSegment, which is written to trail/<first fix time>.seg every few minutes. Segments
+ * are delta/varint encoded, so a week of 1 Hz tracking takes about 3-4 MB on disk and under 5 MB in
+ * memory (the ring grows with the trail, so a short one takes little). Segments older than a week
+ * are deleted; on start the ring is refilled from the rest.
+ *
+ * The map asks for the trail of the (padded) visible area at its zoom level through getTrailJson();
+ * blocks of points whose bounding box misses that area are skipped, and only the points inside it
+ * are simplified, to about a pixel, before they are sent.
+ *
+ * Fixes are recorded on the main thread; getTrailJson() may be called from any thread. It holds
+ * ringLock while it reads the ring, and record() never waits for that lock: fixes recorded in the
+ * meantime are kept in a small pending buffer and moved into the ring afterwards.
+ */
+public class TrailRecorder {
+
+    private static final String TAG = "TrailRecorder";
+    private static final String DIR = "trail";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final long RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final int RING_CAPACITY = 7 * 24 * 60 * 60; // a week at 1 Hz
+    private static final int MAX_SEGMENT_POINTS = 300;
+    private static final long MAX_SEGMENT_SPAN_MILLIS = 5 * 60 * 1000;
+    // Fixes worse than this are too noisy for a trail
+    private static final float MAX_ACCURACY_METERS = 100;
+    private static final double TOLERANCE_PIXELS = 1.0;
+    private static final int LATENCY_WINDOW = 50;
+    private static final int STATS_LOG_EVERY_REQUESTS = 50;
+
+    private static volatile TrailRecorder instance;
+
+    private final File dir;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+
+    // Guarded by this
+    private final TrailSegment.Builder segment = new TrailSegment.Builder();
+    // Fixes not yet in the ring, as lat/lng pairs
+    private final TrailSimplifier.IntBuffer pending = new TrailSimplifier.IntBuffer();
+    private long lastTimeMillis;
+
+    // Guarded by ringLock
+    private final ReentrantLock ringLock = new ReentrantLock();
+    private TrailRing ring = new TrailRing(RING_CAPACITY);
+    private final TrailSimplifier simplifier = new TrailSimplifier();
+    private final TrailSimplifier.IntBuffer kept = new TrailSimplifier.IntBuffer();
+    private final LatencyStats simplifyMillis = new LatencyStats(LATENCY_WINDOW);
+    private long trailRequests;
+
+    public static TrailRecorder getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TrailRecorder.class) {
+                if (instance == null) {
+                    instance = new TrailRecorder(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private TrailRecorder(Context context) {
+        dir = new File(context.getFilesDir(), DIR);
+        io.execute(this::loadHistory);
+    }
+
+    /**
+     * Add a fix to the trail (fixes not newer than the last one are ignored)
+     */
+    public void record(Location location) {
+        if (location.hasAccuracy() && location.getAccuracy() > MAX_ACCURACY_METERS) {
+            return;
+        }
+        record(location.getLatitude(), location.getLongitude(), location.getAccuracy(), location.getTime());
+    }
+
+    public void record(double lat, double lng, float accuracyMeters, long timeMillis) {
+        synchronized (this) {
+            if (timeMillis <= lastTimeMillis) {
+                return;
+            }
+            lastTimeMillis = timeMillis;
+            int latE7 = (int) Math.round(lat * 1e7);
+            int lngE7 = (int) Math.round(lng * 1e7);
+            pending.add(latE7);
+            pending.add(lngE7);
+            segment.add(latE7, lngE7, timeMillis, accuracyMeters);
+            if (segment.size() >= MAX_SEGMENT_POINTS
+                    || timeMillis - segment.getFirstTimeMillis() >= MAX_SEGMENT_SPAN_MILLIS) {
+                flush();
+            }
+        }
+        // Busy while the trail is read; the fix stays pending until the next call
+        if (ringLock.tryLock()) {
+            try {
+                drainPending();
+            } finally {
+                ringLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Move pending fixes into the ring (ringLock held)
+     */
+    private void drainPending() {
+        synchronized (this) {
+            for (int i = 0; i < pending.size(); i += 2) {
+                ring.add(pending.get(i), pending.get(i + 1));
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Write the fixes recorded since the last segment (e.g. when the app goes to the background)
+     */
+    public synchronized void flush() {
+        if (segment.size() == 0) {
+            return;
+        }
+        byte[] data = segment.encode();
+        long firstTime = segment.getFirstTimeMillis();
+        segment.clear();
+        io.execute(() -> writeSegment(firstTime, data));
+    }
+
+    /**
+     * Trail inside the bounds, simplified for the zoom level, as JSON runs of
+     * [[lat, lng, lat, lng, ...], ...] (the trail is split where it leaves the bounds)
+     */
+    public String getTrailJson(double zoom, double south, double west, double north, double east) {
+        ringLock.lock();
+        try {
+            drainPending();
+            return buildTrailJson(zoom, south, west, north, east);
+        } finally {
+            ringLock.unlock();
+        }
+    }
+
+    private String buildTrailJson(double zoom, double south, double west, double north, double east) {
+        long start = SystemClock.elapsedRealtime();
+        int southE7 = (int) Math.round(south * 1e7);
+        int northE7 = (int) Math.round(north * 1e7);
+        int westE7 = (int) Math.round(Math.max(-180, west) * 1e7);
+        int eastE7 = (int) Math.round(Math.min(180, east) * 1e7);
+        double tolerance = TOLERANCE_PIXELS * TrailSimplifier.metersPerPixel(zoom, (south + north) / 2);
+
+        StringBuilder json = new StringBuilder("[");
+        int size = ring.size();
+        int runs = 0;
+        int scanned = 0;
+        kept.clear();
+        int i = 0;
+        while (i < size) {
+            if (!ring.blockIntersects(i, southE7, westE7, northE7, eastE7)) {
+                i = ring.blockLast(i) + 1;
+                continue;
+            }
+            // Consecutive blocks that may have points inside, plus the point on each side
+            int last = ring.blockLast(i);
+            while (last + 1 < size && ring.blockIntersects(last + 1, southE7, westE7, northE7, eastE7)) {
+                last = ring.blockLast(last + 1);
+            }
+            int from = Math.max(0, i - 1);
+            int to = Math.min(size - 1, last + 1);
+            runs = appendRuns(json, runs, from, to, southE7, westE7, northE7, eastE7, tolerance);
+            scanned += to - from + 1;
+            i = to + 1;
+        }
+        json.append(']');
+
+        long millis = SystemClock.elapsedRealtime() - start;
+        simplifyMillis.record(millis);
+        if (++trailRequests % STATS_LOG_EVERY_REQUESTS == 0) {
+            Log.d(TAG, String.format(Locale.US, "Trail at z%.1f: %d of %d points (%d scanned) in %d ms (p50=%d p99=%d)",
+                    zoom, kept.size(), size, scanned, millis, simplifyMillis.percentile(0.5),
+                    simplifyMillis.percentile(0.99)));
+        }
+        return json.toString();
+    }
+
+    /**
+     * Append the runs of points from..to that are inside the bounds; the points just outside are
+     * kept too, so lines crossing the edge are drawn. Points next to the range must be outside.
+     * Returns the new run count.
+     */
+    private int appendRuns(StringBuilder json, int runs, int from, int to,
+                           int southE7, int westE7, int northE7, int eastE7, double tolerance) {
+        int runStart = -1;
+        boolean previousInside = false;
+        boolean inside = contains(from, southE7, westE7, northE7, eastE7);
+        for (int i = from; i <= to; i++) {
+            boolean nextInside = i < to && contains(i + 1, southE7, westE7, northE7, eastE7);
+            boolean wanted = inside || previousInside || nextInside;
+            if (wanted && runStart < 0) {
+                runStart = i;
+            } else if (!wanted && runStart >= 0) {
+                appendRun(json, runs++, runStart, i - 1, tolerance);
+                runStart = -1;
+            }
+            previousInside = inside;
+            inside = nextInside;
+        }
+        if (runStart >= 0) {
+            appendRun(json, runs++, runStart, to, tolerance);
+        }
+        return runs;
+    }
+
+    private boolean contains(int index, int southE7, int westE7, int northE7, int eastE7) {
+        int lat = ring.latE7(index);
+        int lng = ring.lngE7(index);
+        return lat >= southE7 && lat <= northE7 && lng >= westE7 && lng <= eastE7;
+    }
+
+    private void appendRun(StringBuilder json, int run, int first, int last, double tolerance) {
+        int from = kept.size();
+        simplifier.simplify(ring, first, last, tolerance, kept);
+        json.append(run > 0 ? ",[" : "[");
+        for (int k = from; k < kept.size(); k++) {
+            int index = kept.get(k);
+            if (k > from) {
+                json.append(',');
+            }
+            json.append(ring.latE7(index) / 1e7).append(',').append(ring.lngE7(index) / 1e7);
+        }
+        json.append(']');
+    }
+
+    private void writeSegment(long firstTime, byte[] data) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+            return;
+        }
+        File file = new File(dir, firstTime + SEGMENT_SUFFIX);
+        File temp = new File(dir, firstTime + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write trail segment", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not save trail segment " + file);
+            temp.delete();
+        }
+        deleteExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Refill the ring from the segments of the last week (io thread); fixes recorded meanwhile
+     * are kept after them
+     */
+    private void loadHistory() {
+        long start = SystemClock.elapsedRealtime();
+        // Leftovers of writes interrupted before the rename
+        File[] temps = dir.listFiles((d, name) -> name.endsWith(".tmp"));
+        if (temps != null) {
+            for (File temp : temps) {
+                temp.delete();
+            }
+        }
+        deleteExpired(System.currentTimeMillis());
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        // Names are start times; sort numerically
+        long[] starts = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            starts[i] = segmentStart(files[i]);
+        }
+        Arrays.sort(starts);
+
+        TrailRing history = new TrailRing(RING_CAPACITY);
+        long[] lastTime = {0};
+        long bytes = 0;
+        for (long segmentStart : starts) {
+            File file = new File(dir, segmentStart + SEGMENT_SUFFIX);
+            try {
+                byte[] data = readFile(file);
+                bytes += data.length;
+                TrailSegment.decode(data, (latE7, lngE7, timeMillis, accuracy) -> {
+                    history.add(latE7, lngE7);
+                    lastTime[0] = timeMillis;
+                });
+            } catch (IOException e) {
+                Log.w(TAG, "Dropping unreadable trail segment " + file.getName(), e);
+                file.delete();
+            }
+        }
+
+        ringLock.lock();
+        try {
+            drainPending();
+            history.addAll(ring);
+            ring = history;
+        } finally {
+            ringLock.unlock();
+        }
+        synchronized (this) {
+            lastTimeMillis = Math.max(lastTimeMillis, lastTime[0]);
+        }
+        Log.i(TAG, String.format(Locale.US, "Loaded %d trail points from %d segments (%d KB) in %d ms",
+                history.size(), starts.length, bytes / 1024, SystemClock.elapsedRealtime() - start));
+    }
+
+    private void deleteExpired(long now) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            // A segment spans a few minutes at most, so its start time is enough
+            if (segmentStart(file) < now - RETENTION_MILLIS) {
+                file.delete();
+            }
+        }
+    }
+
+    private static long segmentStart(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                read += n;
+            }
+            return data;
+        }
+    }
+}
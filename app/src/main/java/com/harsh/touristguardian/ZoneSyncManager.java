@@ -0,0 +1,209 @@
+package com.harsh.touristguardian;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Mirrors the Zones tree of the Realtime Database into DangerZoneRepository.
+ *
+ * A child listener applies one zone per event, so editing a zone on the server sends and applies
+ * only that zone. Disk persistence (enabled by StartupOrchestrator) replays the last
+ * synced tree from the local cache on a cold start, even offline. Events are applied as they
+ * arrive and listeners are notified once per batch (all events handled in one main-loop turn).
+ *
+ * Zone node shape: Zones/$zoneId = {type, name, lat, lng, radius (km), info}. A node with
+ * "deleted": true hides the zone with that id, including zones bundled with the app.
+ */
+public class ZoneSyncManager {
+
+    private static final String TAG = "ZoneSyncManager";
+    private static final String ZONES_NODE = "Zones";
+
+    private static volatile ZoneSyncManager instance;
+
+    private final DangerZoneRepository repository;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private DatabaseReference zonesRef;
+    private boolean started;
+    private long startedAtElapsed;
+
+    // Current batch
+    private boolean flushPosted;
+    private int batchUpserts;
+    private int batchRemovals;
+    private long batchBytes;
+    private long batchApplyNanos;
+
+    // Totals since start()
+    private int batchCount;
+    private long totalDeltas;
+    private long totalBytes;
+
+    public static ZoneSyncManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ZoneSyncManager.class) {
+                if (instance == null) {
+                    instance = new ZoneSyncManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ZoneSyncManager(Context context) {
+        repository = DangerZoneRepository.getInstance(context);
+    }
+
+    /**
+     * Start mirroring (main thread; does nothing if already running)
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        FirebaseDatabase database = TouristGuardianApplication.getDatabase();
+        if (database == null) {
+            Log.w(TAG, "Zone sync disabled");
+            return;
+        }
+        zonesRef = database.getReference(ZONES_NODE);
+        started = true;
+        startedAtElapsed = SystemClock.elapsedRealtime();
+        // Keep the local copy current even when no screen is listening
+        zonesRef.keepSynced(true);
+        zonesRef.addChildEventListener(zoneListener);
+    }
+
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        zonesRef.removeEventListener(zoneListener);
+        zonesRef.keepSynced(false);
+    }
+
+    private final ChildEventListener zoneListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            apply(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            apply(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            long start = System.nanoTime();
+            repository.hideZone(snapshot.getKey());
+            recordDelta(false, snapshot.getKey().length(), System.nanoTime() - start);
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            // Order does not matter for zones
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.w(TAG, "Zone sync cancelled: " + error.getMessage());
+            started = false;
+        }
+    };
+
+    private void apply(DataSnapshot snapshot) {
+        long start = System.nanoTime();
+        String id = snapshot.getKey();
+        if (Boolean.TRUE.equals(snapshot.child("deleted").getValue(Boolean.class))) {
+            repository.hideZone(id);
+            recordDelta(false, estimateBytes(snapshot), System.nanoTime() - start);
+            return;
+        }
+
+        DangerZone zone = fromSnapshot(snapshot);
+        if (zone == null) {
+            Log.w(TAG, "Ignoring malformed zone " + id);
+            return;
+        }
+        repository.applyRemoteZone(zone);
+        recordDelta(true, estimateBytes(snapshot), System.nanoTime() - start);
+    }
+
+    private static DangerZone fromSnapshot(DataSnapshot snapshot) {
+        String type = snapshot.child("type").getValue(String.class);
+        String name = snapshot.child("name").getValue(String.class);
+        Double lat = snapshot.child("lat").getValue(Double.class);
+        Double lng = snapshot.child("lng").getValue(Double.class);
+        Double radius = snapshot.child("radius").getValue(Double.class);
+        String info = snapshot.child("info").getValue(String.class);
+        if (type == null || lat == null || lng == null || radius == null) {
+            return null;
+        }
+        return new DangerZone(snapshot.getKey(), type, name != null ? name : "",
+                lat, lng, radius, info != null ? info : "");
+    }
+
+    /**
+     * Approximate payload size of one zone node (its JSON encoding)
+     */
+    private static long estimateBytes(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        String json = value instanceof Map ? new JSONObject((Map<?, ?>) value).toString() : String.valueOf(value);
+        return snapshot.getKey().length() + json.length();
+    }
+
+    private void recordDelta(boolean upsert, long bytes, long applyNanos) {
+        if (upsert) {
+            batchUpserts++;
+        } else {
+            batchRemovals++;
+        }
+        batchBytes += bytes;
+        batchApplyNanos += applyNanos;
+        if (!flushPosted) {
+            flushPosted = true;
+            // Runs after every event already queued on the main thread
+            mainHandler.post(this::flushBatch);
+        }
+    }
+
+    private void flushBatch() {
+        flushPosted = false;
+        long notifyStart = System.nanoTime();
+        repository.notifyZonesChanged();
+        long notifyNanos = System.nanoTime() - notifyStart;
+
+        batchCount++;
+        totalDeltas += batchUpserts + batchRemovals;
+        totalBytes += batchBytes;
+        Log.i(TAG, String.format(Locale.US, "Sync batch %d: %d upserts, %d removals, ~%.1f KB, apply %.2f ms, notify %.2f ms"
+                        + " (%d ms since start, total %d deltas / %.1f KB, %d zones)",
+                batchCount, batchUpserts, batchRemovals, batchBytes / 1024.0, batchApplyNanos / 1e6,
+                notifyNanos / 1e6, SystemClock.elapsedRealtime() - startedAtElapsed,
+                totalDeltas, totalBytes / 1024.0, repository.getZoneCount()));
+
+        batchUpserts = 0;
+        batchRemovals = 0;
+        batchBytes = 0;
+        batchApplyNanos = 0;
+    }
+}
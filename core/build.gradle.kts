@@ -0,0 +1,37 @@
+// Platform-independent logic shared with :app. Builds and tests on a plain JVM, and hosts the
+// JMH benchmarks:  ./gradlew :core:jmh  (results in core/build/results/jmh/results.json)
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Sources contain emoji (SOS message); don't depend on the platform charset
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    // Android ships org.json; the JVM build only compiles against it
+    compileOnly(libs.json)
+    testImplementation(libs.json)
+    testImplementation(libs.junit)
+    jmh(libs.json)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    // JSON so runs from different commits can be diffed; the gc profiler adds allocation rates
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    profilers = listOf("gc")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    // ./gradlew :core:jmh -Pjmh.includes=ProximityEngine
+    (findProperty("jmh.includes") as String?)?.let { includes = listOf(it) }
+}
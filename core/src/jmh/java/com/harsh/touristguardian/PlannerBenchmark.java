@@ -0,0 +1,101 @@
+package com.harsh.touristguardian;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI planner path without the network: prompt and request body, streamed chunk parsing and
+ * rendering of a whole plan
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlannerBenchmark {
+
+    private static final int DAYS = 7;
+    // Roughly what the model sends per chunk
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private String plan;
+    private byte[] stream;
+    private String chunk;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder("# " + DAYS + "-Day Goa Itinerary\nA **relaxed** trip.\n\n");
+        for (int day = 1; day <= DAYS; day++) {
+            text.append("## Day ").append(day).append(": North Goa\n")
+                    .append("* **Morning:** Baga beach, best before *10am*\n")
+                    .append("* **Afternoon:** Lunch at *Britto's* (`₹800` for two)\n")
+                    .append("* **Evening:** Fort Aguada sunset, 25 min by taxi\n")
+                    .append("- Safety: keep to lit roads after dark\n\n");
+        }
+        text.append("## Emergency Contacts\n1. Police: 100\n2. Ambulance: 108\n");
+        plan = text.toString();
+
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < plan.length(); i += CHARS_PER_TOKEN) {
+            events.add(chunkJson(plan.substring(i, Math.min(plan.length(), i + CHARS_PER_TOKEN))));
+        }
+        chunk = events.get(events.size() / 2);
+        StringBuilder sse = new StringBuilder();
+        for (String event : events) {
+            sse.append("data: ").append(event).append("\n\n");
+        }
+        sse.append("data: [DONE]\n\n");
+        stream = sse.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String chunkJson(String content) {
+        String escaped = content.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"model\":\"llama-3.3-70b-versatile\","
+                + "\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + escaped + "\"},\"finish_reason\":null}]}";
+    }
+
+    @Benchmark
+    public String requestBody() throws JSONException {
+        return PlannerPrompt.requestBody("llama-3.3-70b-versatile", PlannerPrompt.create("Goa", DAYS));
+    }
+
+    @Benchmark
+    public String parseToken() throws JSONException {
+        return GroqResponses.parseToken(chunk);
+    }
+
+    /**
+     * Whole response: SSE framing, chunk parsing and streamed rendering
+     */
+    @Benchmark
+    public int streamAndRender() throws IOException, JSONException {
+        PlanMarkdownRenderer renderer = new PlanMarkdownRenderer();
+        try (SseEventReader events = new SseEventReader(new ByteArrayInputStream(stream))) {
+            String data;
+            while ((data = events.nextData()) != null && !"[DONE]".equals(data)) {
+                renderer.append(GroqResponses.parseToken(data));
+            }
+        }
+        renderer.finish();
+        return renderer.getSectionCount();
+    }
+
+    @Benchmark
+    public int renderWholePlan() {
+        PlanMarkdownRenderer renderer = new PlanMarkdownRenderer();
+        renderer.append(plan);
+        renderer.finish();
+        return renderer.getSectionCount();
+    }
+}
@@ -0,0 +1,64 @@
+package com.harsh.touristguardian;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-fix cost of ProximityEngine with every zone as a candidate (no requery in the loop)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProximityEngineBenchmark {
+
+    private static final double METERS_PER_DEGREE = GeoMath.KM_PER_DEGREE_LAT * 1000;
+
+    @Param({"1000", "10000"})
+    public int candidates;
+
+    private ProximityEngine engine;
+    private double lngPerMeter;
+    private long second;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        List<DangerZone> zones = new ArrayList<>();
+        for (int i = 0; i < candidates; i++) {
+            // Within ~25 km of the route
+            zones.add(new DangerZone("z" + i, DangerZone.TYPE_LANDSLIDE, "Zone " + i,
+                    15.0 + (random.nextDouble() - 0.5) * 0.45, 73.0 + (random.nextDouble() - 0.5) * 0.45,
+                    0.05 + random.nextDouble() * 0.5, ""));
+        }
+        engine = new ProximityEngine((lat, lng, n) -> zones, zones.size(), null);
+        lngPerMeter = 1 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(15.0)));
+    }
+
+    @Benchmark
+    public int onFixWithBearing() {
+        // Walk east at 1.5 m/s, one fix per second, back and forth over 2 km
+        long s = second++;
+        double offset = (s % 2000) * 1.5;
+        engine.onFix(15.0, 73.0 + offset * lngPerMeter, 5, 1.5f, 90, s * 1000L);
+        return engine.getTier();
+    }
+
+    @Benchmark
+    public int onFixWithoutBearing() {
+        long s = second++;
+        double offset = (s % 2000) * 1.5;
+        engine.onFix(15.0, 73.0 + offset * lngPerMeter, 5, Float.NaN, Float.NaN, s * 1000L);
+        return engine.getTier();
+    }
+}
@@ -0,0 +1,72 @@
+package com.harsh.touristguardian;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geo math and zone index queries as run per location fix
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ZoneLookupBenchmark {
+
+    @Param({"1000", "10000"})
+    public int zones;
+
+    private DangerZoneIndex index;
+    private double[] fixLat;
+    private double[] fixLng;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        index = new DangerZoneIndex();
+        for (int i = 0; i < zones; i++) {
+            // Spread over roughly the size of a state
+            index.put(new DangerZone("z" + i, DangerZone.TYPE_CRIME, "Zone " + i,
+                    15.0 + random.nextDouble() * 4, 73.0 + random.nextDouble() * 4,
+                    0.05 + random.nextDouble(), ""));
+        }
+        fixLat = new double[1024];
+        fixLng = new double[1024];
+        for (int i = 0; i < fixLat.length; i++) {
+            fixLat[i] = 15.0 + random.nextDouble() * 4;
+            fixLng[i] = 73.0 + random.nextDouble() * 4;
+        }
+    }
+
+    private int nextFix() {
+        next = (next + 1) & (fixLat.length - 1);
+        return next;
+    }
+
+    @Benchmark
+    public double haversine() {
+        int i = nextFix();
+        return GeoMath.haversineKm(fixLat[i], fixLng[i], 17.0, 75.0);
+    }
+
+    @Benchmark
+    public List<DangerZone> findNearest() {
+        int i = nextFix();
+        return index.findNearest(fixLat[i], fixLng[i], ProximityEngine.DEFAULT_CANDIDATE_COUNT);
+    }
+
+    @Benchmark
+    public List<DangerZone> findContaining() {
+        int i = nextFix();
+        return index.findContaining(fixLat[i], fixLng[i]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.harsh.touristguardian;
+
+/**
+ * A circular danger zone shown on the map (wildlife conflict, crime hotspot or landslide area).
+ */
+public class DangerZone {
+
+    public static final String TYPE_WILDLIFE = "wildlife";
+    public static final String TYPE_CRIME = "crime";
+    public static final String TYPE_LANDSLIDE = "landslide";
+
+    private final String id;
+    private final String type;
+    private final String name;
+    private final double lat;
+    private final double lng;
+    private final double radiusKm;
+    private final String info;
+
+    public DangerZone(String id, String type, String name, double lat, double lng, double radiusKm, String info) {
+        this.id = id;
+        this.type = type;
+        this.name = name;
+        this.lat = lat;
+        this.lng = lng;
+        this.radiusKm = radiusKm;
+        this.info = info;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    /**
+     * Distance from the point to the zone edge in km (negative when the point is inside)
+     */
+    public double distanceToBoundaryKm(double pointLat, double pointLng) {
+        return GeoMath.haversineKm(pointLat, pointLng, lat, lng) - radiusKm;
+    }
+}
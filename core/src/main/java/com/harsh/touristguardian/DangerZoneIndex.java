@@ -0,0 +1,446 @@
+package com.harsh.touristguardian;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid-bucket spatial index over danger zones.
+ *
+ * Every zone is registered in each grid cell its circle overlaps, so a containment check only
+ * scans one cell and a nearest-N search grows ring by ring from the query cell until no unseen
+ * zone can beat the current N-th result. Zone geometry is kept in primitive arrays and cells in an
+ * open-addressing table, so queries do not box or allocate per zone.
+ *
+ * Not thread-safe: callers (DangerZoneRepository) synchronize access.
+ */
+public class DangerZoneIndex {
+
+    public static final double DEFAULT_CELL_DEGREES = 0.5;
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+    // Above this many cells a bounds query is cheaper as a linear scan
+    private static final int MAX_CELLS_PER_SCAN = 4096;
+
+    private final double cellDegrees;
+
+    // Zone slots, stored column by column
+    private DangerZone[] zones = new DangerZone[64];
+    private double[] lats = new double[64];
+    private double[] lngs = new double[64];
+    private double[] radii = new double[64];
+    private int[] stamps = new int[64];
+    private int stamp;
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private final Map<String, Integer> slotById = new HashMap<>();
+
+    // Cell key -> bucket of zone slots
+    private long[] cellKeys;
+    private int[][] cellBuckets;
+    private int[] cellSizes;
+    private int cellCount;
+    private int minCellX = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+
+    public DangerZoneIndex() {
+        this(DEFAULT_CELL_DEGREES);
+    }
+
+    public DangerZoneIndex(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        allocateCells(256);
+    }
+
+    public int size() {
+        return slotById.size();
+    }
+
+    public DangerZone get(String id) {
+        Integer slot = slotById.get(id);
+        return slot != null ? zones[slot] : null;
+    }
+
+    /**
+     * Add a zone, replacing any zone with the same id
+     */
+    public void put(DangerZone zone) {
+        remove(zone.getId());
+
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == zones.length) {
+                growSlots(slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+
+        zones[slot] = zone;
+        lats[slot] = zone.getLat();
+        lngs[slot] = zone.getLng();
+        radii[slot] = zone.getRadiusKm();
+        slotById.put(zone.getId(), slot);
+        updateCells(slot, true);
+    }
+
+    /**
+     * Remove a zone by id
+     */
+    public boolean remove(String id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        updateCells(slot, false);
+        zones[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    /**
+     * All zones whose circle contains the point
+     */
+    public List<DangerZone> findContaining(double lat, double lng) {
+        List<DangerZone> result = new ArrayList<>();
+        int cell = findCell(cellKey(cellOf(lng), cellOf(lat)));
+        if (cell < 0) {
+            return result;
+        }
+        int[] bucket = cellBuckets[cell];
+        for (int i = 0, n = cellSizes[cell]; i < n; i++) {
+            int slot = bucket[i];
+            if (GeoMath.haversineKm(lat, lng, lats[slot], lngs[slot]) <= radii[slot]) {
+                result.add(zones[slot]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The n zones whose boundary is closest to the point, nearest first.
+     * Zones containing the point come first (their boundary distance is negative).
+     */
+    public List<DangerZone> findNearest(double lat, double lng, int n) {
+        List<DangerZone> result = new ArrayList<>();
+        if (n <= 0 || slotById.isEmpty()) {
+            return result;
+        }
+
+        // Max-heap of the best n candidates, keyed by boundary distance
+        int[] heapSlots = new int[n];
+        double[] heapDist = new double[n];
+        int heapSize = 0;
+
+        int cx = cellOf(lng);
+        int cy = cellOf(lat);
+        int maxRing = Math.max(Math.max(Math.abs(cx - minCellX), Math.abs(cx - maxCellX)),
+                Math.max(Math.abs(cy - minCellY), Math.abs(cy - maxCellY)));
+        int mark = nextStamp();
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (heapSize == n && ringLowerBoundKm(lat, ring) > heapDist[0]) {
+                break;
+            }
+            for (int y = cy - ring; y <= cy + ring; y++) {
+                boolean edgeRow = y == cy - ring || y == cy + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int x = cx - ring; x <= cx + ring; x += step) {
+                    int cell = findCell(cellKey(x, y));
+                    if (cell < 0) {
+                        continue;
+                    }
+                    int[] bucket = cellBuckets[cell];
+                    for (int i = 0, size = cellSizes[cell]; i < size; i++) {
+                        int slot = bucket[i];
+                        if (stamps[slot] == mark) {
+                            continue;
+                        }
+                        stamps[slot] = mark;
+                        double dist = GeoMath.haversineKm(lat, lng, lats[slot], lngs[slot]) - radii[slot];
+                        if (heapSize < n) {
+                            heapSlots[heapSize] = slot;
+                            heapDist[heapSize] = dist;
+                            siftUp(heapSlots, heapDist, heapSize++);
+                        } else if (dist < heapDist[0]) {
+                            heapSlots[0] = slot;
+                            heapDist[0] = dist;
+                            siftDown(heapSlots, heapDist, heapSize);
+                        }
+                    }
+                }
+            }
+        }
+
+        DangerZone[] sorted = new DangerZone[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            sorted[i] = zones[heapSlots[0]];
+            heapSlots[0] = heapSlots[i];
+            heapDist[0] = heapDist[i];
+            siftDown(heapSlots, heapDist, i);
+        }
+        result.addAll(Arrays.asList(sorted));
+        return result;
+    }
+
+    /**
+     * Zones whose circle overlaps the bounding box, up to limit results
+     */
+    public List<DangerZone> findInBounds(double south, double west, double north, double east, int limit) {
+        List<DangerZone> result = new ArrayList<>();
+        if (slotById.isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        int x0 = Math.max(cellOf(west), minCellX);
+        int x1 = Math.min(cellOf(east), maxCellX);
+        int y0 = Math.max(cellOf(south), minCellY);
+        int y1 = Math.min(cellOf(north), maxCellY);
+        if (x0 > x1 || y0 > y1) {
+            return result;
+        }
+
+        if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS_PER_SCAN) {
+            for (int slot = 0; slot < slotCount && result.size() < limit; slot++) {
+                if (zones[slot] != null && overlaps(slot, south, west, north, east)) {
+                    result.add(zones[slot]);
+                }
+            }
+            return result;
+        }
+
+        int mark = nextStamp();
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int cell = findCell(cellKey(x, y));
+                if (cell < 0) {
+                    continue;
+                }
+                int[] bucket = cellBuckets[cell];
+                for (int i = 0, size = cellSizes[cell]; i < size; i++) {
+                    int slot = bucket[i];
+                    if (stamps[slot] == mark) {
+                        continue;
+                    }
+                    stamps[slot] = mark;
+                    if (overlaps(slot, south, west, north, east)) {
+                        result.add(zones[slot]);
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean overlaps(int slot, double south, double west, double north, double east) {
+        double nearestLat = Math.max(south, Math.min(north, lats[slot]));
+        double nearestLng = Math.max(west, Math.min(east, lngs[slot]));
+        return GeoMath.haversineKm(lats[slot], lngs[slot], nearestLat, nearestLng) <= radii[slot];
+    }
+
+    /**
+     * Smallest possible distance from the query point to any cell in the given ring
+     */
+    private double ringLowerBoundKm(double lat, int ring) {
+        return ringLowerBoundKm(lat, ring, cellDegrees);
+    }
+
+    /**
+     * Same bound for any grid with square cells of the given size (shared with ZoneFile)
+     */
+    static double ringLowerBoundKm(double lat, int ring, double cellDegrees) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double gapDegrees = (ring - 1) * cellDegrees;
+        double latBound = Math.toRadians(gapDegrees) * GeoMath.EARTH_RADIUS_KM;
+        // Points separated by a longitude gap are closest at the most poleward latitude of the ring
+        double maxLat = Math.min(90, Math.abs(lat) + (ring + 1) * cellDegrees);
+        double lngBound = 2 * GeoMath.EARTH_RADIUS_KM * Math.asin(
+                Math.cos(Math.toRadians(maxLat)) * Math.sin(Math.toRadians(Math.min(180, gapDegrees)) / 2));
+        return Math.min(latBound, lngBound);
+    }
+
+    private void updateCells(int slot, boolean register) {
+        double lat = lats[slot];
+        double lng = lngs[slot];
+        // 1% slack so the cell cover never misses the edge of the circle
+        double radius = radii[slot] * 1.01;
+        double dLat = Math.toDegrees(radius / GeoMath.EARTH_RADIUS_KM);
+        double dLng = radius / GeoMath.kmPerDegreeLng(Math.min(89, Math.abs(lat) + dLat));
+
+        int x0 = cellOf(lng - dLng);
+        int x1 = cellOf(lng + dLng);
+        int y0 = cellOf(lat - dLat);
+        int y1 = cellOf(lat + dLat);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                if (register) {
+                    addToCell(x, y, slot);
+                } else {
+                    removeFromCell(cellKey(x, y), slot);
+                }
+            }
+        }
+    }
+
+    private void addToCell(int x, int y, int slot) {
+        if ((cellCount + 1) * 2 > cellKeys.length) {
+            rehash(cellKeys.length * 2);
+        }
+        long key = cellKey(x, y);
+        int mask = cellKeys.length - 1;
+        int i = mix(key) & mask;
+        while (cellKeys[i] != EMPTY_KEY && cellKeys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (cellKeys[i] == EMPTY_KEY) {
+            cellKeys[i] = key;
+            cellBuckets[i] = new int[4];
+            cellCount++;
+            minCellX = Math.min(minCellX, x);
+            maxCellX = Math.max(maxCellX, x);
+            minCellY = Math.min(minCellY, y);
+            maxCellY = Math.max(maxCellY, y);
+        }
+
+        int size = cellSizes[i];
+        if (size == cellBuckets[i].length) {
+            cellBuckets[i] = Arrays.copyOf(cellBuckets[i], size * 2);
+        }
+        cellBuckets[i][size] = slot;
+        cellSizes[i] = size + 1;
+    }
+
+    private void removeFromCell(long key, int slot) {
+        int cell = findCell(key);
+        if (cell < 0) {
+            return;
+        }
+        int[] bucket = cellBuckets[cell];
+        int size = cellSizes[cell];
+        for (int i = 0; i < size; i++) {
+            if (bucket[i] == slot) {
+                bucket[i] = bucket[size - 1];
+                cellSizes[cell] = size - 1;
+                return;
+            }
+        }
+    }
+
+    private int findCell(long key) {
+        int mask = cellKeys.length - 1;
+        int i = mix(key) & mask;
+        while (cellKeys[i] != EMPTY_KEY) {
+            if (cellKeys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocateCells(int capacity) {
+        cellKeys = new long[capacity];
+        Arrays.fill(cellKeys, EMPTY_KEY);
+        cellBuckets = new int[capacity][];
+        cellSizes = new int[capacity];
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = cellKeys;
+        int[][] oldBuckets = cellBuckets;
+        int[] oldSizes = cellSizes;
+        allocateCells(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY_KEY) {
+                continue;
+            }
+            int i = mix(oldKeys[j]) & mask;
+            while (cellKeys[i] != EMPTY_KEY) {
+                i = (i + 1) & mask;
+            }
+            cellKeys[i] = oldKeys[j];
+            cellBuckets[i] = oldBuckets[j];
+            cellSizes[i] = oldSizes[j];
+        }
+    }
+
+    private void growSlots(int capacity) {
+        zones = Arrays.copyOf(zones, capacity);
+        lats = Arrays.copyOf(lats, capacity);
+        lngs = Arrays.copyOf(lngs, capacity);
+        radii = Arrays.copyOf(radii, capacity);
+        stamps = Arrays.copyOf(stamps, capacity);
+    }
+
+    private int nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    private int cellOf(double degrees) {
+        return (int) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) y << 32) | (x & 0xffffffffL);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static void siftUp(int[] slots, double[] dist, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (dist[parent] >= dist[i]) {
+                return;
+            }
+            swap(slots, dist, parent, i);
+            i = parent;
+        }
+    }
+
+    static void siftDown(int[] slots, double[] dist, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int largest = left + 1 < size && dist[left + 1] > dist[left] ? left + 1 : left;
+            if (dist[i] >= dist[largest]) {
+                return;
+            }
+            swap(slots, dist, i, largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(int[] slots, double[] dist, int a, int b) {
+        int s = slots[a];
+        slots[a] = slots[b];
+        slots[b] = s;
+        double d = dist[a];
+        dist[a] = dist[b];
+        dist[b] = d;
+    }
+}
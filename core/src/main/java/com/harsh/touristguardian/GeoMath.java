@@ -0,0 +1,34 @@
+package com.harsh.touristguardian;
+
+/**
+ * Small geo helpers shared by the zone index and location features.
+ * Everything works on plain doubles so callers never allocate per point.
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Great-circle distance in kilometres
+     */
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double sinLat = Math.sin(dLat * 0.5);
+        double sinLng = Math.sin(dLng * 0.5);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Kilometres covered by one degree of longitude at the given latitude
+     */
+    public static double kmPerDegreeLng(double lat) {
+        return KM_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(lat)));
+    }
+}
@@ -0,0 +1,236 @@
+package com.harsh.touristguardian;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates a stream of location fixes against the danger zones and reports enter, exit and
+ * dwell transitions.
+ *
+ * Evaluation is incremental: the engine keeps the nearest zones from its last index query and
+ * only re-queries once the user has moved far enough that a zone outside that set could be
+ * within reach. The distance to the nearest boundary also drives the recommended sampling
+ * interval, so fixes are rare far from any zone and frequent near an edge.
+ */
+public class GeofenceEngine {
+
+    public static final int EVENT_ENTER = 1;
+    public static final int EVENT_EXIT = 2;
+    public static final int EVENT_DWELL = 3;
+
+    public static final int ACCURACY_HIGH = 0;
+    public static final int ACCURACY_BALANCED = 1;
+    public static final int ACCURACY_LOW_POWER = 2;
+
+    public static final long MIN_INTERVAL_MILLIS = 5_000;
+    public static final long MAX_INTERVAL_MILLIS = 300_000;
+
+    private static final int CANDIDATE_COUNT = 16;
+    // Re-query before an unseen zone could be closer than this
+    private static final double REQUERY_MARGIN_KM = 1.0;
+    // Stay "inside" until clearly outside, so a noisy fix on the edge does not flap
+    private static final double EXIT_MARGIN_KM = 0.05;
+    private static final double WALKING_SPEED_MPS = 1.4;
+
+    public interface ZoneSource {
+        List<DangerZone> nearest(double lat, double lng, int count);
+    }
+
+    public interface Listener {
+        void onGeofenceEvent(int event, DangerZone zone, long timeMillis);
+    }
+
+    private static class Presence {
+        final DangerZone zone;
+        final long enteredAt;
+        boolean dwellReported;
+        boolean seen;
+
+        Presence(DangerZone zone, long enteredAt) {
+            this.zone = zone;
+            this.enteredAt = enteredAt;
+        }
+    }
+
+    private static class PendingEvent {
+        final int type;
+        final DangerZone zone;
+
+        PendingEvent(int type, DangerZone zone) {
+            this.type = type;
+            this.zone = zone;
+        }
+    }
+
+    private final ZoneSource zoneSource;
+    private final Listener listener;
+    private final long dwellMillis;
+
+    private List<DangerZone> candidates = Collections.emptyList();
+    private boolean hasQuery;
+    private double queryLat;
+    private double queryLng;
+    private double candidateHorizonKm;
+    private final Map<String, Presence> presences = new HashMap<>();
+
+    private double nearestBoundaryKm = Double.POSITIVE_INFINITY;
+    private float lastSpeedMps;
+
+    // Stats
+    private long fixCount;
+    private long requeryCount;
+    private long totalEvalNanos;
+    private long maxEvalNanos;
+
+    public GeofenceEngine(ZoneSource zoneSource, Listener listener, long dwellMillis) {
+        this.zoneSource = zoneSource;
+        this.listener = listener;
+        this.dwellMillis = dwellMillis;
+    }
+
+    /**
+     * Evaluate one fix and fire any transitions it causes
+     */
+    public void onFix(double lat, double lng, float accuracyMeters, float speedMps, long timeMillis) {
+        long start = System.nanoTime();
+
+        double moved = hasQuery ? GeoMath.haversineKm(queryLat, queryLng, lat, lng) : 0;
+        if (!hasQuery || candidateHorizonKm - moved < REQUERY_MARGIN_KM) {
+            requery(lat, lng);
+            moved = 0;
+        }
+
+        // Zones outside the candidate set are at least this far away
+        double nearest = candidateHorizonKm - moved;
+        double exitMarginKm = Math.max(EXIT_MARGIN_KM, accuracyMeters / 1000.0);
+        List<PendingEvent> events = null;
+
+        for (DangerZone zone : candidates) {
+            double distance = zone.distanceToBoundaryKm(lat, lng);
+            nearest = Math.min(nearest, Math.abs(distance));
+
+            Presence presence = presences.get(zone.getId());
+            if (presence == null) {
+                if (distance <= 0) {
+                    presence = new Presence(zone, timeMillis);
+                    presence.seen = true;
+                    presences.put(zone.getId(), presence);
+                    events = addEvent(events, EVENT_ENTER, zone);
+                }
+            } else if (distance > exitMarginKm) {
+                presences.remove(zone.getId());
+                events = addEvent(events, EVENT_EXIT, zone);
+            } else {
+                presence.seen = true;
+                if (!presence.dwellReported && timeMillis - presence.enteredAt >= dwellMillis) {
+                    presence.dwellReported = true;
+                    events = addEvent(events, EVENT_DWELL, zone);
+                }
+            }
+        }
+
+        // Zones we were inside that are no longer candidates have been left (or removed)
+        Iterator<Presence> iterator = presences.values().iterator();
+        while (iterator.hasNext()) {
+            Presence presence = iterator.next();
+            if (!presence.seen) {
+                iterator.remove();
+                events = addEvent(events, EVENT_EXIT, presence.zone);
+            }
+            presence.seen = false;
+        }
+
+        nearestBoundaryKm = nearest;
+        lastSpeedMps = speedMps;
+
+        long elapsed = System.nanoTime() - start;
+        fixCount++;
+        totalEvalNanos += elapsed;
+        maxEvalNanos = Math.max(maxEvalNanos, elapsed);
+
+        if (events != null && listener != null) {
+            for (PendingEvent event : events) {
+                listener.onGeofenceEvent(event.type, event.zone, timeMillis);
+            }
+        }
+    }
+
+    /**
+     * Force a fresh index query on the next fix (call after the zone set changes)
+     */
+    public void invalidate() {
+        hasQuery = false;
+    }
+
+    private void requery(double lat, double lng) {
+        candidates = zoneSource.nearest(lat, lng, CANDIDATE_COUNT);
+        queryLat = lat;
+        queryLng = lng;
+        hasQuery = true;
+        requeryCount++;
+        candidateHorizonKm = candidates.size() < CANDIDATE_COUNT
+                ? Double.POSITIVE_INFINITY
+                : candidates.get(candidates.size() - 1).distanceToBoundaryKm(lat, lng);
+    }
+
+    private static List<PendingEvent> addEvent(List<PendingEvent> events, int type, DangerZone zone) {
+        if (events == null) {
+            events = new ArrayList<>(2);
+        }
+        events.add(new PendingEvent(type, zone));
+        return events;
+    }
+
+    /**
+     * Distance to the closest zone edge (inside or outside) as of the last fix
+     */
+    public double getNearestBoundaryKm() {
+        return nearestBoundaryKm;
+    }
+
+    public boolean isInsideAnyZone() {
+        return !presences.isEmpty();
+    }
+
+    /**
+     * How long to wait before the next fix: a third of the time needed to reach the nearest
+     * boundary at the current speed (never slower than walking pace)
+     */
+    public long getRecommendedIntervalMillis() {
+        if (Double.isInfinite(nearestBoundaryKm)) {
+            return MAX_INTERVAL_MILLIS;
+        }
+        double speed = Math.max(lastSpeedMps, WALKING_SPEED_MPS);
+        long interval = (long) (nearestBoundaryKm * 1000 / speed / 3 * 1000);
+        return Math.max(MIN_INTERVAL_MILLIS, Math.min(MAX_INTERVAL_MILLIS, interval));
+    }
+
+    public int getRecommendedAccuracy() {
+        if (nearestBoundaryKm < 2) {
+            return ACCURACY_HIGH;
+        } else if (nearestBoundaryKm < 20) {
+            return ACCURACY_BALANCED;
+        }
+        return ACCURACY_LOW_POWER;
+    }
+
+    public long getFixCount() {
+        return fixCount;
+    }
+
+    public long getRequeryCount() {
+        return requeryCount;
+    }
+
+    public double getAverageEvalMicros() {
+        return fixCount == 0 ? 0 : totalEvalNanos / 1000.0 / fixCount;
+    }
+
+    public double getMaxEvalMicros() {
+        return maxEvalNanos / 1000.0;
+    }
+}
@@ -0,0 +1,47 @@
+package com.harsh.touristguardian;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Parsing of Groq chat completion responses: streamed chunks and error bodies.
+ */
+public final class GroqResponses {
+
+    private GroqResponses() {
+    }
+
+    /**
+     * Text of one chat.completion.chunk ("" for role-only or final chunks)
+     */
+    public static String parseToken(String data) throws JSONException {
+        JSONArray choices = new JSONObject(data).optJSONArray("choices");
+        if (choices == null || choices.length() == 0) {
+            return "";
+        }
+        JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+        return delta != null ? delta.optString("content", "") : "";
+    }
+
+    /**
+     * Message to show for a failed request, from the API's {"error": {...}} body when there is one
+     */
+    public static String errorMessage(int code, String responseBody) {
+        String errorMsg = "API Error: " + code;
+        try {
+            JSONObject errorJson = new JSONObject(responseBody);
+            if (errorJson.has("error")) {
+                JSONObject error = errorJson.getJSONObject("error");
+                errorMsg = error.optString("message", errorMsg);
+                if (error.has("type")) {
+                    errorMsg = error.optString("type") + ": " + errorMsg;
+                }
+            }
+        } catch (Exception e) {
+            // Show first 200 chars of response for debugging
+            errorMsg += "\nResponse: " + responseBody.substring(0, Math.min(200, responseBody.length()));
+        }
+        return errorMsg;
+    }
+}
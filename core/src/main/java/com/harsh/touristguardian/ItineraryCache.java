@@ -0,0 +1,299 @@
+package com.harsh.touristguardian;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * On-disk cache of generated itineraries.
+ *
+ * Entries are keyed on (normalized destination, days, model, prompt version), so "Goa" and
+ * " goa " share an entry while a new model or a changed prompt template never serves an old
+ * answer. Each entry is one small file: a header with the key and creation time followed by the
+ * deflated text. Entries expire after a TTL, and the least recently used ones are evicted once the
+ * files exceed the byte budget (recency survives restarts through the file modification time).
+ *
+ * Thread-safe; does disk I/O, so call it off the main thread.
+ */
+public class ItineraryCache {
+
+    private static final int MAGIC = 0x54474943; // "TGIC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".itin";
+
+    private final File dir;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // key -> entry, least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean indexLoaded;
+    private long totalBytes;
+
+    // Stats
+    private long hits;
+    private long misses;
+    private long expired;
+    private long evicted;
+
+    public ItineraryCache(File dir, long maxBytes, long ttlMillis) {
+        this(dir, maxBytes, ttlMillis, System::currentTimeMillis);
+    }
+
+    ItineraryCache(File dir, long maxBytes, long ttlMillis, LongSupplier clock) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Cache key for one request
+     */
+    public static String key(String destination, int days, String model, String promptVersion) {
+        return normalizeDestination(destination) + "|" + days + "|" + model + "|" + promptVersion;
+    }
+
+    /**
+     * Lower-case, accent-free, punctuation-free destination ("Goa, India" -> "goa")
+     */
+    public static String normalizeDestination(String destination) {
+        String plain = Normalizer.normalize(destination, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+        // The prompt already says India
+        if (plain.endsWith(" india")) {
+            plain = plain.substring(0, plain.length() - " india".length()).trim();
+        }
+        return plain;
+    }
+
+    /**
+     * Cached itinerary for the key, or null on a miss or expired entry
+     */
+    public synchronized String get(String key) {
+        ensureIndexLoaded();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (clock.getAsLong() - entry.createdAt > ttlMillis) {
+            removeEntry(key, entry);
+            expired++;
+            misses++;
+            return null;
+        }
+
+        String text = readText(entry.file, key);
+        if (text == null) {
+            // Unreadable or overwritten by a hash collision
+            removeEntry(key, entry);
+            misses++;
+            return null;
+        }
+        entry.file.setLastModified(clock.getAsLong());
+        hits++;
+        return text;
+    }
+
+    public synchronized void put(String key, String text) {
+        ensureIndexLoaded();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File file = new File(dir, fileName(key));
+        File temp = new File(dir, file.getName() + ".tmp");
+        long createdAt = clock.getAsLong();
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(temp))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(createdAt);
+            output.writeUTF(key);
+            output.write(deflate(text));
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+        Entry entry = new Entry(file, file.length(), createdAt);
+        entries.put(key, entry);
+        totalBytes += entry.bytes;
+        evictIfNeeded();
+    }
+
+    public synchronized int size() {
+        ensureIndexLoaded();
+        return entries.size();
+    }
+
+    public synchronized long getBytesOnDisk() {
+        ensureIndexLoaded();
+        return totalBytes;
+    }
+
+    /**
+     * Hit rate, entry count and disk usage
+     */
+    public synchronized String getStatsSummary() {
+        long lookups = hits + misses;
+        return String.format(Locale.US, "lookups=%d hitRate=%.1f%% expired=%d evicted=%d entries=%d bytes=%d",
+                lookups, lookups == 0 ? 0 : hits * 100.0 / lookups, expired, evicted,
+                entries.size(), totalBytes);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            eldest.file.delete();
+            totalBytes -= eldest.bytes;
+            iterator.remove();
+            evicted++;
+        }
+    }
+
+    private void removeEntry(String key, Entry entry) {
+        entries.remove(key);
+        entry.file.delete();
+        totalBytes -= entry.bytes;
+    }
+
+    /**
+     * Rebuild the index from the file headers, least recently used first
+     */
+    private void ensureIndexLoaded() {
+        if (indexLoaded) {
+            return;
+        }
+        indexLoaded = true;
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> valid = new ArrayList<>();
+        Map<File, Long> lastUsed = new LinkedHashMap<>();
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                valid.add(file);
+                lastUsed.put(file, file.lastModified());
+            } else {
+                // Leftover temp file from an interrupted write
+                file.delete();
+            }
+        }
+        valid.sort((a, b) -> Long.compare(lastUsed.get(a), lastUsed.get(b)));
+
+        long now = clock.getAsLong();
+        for (File file : valid) {
+            try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+                if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                    file.delete();
+                    continue;
+                }
+                long createdAt = input.readLong();
+                String key = input.readUTF();
+                if (now - createdAt > ttlMillis) {
+                    file.delete();
+                    expired++;
+                    continue;
+                }
+                entries.put(key, new Entry(file, file.length(), createdAt));
+                totalBytes += file.length();
+            } catch (IOException e) {
+                file.delete();
+            }
+        }
+        evictIfNeeded();
+    }
+
+    private static String readText(File file, String expectedKey) {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            input.readLong();
+            if (!expectedKey.equals(input.readUTF())) {
+                return null;
+            }
+            return inflate(input);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] deflate(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream output = new DeflaterOutputStream(bytes)) {
+            output.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String inflate(InputStream compressed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InflaterInputStream input = new InflaterInputStream(compressed)) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return name.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        final File file;
+        final long bytes;
+        final long createdAt;
+
+        Entry(File file, long bytes, long createdAt) {
+            this.file = file;
+            this.bytes = bytes;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.harsh.touristguardian;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles over the most recent latency samples (fixed-size window, no allocation per sample).
+ *
+ * Thread-safe.
+ */
+public class LatencyStats {
+
+    private final long[] samples;
+    private int count;
+
+    public LatencyStats(int window) {
+        samples = new long[window];
+    }
+
+    public synchronized void record(long millis) {
+        samples[count++ % samples.length] = millis;
+    }
+
+    /**
+     * Samples currently in the window
+     */
+    public synchronized int size() {
+        return Math.min(count, samples.length);
+    }
+
+    /**
+     * Value at the quantile (0.5 = median), or -1 when there are no samples
+     */
+    public synchronized long percentile(double quantile) {
+        int size = Math.min(count, samples.length);
+        if (size == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+}
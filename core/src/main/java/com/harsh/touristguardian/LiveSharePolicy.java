@@ -0,0 +1,109 @@
+package com.harsh.touristguardian;
+
+/**
+ * Decides which fixes of a live-share session are worth a database write.
+ *
+ * A fix is published when the user has moved far enough since the last published one, where "far
+ * enough" grows with speed (about LOOKAHEAD_SECONDS of travel) and with the fix's own accuracy, so
+ * GPS jitter while standing still costs nothing. Writes are never closer than the minimum interval,
+ * a heartbeat is sent while stationary so watchers can tell the session is alive, and an hourly
+ * budget caps the writes of a long trip: once half of it is used the distance threshold doubles,
+ * and when it is spent nothing is written until the window has room again.
+ *
+ * Not thread-safe.
+ */
+public class LiveSharePolicy {
+
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 5_000;
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 5 * 60_000;
+    public static final double DEFAULT_MIN_DISTANCE_METERS = 25;
+    public static final int DEFAULT_MAX_WRITES_PER_HOUR = 240;
+    private static final double LOOKAHEAD_SECONDS = 10;
+    private static final long HOUR_MILLIS = 60 * 60_000;
+
+    private final long minIntervalMillis;
+    private final long heartbeatMillis;
+    private final double minDistanceMeters;
+    // Times of the writes of the last hour, oldest first (ring)
+    private final long[] writeTimes;
+    private int writeStart;
+    private int writeCount;
+
+    private boolean hasLast;
+    private double lastLat;
+    private double lastLng;
+    private long lastTimeMillis;
+
+    public LiveSharePolicy() {
+        this(DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_HEARTBEAT_MILLIS, DEFAULT_MIN_DISTANCE_METERS,
+                DEFAULT_MAX_WRITES_PER_HOUR);
+    }
+
+    public LiveSharePolicy(long minIntervalMillis, long heartbeatMillis, double minDistanceMeters, int maxWritesPerHour) {
+        this.minIntervalMillis = minIntervalMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.minDistanceMeters = minDistanceMeters;
+        this.writeTimes = new long[maxWritesPerHour];
+    }
+
+    /**
+     * Whether this fix should be written (speed in m/s, 0 when unknown)
+     */
+    public boolean shouldPublish(double lat, double lng, float accuracyMeters, float speedMetersPerSecond, long timeMillis) {
+        if (!hasLast) {
+            return true;
+        }
+        long elapsed = timeMillis - lastTimeMillis;
+        if (elapsed < minIntervalMillis) {
+            return false;
+        }
+        int writes = getWritesInLastHour(timeMillis);
+        if (writes >= writeTimes.length) {
+            return false;
+        }
+        if (elapsed >= heartbeatMillis) {
+            return true;
+        }
+        double threshold = Math.max(minDistanceMeters, Math.max(speedMetersPerSecond * LOOKAHEAD_SECONDS, accuracyMeters));
+        if (writes >= writeTimes.length / 2) {
+            threshold *= 2;
+        }
+        double moved = GeoMath.haversineKm(lastLat, lastLng, lat, lng) * 1000;
+        return moved >= threshold;
+    }
+
+    /**
+     * Record that a fix was written
+     */
+    public void onPublished(double lat, double lng, long timeMillis) {
+        hasLast = true;
+        lastLat = lat;
+        lastLng = lng;
+        lastTimeMillis = timeMillis;
+        expire(timeMillis);
+        if (writeCount == writeTimes.length) {
+            writeStart = (writeStart + 1) % writeTimes.length;
+            writeCount--;
+        }
+        writeTimes[(writeStart + writeCount) % writeTimes.length] = timeMillis;
+        writeCount++;
+    }
+
+    public int getWritesInLastHour(long nowMillis) {
+        expire(nowMillis);
+        return writeCount;
+    }
+
+    public void reset() {
+        hasLast = false;
+        writeStart = 0;
+        writeCount = 0;
+    }
+
+    private void expire(long nowMillis) {
+        while (writeCount > 0 && writeTimes[writeStart] <= nowMillis - HOUR_MILLIS) {
+            writeStart = (writeStart + 1) % writeTimes.length;
+            writeCount--;
+        }
+    }
+}
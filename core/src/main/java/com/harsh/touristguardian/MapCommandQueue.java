@@ -0,0 +1,354 @@
+package com.harsh.touristguardian;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Pending map commands, merged until the next flush.
+ *
+ * Commands that only matter in their latest state (position, highlighted zones, animation pause,
+ * zone reload, each group member's position) replace the previous pending value; trail points
+ * accumulate. drainScript() turns everything into one applyMapBatch({...}) call for map.html:
+ *
+ * <pre>
+ *   p: [lat, lng, accuracyM]   h: ["zoneId", ...]   t: [lat, lng, lat, lng, ...]
+ *   a: 1 (pause) / 0 (resume)  r: 1 (reload zones)
+ *   gc: 1 (clear members)      gx: [slot, ...]      gn: [slot, "name", ...]
+ *   g: [slot, lat, lng, slot, lat, lng, ...]
+ * </pre>
+ *
+ * Group members are addressed by small slot numbers (see GroupTracker), so their pending
+ * positions live in primitive arrays and a burst of updates for hundreds of members costs no
+ * allocation per update.
+ *
+ * Not thread-safe: used from the main thread by MapBridge.
+ */
+public class MapCommandQueue {
+
+    // Past this many pending trail points, every other one is dropped (the line keeps its shape)
+    static final int MAX_PENDING_TRAIL_POINTS = 2048;
+
+    private boolean hasPosition;
+    private double lat;
+    private double lng;
+    private double accuracyM;
+    private List<String> highlightedIds;
+    private int paused = -1;
+    private boolean reloadZones;
+    private double[] trail = new double[64];
+    private int trailPoints;
+    private boolean clearMembers;
+    private double[] memberLat = new double[16];
+    private double[] memberLng = new double[16];
+    private boolean[] memberDirty = new boolean[16];
+    private int[] dirtyMembers = new int[16];
+    private int dirtyMemberCount;
+    private final List<Integer> removedMembers = new ArrayList<>();
+    private final List<Integer> namedMembers = new ArrayList<>();
+    private final List<String> memberNames = new ArrayList<>();
+
+    private int pendingCommands;
+    private long oldestEnqueueNanos;
+
+    // Totals
+    private long enqueued;
+    private long superseded;
+    private long droppedTrailPoints;
+
+    public void setPosition(double lat, double lng, double accuracyM) {
+        if (hasPosition) {
+            superseded++;
+        }
+        hasPosition = true;
+        this.lat = lat;
+        this.lng = lng;
+        this.accuracyM = accuracyM;
+        onEnqueue();
+    }
+
+    public void setHighlightedZones(Collection<String> ids) {
+        if (highlightedIds != null) {
+            superseded++;
+        }
+        highlightedIds = new ArrayList<>(ids);
+        onEnqueue();
+    }
+
+    public void setAnimationsPaused(boolean paused) {
+        if (this.paused >= 0) {
+            superseded++;
+        }
+        this.paused = paused ? 1 : 0;
+        onEnqueue();
+    }
+
+    public void requestZoneReload() {
+        if (reloadZones) {
+            superseded++;
+        }
+        reloadZones = true;
+        onEnqueue();
+    }
+
+    public void addTrailPoint(double lat, double lng) {
+        if (trailPoints == MAX_PENDING_TRAIL_POINTS) {
+            decimateTrail();
+        }
+        if (2 * trailPoints + 2 > trail.length) {
+            trail = Arrays.copyOf(trail, trail.length * 2);
+        }
+        trail[2 * trailPoints] = lat;
+        trail[2 * trailPoints + 1] = lng;
+        trailPoints++;
+        onEnqueue();
+    }
+
+    public void setMemberPosition(int slot, double lat, double lng) {
+        if (slot >= memberDirty.length) {
+            int capacity = Math.max(slot + 1, memberDirty.length * 2);
+            memberLat = Arrays.copyOf(memberLat, capacity);
+            memberLng = Arrays.copyOf(memberLng, capacity);
+            memberDirty = Arrays.copyOf(memberDirty, capacity);
+        }
+        if (memberDirty[slot]) {
+            superseded++;
+        } else {
+            memberDirty[slot] = true;
+            if (dirtyMemberCount == dirtyMembers.length) {
+                dirtyMembers = Arrays.copyOf(dirtyMembers, dirtyMemberCount * 2);
+            }
+            dirtyMembers[dirtyMemberCount++] = slot;
+        }
+        memberLat[slot] = lat;
+        memberLng[slot] = lng;
+        onEnqueue();
+    }
+
+    public void setMemberName(int slot, String name) {
+        namedMembers.add(slot);
+        memberNames.add(name);
+        onEnqueue();
+    }
+
+    /**
+     * Remove a member's marker (the slot may be reused afterwards)
+     */
+    public void removeMember(int slot) {
+        if (slot < memberDirty.length && memberDirty[slot]) {
+            // Drop its pending position; a later setMemberPosition re-adds it
+            memberDirty[slot] = false;
+            int kept = 0;
+            for (int i = 0; i < dirtyMemberCount; i++) {
+                if (dirtyMembers[i] != slot) {
+                    dirtyMembers[kept++] = dirtyMembers[i];
+                }
+            }
+            dirtyMemberCount = kept;
+        }
+        // And its pending name: the page applies gx before gn, which would bring the marker back
+        // (a name set after this call is for the slot's next member and stays)
+        for (int i = namedMembers.size() - 1; i >= 0; i--) {
+            if (namedMembers.get(i) == slot) {
+                namedMembers.remove(i);
+                memberNames.remove(i);
+            }
+        }
+        removedMembers.add(slot);
+        onEnqueue();
+    }
+
+    /**
+     * Remove every member marker, including updates still pending
+     */
+    public void clearMembers() {
+        for (int i = 0; i < dirtyMemberCount; i++) {
+            memberDirty[dirtyMembers[i]] = false;
+        }
+        dirtyMemberCount = 0;
+        removedMembers.clear();
+        namedMembers.clear();
+        memberNames.clear();
+        clearMembers = true;
+        onEnqueue();
+    }
+
+    public boolean isEmpty() {
+        return pendingCommands == 0;
+    }
+
+    /**
+     * Commands accepted since the last drain (before merging)
+     */
+    public int getPendingCommands() {
+        return pendingCommands;
+    }
+
+    /**
+     * Entries the next payload will actually carry (after merging)
+     */
+    public int getPendingEntries() {
+        return (hasPosition ? 1 : 0) + (highlightedIds != null ? 1 : 0) + (paused >= 0 ? 1 : 0)
+                + (reloadZones ? 1 : 0) + trailPoints + (clearMembers ? 1 : 0) + removedMembers.size()
+                + namedMembers.size() + dirtyMemberCount;
+    }
+
+    public long getOldestEnqueueNanos() {
+        return oldestEnqueueNanos;
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued;
+    }
+
+    public long getSupersededCount() {
+        return superseded;
+    }
+
+    public long getDroppedTrailPoints() {
+        return droppedTrailPoints;
+    }
+
+    /**
+     * Build the script for everything pending and clear the queue (null when empty)
+     */
+    public String drainScript() {
+        if (isEmpty()) {
+            return null;
+        }
+        StringBuilder script = new StringBuilder(64 + trailPoints * 24 + dirtyMemberCount * 28);
+        script.append("applyMapBatch({");
+        boolean first = true;
+        if (reloadZones) {
+            script.append("r:1");
+            first = false;
+        }
+        if (paused >= 0) {
+            first = separator(script, first);
+            script.append("a:").append(paused);
+        }
+        if (hasPosition) {
+            first = separator(script, first);
+            script.append("p:[").append(lat).append(',').append(lng).append(',').append(accuracyM).append(']');
+        }
+        if (highlightedIds != null) {
+            first = separator(script, first);
+            script.append("h:[");
+            for (int i = 0; i < highlightedIds.size(); i++) {
+                if (i > 0) {
+                    script.append(',');
+                }
+                appendQuoted(script, highlightedIds.get(i));
+            }
+            script.append(']');
+        }
+        if (trailPoints > 0) {
+            first = separator(script, first);
+            script.append("t:[");
+            for (int i = 0; i < 2 * trailPoints; i++) {
+                if (i > 0) {
+                    script.append(',');
+                }
+                script.append(trail[i]);
+            }
+            script.append(']');
+        }
+        if (clearMembers) {
+            first = separator(script, first);
+            script.append("gc:1");
+        }
+        if (!removedMembers.isEmpty()) {
+            first = separator(script, first);
+            script.append("gx:[");
+            for (int i = 0; i < removedMembers.size(); i++) {
+                if (i > 0) {
+                    script.append(',');
+                }
+                script.append(removedMembers.get(i));
+            }
+            script.append(']');
+        }
+        if (!namedMembers.isEmpty()) {
+            first = separator(script, first);
+            script.append("gn:[");
+            for (int i = 0; i < namedMembers.size(); i++) {
+                if (i > 0) {
+                    script.append(',');
+                }
+                script.append(namedMembers.get(i)).append(',');
+                appendQuoted(script, memberNames.get(i));
+            }
+            script.append(']');
+        }
+        if (dirtyMemberCount > 0) {
+            separator(script, first);
+            script.append("g:[");
+            for (int i = 0; i < dirtyMemberCount; i++) {
+                int slot = dirtyMembers[i];
+                if (i > 0) {
+                    script.append(',');
+                }
+                script.append(slot).append(',').append(memberLat[slot]).append(',').append(memberLng[slot]);
+                memberDirty[slot] = false;
+            }
+            script.append(']');
+        }
+        script.append("});");
+
+        hasPosition = false;
+        highlightedIds = null;
+        paused = -1;
+        reloadZones = false;
+        trailPoints = 0;
+        clearMembers = false;
+        removedMembers.clear();
+        namedMembers.clear();
+        memberNames.clear();
+        dirtyMemberCount = 0;
+        pendingCommands = 0;
+        return script.toString();
+    }
+
+    private void onEnqueue() {
+        if (pendingCommands == 0) {
+            oldestEnqueueNanos = System.nanoTime();
+        }
+        pendingCommands++;
+        enqueued++;
+    }
+
+    private void decimateTrail() {
+        // Keep the newest point and every other one before it
+        int kept = 0;
+        for (int i = trailPoints % 2 == 0 ? 1 : 0; i < trailPoints; i += 2) {
+            trail[2 * kept] = trail[2 * i];
+            trail[2 * kept + 1] = trail[2 * i + 1];
+            kept++;
+        }
+        droppedTrailPoints += trailPoints - kept;
+        trailPoints = kept;
+    }
+
+    private static boolean separator(StringBuilder script, boolean first) {
+        if (!first) {
+            script.append(',');
+        }
+        return false;
+    }
+
+    private static void appendQuoted(StringBuilder script, String value) {
+        script.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                script.append('\\').append(c);
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                script.append(String.format("\\u%04x", (int) c));
+            } else {
+                script.append(c);
+            }
+        }
+        script.append('"');
+    }
+}
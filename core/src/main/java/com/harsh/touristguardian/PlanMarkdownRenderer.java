@@ -0,0 +1,355 @@
+package com.harsh.touristguardian;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the planner's markdown into styled text split into one section per day.
+ *
+ * Text can be fed in arbitrary chunks as it streams in: every complete line is rendered once, in a
+ * single left-to-right pass, so the total work is linear in the plan length. Styles are recorded as
+ * plain (start, end, style) ranges; PlanSectionAdapter turns them into Android spans.
+ *
+ * Supported: "#" headings, "**bold**", "*italic*" / "_italic_", "`code`", "*", "-", "+" bullets,
+ * "---" rules (dropped) and blank lines (collapsed to one paragraph break). A "Day N" line, or a
+ * "#"/"##" heading, starts a new section; text before the first one forms an overview section.
+ *
+ * Not thread-safe; feed and read it from one thread.
+ */
+public class PlanMarkdownRenderer {
+
+    public static final int STYLE_BOLD = 1;
+    public static final int STYLE_ITALIC = 2;
+    public static final int STYLE_CODE = 3;
+    public static final int STYLE_HEADING = 4;
+    public static final int STYLE_BULLET = 5;
+
+    private final List<Section> sections = new ArrayList<>();
+    private final StringBuilder pendingLine = new StringBuilder();
+    private boolean blankLinePending;
+    private boolean finished;
+
+    /**
+     * Render the complete lines in the chunk; a trailing partial line waits for the next chunk
+     */
+    public void append(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n') {
+                renderLine(pendingLine);
+                pendingLine.setLength(0);
+            } else if (c != '\r') {
+                pendingLine.append(c);
+            }
+        }
+    }
+
+    /**
+     * Render the last line (call once the stream has ended)
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (pendingLine.length() > 0) {
+            renderLine(pendingLine);
+            pendingLine.setLength(0);
+        }
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    public Section getSection(int index) {
+        return sections.get(index);
+    }
+
+    /**
+     * Rendered text of all sections without markup (for sharing)
+     */
+    public String getPlainText() {
+        StringBuilder text = new StringBuilder();
+        for (Section section : sections) {
+            if (text.length() > 0) {
+                text.append("\n\n");
+            }
+            text.append(section.text, 0, section.getVisibleLength());
+        }
+        return text.toString();
+    }
+
+    private void renderLine(CharSequence line) {
+        int length = line.length();
+        int start = 0;
+        while (start < length && (line.charAt(start) == ' ' || line.charAt(start) == '\t')) {
+            start++;
+        }
+        if (start == length) {
+            blankLinePending = true;
+            return;
+        }
+        if (isRule(line, start)) {
+            blankLinePending = true;
+            return;
+        }
+
+        // Heading level ("## Title" -> 2)
+        int level = 0;
+        while (start + level < length && level < 6 && line.charAt(start + level) == '#') {
+            level++;
+        }
+        if (level > 0 && start + level < length && line.charAt(start + level) == ' ') {
+            start += level + 1;
+        } else {
+            level = 0;
+        }
+
+        boolean bullet = false;
+        if (level == 0 && start + 1 < length && line.charAt(start + 1) == ' ') {
+            char marker = line.charAt(start);
+            bullet = marker == '*' || marker == '-' || marker == '+' || marker == '•';
+            if (bullet) {
+                start += 2;
+            }
+        }
+
+        boolean day = !bullet && isDayTitle(line, start);
+        Section section = currentSection();
+        if ((day || level == 1 || level == 2) && section.text.length() > 0) {
+            section = new Section(sections.size());
+            sections.add(section);
+            blankLinePending = false;
+        }
+        if (section.text.length() == 0 && (day || level > 0)) {
+            section.title = stripMarkup(line, start);
+        }
+
+        StringBuilder text = section.text;
+        if (blankLinePending && text.length() > 0) {
+            text.append('\n');
+        }
+        blankLinePending = false;
+
+        int lineStart = text.length();
+        renderInline(section, line, start);
+        if (day || level > 0) {
+            section.addSpan(lineStart, text.length(), STYLE_HEADING);
+        }
+        text.append('\n');
+        if (bullet) {
+            // Paragraph styles cover the line break too
+            section.addSpan(lineStart, text.length(), STYLE_BULLET);
+        }
+        section.version++;
+    }
+
+    /**
+     * Inline emphasis and code in one pass; emphasis markers left open at the end of the line are
+     * put back as plain text
+     */
+    private static void renderInline(Section section, CharSequence line, int from) {
+        StringBuilder text = section.text;
+        int length = line.length();
+        int firstSpan = section.spans.size();
+        int boldStart = -1;
+        int italicStart = -1;
+        char italicMarker = 0;
+        int codeStart = -1;
+
+        for (int i = from; i < length; i++) {
+            char c = line.charAt(i);
+            char next = i + 1 < length ? line.charAt(i + 1) : ' ';
+
+            if (codeStart >= 0) {
+                if (c == '`') {
+                    section.addSpan(codeStart, text.length(), STYLE_CODE);
+                    codeStart = -1;
+                } else {
+                    text.append(c);
+                }
+                continue;
+            }
+
+            if (c == '\\' && i + 1 < length && isPunctuation(next)) {
+                text.append(next);
+                i++;
+            } else if (c == '`') {
+                codeStart = text.length();
+            } else if (c == '*' && next == '*') {
+                if (boldStart >= 0) {
+                    section.addSpan(boldStart, text.length(), STYLE_BOLD);
+                    boldStart = -1;
+                } else {
+                    boldStart = text.length();
+                }
+                i++;
+            } else if ((c == '*' || c == '_') && italicStart >= 0 && c == italicMarker
+                    && !Character.isWhitespace(line.charAt(i - 1)) && !Character.isLetterOrDigit(next)) {
+                section.addSpan(italicStart, text.length(), STYLE_ITALIC);
+                italicStart = -1;
+            } else if ((c == '*' || c == '_') && italicStart < 0 && !Character.isWhitespace(next)
+                    && (i == from || !Character.isLetterOrDigit(line.charAt(i - 1)))) {
+                italicStart = text.length();
+                italicMarker = c;
+            } else {
+                text.append(c);
+            }
+        }
+
+        if (codeStart >= 0) {
+            section.addSpan(codeStart, text.length(), STYLE_CODE);
+        }
+        // Later position first so the earlier one stays valid
+        if (boldStart > italicStart) {
+            restoreMarker(section, firstSpan, boldStart, "**");
+            boldStart = -1;
+        }
+        if (italicStart >= 0) {
+            restoreMarker(section, firstSpan, italicStart, String.valueOf(italicMarker));
+        }
+        if (boldStart >= 0) {
+            restoreMarker(section, firstSpan, boldStart, "**");
+        }
+    }
+
+    /**
+     * Insert an unmatched marker back into the current line and shift the line's spans after it
+     */
+    private static void restoreMarker(Section section, int firstSpan, int position, String marker) {
+        section.text.insert(position, marker);
+        for (int i = firstSpan; i < section.spans.size(); i++) {
+            int[] span = section.spans.get(i);
+            if (span[0] >= position) {
+                span[0] += marker.length();
+            }
+            if (span[1] > position) {
+                span[1] += marker.length();
+            }
+        }
+    }
+
+    private Section currentSection() {
+        if (sections.isEmpty()) {
+            sections.add(new Section(0));
+        }
+        return sections.get(sections.size() - 1);
+    }
+
+    /**
+     * "Day 3", "**Day 3:**" or "Day 3 -", case-insensitive
+     */
+    private static boolean isDayTitle(CharSequence line, int from) {
+        int i = from;
+        while (i < line.length() && (line.charAt(i) == '*' || line.charAt(i) == '_')) {
+            i++;
+        }
+        if (i + 4 > line.length()) {
+            return false;
+        }
+        if (Character.toLowerCase(line.charAt(i)) != 'd'
+                || Character.toLowerCase(line.charAt(i + 1)) != 'a'
+                || Character.toLowerCase(line.charAt(i + 2)) != 'y') {
+            return false;
+        }
+        i += 3;
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i < line.length() && Character.isDigit(line.charAt(i));
+    }
+
+    /**
+     * "---", "***" or "___"
+     */
+    private static boolean isRule(CharSequence line, int from) {
+        char marker = line.charAt(from);
+        if (marker != '-' && marker != '*' && marker != '_') {
+            return false;
+        }
+        int count = 0;
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == marker) {
+                count++;
+            } else if (c != ' ') {
+                return false;
+            }
+        }
+        return count >= 3;
+    }
+
+    private static boolean isPunctuation(char c) {
+        return "\\`*_#-+.!()[]{}".indexOf(c) >= 0;
+    }
+
+    private static String stripMarkup(CharSequence line, int from) {
+        StringBuilder title = new StringBuilder();
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c != '*' && c != '_' && c != '`' && c != '#') {
+                title.append(c);
+            }
+        }
+        return title.toString().trim();
+    }
+
+    /**
+     * One day (or the overview / a top-level topic) of the plan
+     */
+    public static class Section {
+        private final int index;
+        private final StringBuilder text = new StringBuilder();
+        private final List<int[]> spans = new ArrayList<>();
+        private String title = "";
+        private int version;
+
+        Section(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public CharSequence getText() {
+            return text;
+        }
+
+        /**
+         * Length of the text without trailing line breaks
+         */
+        public int getVisibleLength() {
+            int length = text.length();
+            while (length > 0 && text.charAt(length - 1) == '\n') {
+                length--;
+            }
+            return length;
+        }
+
+        /**
+         * Style ranges as {start, end, STYLE_*}
+         */
+        public List<int[]> getSpans() {
+            return spans;
+        }
+
+        /**
+         * Changes whenever a line is added, so views can skip rebuilding unchanged sections
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        private void addSpan(int start, int end, int style) {
+            if (end > start) {
+                spans.add(new int[]{start, end, style});
+            }
+        }
+    }
+}
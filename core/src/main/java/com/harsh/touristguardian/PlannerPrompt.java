@@ -0,0 +1,59 @@
+package com.harsh.touristguardian;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Prompt and request body of an itinerary request to the Groq chat completions API
+ * (OpenAI-compatible format).
+ */
+public final class PlannerPrompt {
+
+    public static final int MAX_TOKENS = 2048;
+    public static final double TEMPERATURE = 0.7;
+
+    // Changes whenever create() changes, so cached plans from an older prompt are not reused
+    public static final String VERSION = Integer.toHexString(create("{destination}", 0).hashCode());
+
+    private PlannerPrompt() {
+    }
+
+    /**
+     * Create prompt for AI
+     */
+    public static String create(String destination, int days) {
+        return "Create a detailed " + days + "-day travel itinerary for " + destination + ", India. " +
+                "Include:\n" +
+                "1. Day-by-day schedule with specific places to visit\n" +
+                "2. Best time to visit each place\n" +
+                "3. Estimated travel time between locations\n" +
+                "4. Safety tips specific to " + destination + "\n" +
+                "5. Local cuisine recommendations\n" +
+                "6. Budget estimates (budget, mid-range, luxury options)\n" +
+                "7. Important cultural notes and customs\n" +
+                "8. Emergency contacts for " + destination + "\n\n" +
+                "Format the response in a clear, organized manner with sections for each day. " +
+                "Make it practical and tourist-friendly. Use bullet points and clear headings.";
+    }
+
+    /**
+     * JSON body of a streamed chat completion with the prompt as the only user message
+     */
+    public static String requestBody(String model, String prompt) throws JSONException {
+        JSONObject jsonBody = new JSONObject();
+        jsonBody.put("model", model);
+
+        JSONArray messagesArray = new JSONArray();
+        JSONObject messageObject = new JSONObject();
+        messageObject.put("role", "user");
+        messageObject.put("content", prompt);
+        messagesArray.put(messageObject);
+
+        jsonBody.put("messages", messagesArray);
+        jsonBody.put("max_tokens", MAX_TOKENS);
+        jsonBody.put("temperature", TEMPERATURE);
+        jsonBody.put("stream", true);
+        return jsonBody.toString();
+    }
+}
@@ -0,0 +1,358 @@
+package com.harsh.touristguardian;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warns before the user reaches a danger zone, from the direction and speed they are moving in.
+ *
+ * Velocity is estimated from the fix stream (the fix's own speed and bearing when it has them,
+ * otherwise the displacement since an earlier fix once it exceeds the accuracy), smoothed over a
+ * few seconds. For every candidate zone the engine then solves when the straight-line path would
+ * cross the zone's circle and raises the most urgent result as a tier: NOTICE, WARNING, CRITICAL or INSIDE.
+ *
+ * A zone is alerted at most once per tier within ZONE_COOLDOWN_MILLIS: only a higher tier than the
+ * one last alerted for it gets through, so tiers or urgent zones flapping at a threshold stay quiet.
+ *
+ * Candidates are the nearest zones from the index, copied into primitive arrays when the engine
+ * re-queries (only after the user moved far enough). The per-fix kernel works in a local
+ * equirectangular frame around the fix, so it needs no trigonometry or allocation per zone; a few
+ * thousand zones cost microseconds.
+ *
+ * Not thread-safe; call onFix() from one thread.
+ */
+public class ProximityEngine {
+
+    public static final int TIER_NONE = 0;
+    public static final int TIER_NOTICE = 1;
+    public static final int TIER_WARNING = 2;
+    public static final int TIER_CRITICAL = 3;
+    public static final int TIER_INSIDE = 4;
+
+    public static final int DEFAULT_CANDIDATE_COUNT = 64;
+
+    // Time-to-boundary thresholds of the tiers
+    private static final double NOTICE_SECONDS = 300;
+    private static final double WARNING_SECONDS = 120;
+    private static final double CRITICAL_SECONDS = 30;
+    // Close to an edge is worth a notice even when standing still
+    private static final double NOTICE_DISTANCE_METERS = 100;
+    // Below this the heading is noise
+    private static final double MIN_SPEED_MPS = 0.5;
+    private static final double SMOOTHING_SECONDS = 5;
+    private static final double MIN_STEP_METERS = 10;
+    // No displacement beyond the fix accuracy for this long means standing still
+    private static final double STATIONARY_SECONDS = 30;
+    private static final double REQUERY_MARGIN_KM = 1.0;
+    private static final double METERS_PER_DEGREE = GeoMath.KM_PER_DEGREE_LAT * 1000;
+    private static final long ZONE_COOLDOWN_MILLIS = 10 * 60_000;
+
+    /**
+     * Receives the most urgent zone's tier when it is higher than the last one alerted for that
+     * zone, or when the zone's cooldown has passed
+     */
+    public interface Listener {
+        void onProximity(int tier, DangerZone zone, double secondsToBoundary, double distanceMeters);
+    }
+
+    private final GeofenceEngine.ZoneSource zoneSource;
+    private final int candidateCount;
+    private final Listener listener;
+
+    // Candidates as primitive columns
+    private DangerZone[] zones = new DangerZone[0];
+    private double[] zoneLat = new double[0];
+    private double[] zoneLng = new double[0];
+    private double[] zoneRadiusM = new double[0];
+    private int zoneCount;
+    private boolean hasQuery;
+    private double queryLat;
+    private double queryLng;
+    private double horizonKm;
+
+    // Motion estimate (east/north, m/s)
+    private boolean hasFix;
+    private long lastTimeMillis;
+    // Position the next displacement-based measurement is taken from
+    private boolean hasAnchor;
+    private double anchorLat;
+    private double anchorLng;
+    private long anchorTimeMillis;
+    private double velocityEast;
+    private double velocityNorth;
+
+    // Result of the last fix
+    private int tier = TIER_NONE;
+    private int urgentIndex = -1;
+    private double secondsToBoundary = Double.POSITIVE_INFINITY;
+    private double distanceMeters = Double.POSITIVE_INFINITY;
+    // Last alert per zone id, dropped once its cooldown has passed
+    private final Map<String, ZoneAlert> alerts = new HashMap<>();
+
+    // Stats
+    private long fixCount;
+    private long totalEvalNanos;
+    private long maxEvalNanos;
+
+    public ProximityEngine(GeofenceEngine.ZoneSource zoneSource, Listener listener) {
+        this(zoneSource, DEFAULT_CANDIDATE_COUNT, listener);
+    }
+
+    public ProximityEngine(GeofenceEngine.ZoneSource zoneSource, int candidateCount, Listener listener) {
+        this.zoneSource = zoneSource;
+        this.candidateCount = candidateCount;
+        this.listener = listener;
+    }
+
+    /**
+     * Evaluate one fix; speed (m/s) and bearing (degrees) may be NaN when unknown
+     */
+    public void onFix(double lat, double lng, float accuracyMeters, float speedMps, float bearingDegrees, long timeMillis) {
+        long start = System.nanoTime();
+        updateVelocity(lat, lng, accuracyMeters, speedMps, bearingDegrees, timeMillis);
+
+        double moved = hasQuery ? GeoMath.haversineKm(queryLat, queryLng, lat, lng) : 0;
+        if (!hasQuery || horizonKm - moved < REQUERY_MARGIN_KM) {
+            requery(lat, lng);
+        }
+        evaluate(lat, lng);
+
+        long elapsed = System.nanoTime() - start;
+        fixCount++;
+        totalEvalNanos += elapsed;
+        maxEvalNanos = Math.max(maxEvalNanos, elapsed);
+
+        if (tier > TIER_NONE && shouldAlert(zones[urgentIndex], tier, timeMillis) && listener != null) {
+            listener.onProximity(tier, zones[urgentIndex], secondsToBoundary, distanceMeters);
+        }
+    }
+
+    private boolean shouldAlert(DangerZone zone, int tier, long timeMillis) {
+        ZoneAlert last = alerts.get(zone.getId());
+        if (last != null && timeMillis - last.timeMillis < ZONE_COOLDOWN_MILLIS && tier <= last.tier) {
+            return false;
+        }
+        for (Iterator<ZoneAlert> it = alerts.values().iterator(); it.hasNext(); ) {
+            if (timeMillis - it.next().timeMillis >= ZONE_COOLDOWN_MILLIS) {
+                it.remove();
+            }
+        }
+        alerts.put(zone.getId(), new ZoneAlert(tier, timeMillis));
+        return true;
+    }
+
+    /**
+     * Force a fresh index query on the next fix (call after the zone set changes)
+     */
+    public void invalidate() {
+        hasQuery = false;
+    }
+
+    private void updateVelocity(double lat, double lng, float accuracyMeters, float speedMps,
+                                float bearingDegrees, long timeMillis) {
+        if (hasFix && timeMillis <= lastTimeMillis) {
+            return;
+        }
+        double east;
+        double north;
+        if (!Float.isNaN(speedMps) && !Float.isNaN(bearingDegrees)) {
+            double bearing = Math.toRadians(bearingDegrees);
+            east = speedMps * Math.sin(bearing);
+            north = speedMps * Math.cos(bearing);
+        } else if (!hasAnchor) {
+            setAnchor(lat, lng, timeMillis);
+            return;
+        } else {
+            // Measure over a displacement larger than the fix accuracy, or the direction is noise
+            double dt = (timeMillis - anchorTimeMillis) / 1000.0;
+            if (dt <= 0) {
+                return;
+            }
+            double dEast = (lng - anchorLng) * METERS_PER_DEGREE * Math.cos(Math.toRadians(lat));
+            double dNorth = (lat - anchorLat) * METERS_PER_DEGREE;
+            double step = Math.max(MIN_STEP_METERS, accuracyMeters);
+            if (dEast * dEast + dNorth * dNorth >= step * step) {
+                east = dEast / dt;
+                north = dNorth / dt;
+            } else if (dt >= STATIONARY_SECONDS) {
+                east = 0;
+                north = 0;
+            } else {
+                return;
+            }
+            setAnchor(lat, lng, timeMillis);
+        }
+
+        if (!hasFix) {
+            velocityEast = east;
+            velocityNorth = north;
+        } else {
+            double alpha = 1 - Math.exp(-(timeMillis - lastTimeMillis) / 1000.0 / SMOOTHING_SECONDS);
+            velocityEast += alpha * (east - velocityEast);
+            velocityNorth += alpha * (north - velocityNorth);
+        }
+        hasFix = true;
+        lastTimeMillis = timeMillis;
+    }
+
+    private void setAnchor(double lat, double lng, long timeMillis) {
+        hasAnchor = true;
+        anchorLat = lat;
+        anchorLng = lng;
+        anchorTimeMillis = timeMillis;
+    }
+
+    private void requery(double lat, double lng) {
+        List<DangerZone> nearest = zoneSource.nearest(lat, lng, candidateCount);
+        int count = nearest.size();
+        if (zones.length < count) {
+            zones = new DangerZone[count];
+            zoneLat = new double[count];
+            zoneLng = new double[count];
+            zoneRadiusM = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            DangerZone zone = nearest.get(i);
+            zones[i] = zone;
+            zoneLat[i] = zone.getLat();
+            zoneLng[i] = zone.getLng();
+            zoneRadiusM[i] = zone.getRadiusKm() * 1000;
+        }
+        for (int i = count; i < zoneCount; i++) {
+            zones[i] = null;
+        }
+        zoneCount = count;
+        queryLat = lat;
+        queryLng = lng;
+        hasQuery = true;
+        horizonKm = count < candidateCount
+                ? Double.POSITIVE_INFINITY
+                : nearest.get(count - 1).distanceToBoundaryKm(lat, lng);
+    }
+
+    /**
+     * Time-to-boundary kernel over all candidates
+     */
+    private void evaluate(double lat, double lng) {
+        double metersPerDegreeLng = METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        double ve = velocityEast;
+        double vn = velocityNorth;
+        double speedSq = ve * ve + vn * vn;
+        boolean moving = speedSq >= MIN_SPEED_MPS * MIN_SPEED_MPS;
+        // Zones farther than this cannot be reached within the notice time
+        double reach = NOTICE_DISTANCE_METERS + (moving ? Math.sqrt(speedSq) * NOTICE_SECONDS : 0);
+
+        int bestIndex = -1;
+        double bestSeconds = Double.POSITIVE_INFINITY;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        boolean inside = false;
+
+        for (int i = 0; i < zoneCount; i++) {
+            // Vector from the user to the zone centre, in metres
+            double cx = (zoneLng[i] - lng) * metersPerDegreeLng;
+            double cy = (zoneLat[i] - lat) * METERS_PER_DEGREE;
+            double radius = zoneRadiusM[i];
+            double centreSq = cx * cx + cy * cy;
+            double limit = radius + reach;
+            if (centreSq > limit * limit) {
+                continue;
+            }
+            double distance = Math.sqrt(centreSq) - radius;
+            if (distance <= 0) {
+                // Inside: the deepest zone wins
+                if (!inside || distance < bestDistance) {
+                    inside = true;
+                    bestIndex = i;
+                    bestDistance = distance;
+                    bestSeconds = 0;
+                }
+                continue;
+            }
+            if (inside) {
+                continue;
+            }
+            double seconds = Double.POSITIVE_INFINITY;
+            if (moving) {
+                // Smallest t with |c - v t| = r
+                double dot = cx * ve + cy * vn;
+                if (dot > 0) {
+                    double discriminant = dot * dot - speedSq * (centreSq - radius * radius);
+                    if (discriminant >= 0) {
+                        seconds = (dot - Math.sqrt(discriminant)) / speedSq;
+                    }
+                }
+            }
+            if (seconds < bestSeconds || (seconds == bestSeconds && distance < bestDistance)) {
+                bestIndex = i;
+                bestSeconds = seconds;
+                bestDistance = distance;
+            }
+        }
+
+        urgentIndex = bestIndex;
+        secondsToBoundary = bestSeconds;
+        distanceMeters = bestIndex >= 0 ? Math.max(0, bestDistance) : Double.POSITIVE_INFINITY;
+        if (inside) {
+            tier = TIER_INSIDE;
+        } else if (bestSeconds <= CRITICAL_SECONDS) {
+            tier = TIER_CRITICAL;
+        } else if (bestSeconds <= WARNING_SECONDS) {
+            tier = TIER_WARNING;
+        } else if (bestSeconds <= NOTICE_SECONDS || bestDistance <= NOTICE_DISTANCE_METERS) {
+            tier = TIER_NOTICE;
+        } else {
+            tier = TIER_NONE;
+        }
+    }
+
+    public int getTier() {
+        return tier;
+    }
+
+    /**
+     * Most urgent zone as of the last fix, or null
+     */
+    public DangerZone getUrgentZone() {
+        return urgentIndex >= 0 ? zones[urgentIndex] : null;
+    }
+
+    public double getSecondsToBoundary() {
+        return secondsToBoundary;
+    }
+
+    public double getSpeedMps() {
+        return Math.sqrt(velocityEast * velocityEast + velocityNorth * velocityNorth);
+    }
+
+    /**
+     * Estimated heading in degrees clockwise from north
+     */
+    public double getHeadingDegrees() {
+        double heading = Math.toDegrees(Math.atan2(velocityEast, velocityNorth));
+        return heading < 0 ? heading + 360 : heading;
+    }
+
+    public long getFixCount() {
+        return fixCount;
+    }
+
+    public double getAverageEvalMicros() {
+        return fixCount == 0 ? 0 : totalEvalNanos / 1000.0 / fixCount;
+    }
+
+    public double getMaxEvalMicros() {
+        return maxEvalNanos / 1000.0;
+    }
+
+    private static final class ZoneAlert {
+        final int tier;
+        final long timeMillis;
+
+        ZoneAlert(int tier, long timeMillis) {
+            this.tier = tier;
+            this.timeMillis = timeMillis;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.harsh.touristguardian;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * When and how long to wait before retrying an HTTP call.
+ *
+ * Backoff is exponential with "equal jitter" (half fixed, half random), so clients that failed
+ * together do not retry together. A provider's own hint (Retry-After, or a rate-limit reset
+ * header such as "2m59.56s") always wins when it asks for a longer wait.
+ */
+public class RetryPolicy {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random;
+
+    public RetryPolicy(int maxRetries, long baseDelayMillis, long maxDelayMillis, Random random) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.random = random;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * HTTP statuses worth retrying (rate limited, timeouts and server errors)
+     */
+    public static boolean isRetryable(int code) {
+        return code == 408 || code == 425 || code == 429 || code >= 500;
+    }
+
+    /**
+     * Delay before retry number `retry` (1-based), at least serverDelayMillis (-1 if none)
+     */
+    public long delayMillis(int retry, long serverDelayMillis) {
+        long exponential = Math.min(maxDelayMillis, baseDelayMillis << Math.min(30, retry - 1));
+        long half = exponential / 2;
+        long jittered = half + (half > 0 ? (long) (random.nextDouble() * half) : 0);
+        return Math.max(jittered, serverDelayMillis);
+    }
+
+    /**
+     * Retry-After as delay-seconds or an HTTP date; -1 when missing or unreadable
+     */
+    public static long parseRetryAfterMillis(String value, long nowMillis) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Math.round(Double.parseDouble(trimmed) * 1000));
+        } catch (NumberFormatException e) {
+            // Not seconds, try a date
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(trimmed).getTime() - nowMillis);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Durations like "2m59.56s", "7.66s", "120ms" or "1h" (rate-limit reset headers); -1 if unreadable
+     */
+    public static long parseDurationMillis(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double total = 0;
+        int end = 0;
+        while (matcher.find()) {
+            if (matcher.start() != end) {
+                return -1;
+            }
+            end = matcher.end();
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h":
+                    total += amount * 3_600_000;
+                    break;
+                case "m":
+                    total += amount * 60_000;
+                    break;
+                case "s":
+                    total += amount * 1000;
+                    break;
+                default:
+                    total += amount;
+                    break;
+            }
+        }
+        return end == value.trim().length() && end > 0 ? Math.round(total) : -1;
+    }
+}
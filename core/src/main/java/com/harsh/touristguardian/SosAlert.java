@@ -0,0 +1,107 @@
+package com.harsh.touristguardian;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One SOS alert: where the user was when it fired, and the better positions that came in after.
+ *
+ * The first position is whatever fix was at hand when SOS was tapped (possibly none); later
+ * fixes replace it only when they are clearly better, so the stored alert does not jitter.
+ */
+public class SosAlert {
+
+    // A refined fix must be this much more accurate, or this much newer, to replace the current one
+    private static final float ACCURACY_GAIN = 0.8f;
+    private static final long NEWER_MILLIS = 15_000;
+
+    private final String id;
+    private final long createdAt;
+    private boolean hasFix;
+    private double latitude;
+    private double longitude;
+    private float accuracyMeters;
+    private long fixTime;
+    private int refinements;
+
+    public SosAlert(String id, long createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Take the fix if it is the first one or clearly better; returns whether it was taken
+     */
+    public boolean offerFix(double latitude, double longitude, float accuracyMeters, long fixTime) {
+        if (hasFix && accuracyMeters > this.accuracyMeters * ACCURACY_GAIN && fixTime - this.fixTime < NEWER_MILLIS) {
+            return false;
+        }
+        if (hasFix) {
+            refinements++;
+        }
+        hasFix = true;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyMeters = accuracyMeters;
+        this.fixTime = fixTime;
+        return true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean hasFix() {
+        return hasFix;
+    }
+
+    public int getRefinements() {
+        return refinements;
+    }
+
+    /**
+     * Text for SMS/WhatsApp
+     */
+    public String buildMessage() {
+        return buildMessage(hasFix, latitude, longitude, accuracyMeters);
+    }
+
+    public static String buildMessage(boolean hasFix, double latitude, double longitude, float accuracyMeters) {
+        StringBuilder message = new StringBuilder("🚨 SOS EMERGENCY 🚨\n\nI need immediate help!\n\n");
+        if (!hasFix) {
+            return message.append("My location is not known yet.").toString();
+        }
+        return message.append("My Location:\n")
+                .append("Latitude: ").append(latitude).append('\n')
+                .append("Longitude: ").append(longitude).append('\n')
+                .append(String.format(Locale.US, "Accuracy: about %.0f m\n\n", accuracyMeters))
+                .append("Google Maps: https://maps.google.com/?q=").append(latitude).append(',').append(longitude)
+                .toString();
+    }
+
+    /**
+     * Whole alert as stored under Users/$uid/sos/$id
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("createdAt", createdAt);
+        map.putAll(locationFields());
+        return map;
+    }
+
+    /**
+     * Fields that change when a better fix arrives
+     */
+    public Map<String, Object> locationFields() {
+        Map<String, Object> map = new HashMap<>();
+        if (hasFix) {
+            map.put("lat", latitude);
+            map.put("lng", longitude);
+            map.put("accuracy", (double) accuracyMeters);
+            map.put("fixTime", fixTime);
+        }
+        map.put("refinements", refinements);
+        return map;
+    }
+}
@@ -0,0 +1,335 @@
+package com.harsh.touristguardian;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe journal of SOS events waiting to reach Firebase.
+ *
+ * Each record is [length][CRC32][payload] and is fsync'ed before append() returns, so an event that
+ * was enqueued survives the app being killed right after. An event record is later followed by an
+ * ack record once it has been replicated; replaying the file yields the events without an ack.
+ * A torn record at the end (crash mid-write) is dropped on open. When the file grows past
+ * COMPACT_BYTES it is rewritten with only the pending events.
+ *
+ * Thread-safe; does disk I/O, so call it off the main thread.
+ */
+public class SosJournal implements Closeable {
+
+    private static final byte RECORD_EVENT = 1;
+    private static final byte RECORD_ACK = 2;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    private static final long COMPACT_BYTES = 64 * 1024;
+
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_INT = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_BOOLEAN = 5;
+
+    private final File file;
+    private final LinkedHashMap<String, Event> pending = new LinkedHashMap<>();
+    private FileOutputStream output;
+    private long length;
+    private long droppedBytes;
+
+    public SosJournal(File file) throws IOException {
+        this.file = file;
+        // Leftover from a compaction that was interrupted before the rename
+        new File(file.getPath() + ".tmp").delete();
+        replay();
+        output = new FileOutputStream(file, true);
+    }
+
+    /**
+     * Key that sorts by creation time and is safe as a Firebase path segment
+     */
+    public static String newId(long nowMillis, Random random) {
+        return String.format(Locale.US, "%013d-%08x", nowMillis, random.nextInt());
+    }
+
+    /**
+     * Durably record the event (returns after fsync)
+     */
+    public synchronized void append(Event event) throws IOException {
+        writeRecord(output, encodeEvent(event));
+        output.getFD().sync();
+        pending.put(event.id, event);
+    }
+
+    /**
+     * Record that the events reached the server
+     */
+    public synchronized void markReplicated(Collection<String> eventIds) throws IOException {
+        boolean wrote = false;
+        for (String id : eventIds) {
+            if (pending.remove(id) != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream payload = new DataOutputStream(bytes);
+                payload.writeByte(RECORD_ACK);
+                payload.writeUTF(id);
+                writeRecord(output, bytes.toByteArray());
+                wrote = true;
+            }
+        }
+        if (wrote) {
+            output.getFD().sync();
+        }
+        // Usually everything is replicated and the rewrite leaves an empty file
+        if (length > COMPACT_BYTES && (pending.isEmpty() || length > 4 * COMPACT_BYTES)) {
+            compact();
+        }
+    }
+
+    /**
+     * Events not yet replicated, oldest first
+     */
+    public synchronized List<Event> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized long getLength() {
+        return length;
+    }
+
+    /**
+     * Bytes of a torn or corrupt tail dropped when the journal was opened
+     */
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+
+    private void writeRecord(FileOutputStream target, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + 8);
+        DataOutputStream header = new DataOutputStream(record);
+        header.writeInt(payload.length);
+        header.writeInt((int) crc.getValue());
+        header.write(payload);
+        // One write call per record keeps a crash from interleaving partial headers
+        target.write(record.toByteArray());
+        length += record.size();
+    }
+
+    /**
+     * Rewrite the file with only the pending events
+     */
+    private void compact() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        long previousLength = length;
+        length = 0;
+        try (FileOutputStream rewritten = new FileOutputStream(temp)) {
+            for (Event event : pending.values()) {
+                writeRecord(rewritten, encodeEvent(event));
+            }
+            rewritten.getFD().sync();
+        } catch (IOException e) {
+            length = previousLength;
+            temp.delete();
+            throw e;
+        }
+        output.close();
+        if (!temp.renameTo(file)) {
+            length = previousLength;
+            temp.delete();
+            output = new FileOutputStream(file, true);
+            throw new IOException("Could not replace " + file);
+        }
+        output = new FileOutputStream(file, true);
+    }
+
+    private void replay() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        long fileLength = file.length();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int size;
+                int crcValue;
+                byte[] payload;
+                try {
+                    size = input.readInt();
+                    crcValue = input.readInt();
+                    if (size < 1 || size > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    payload = new byte[size];
+                    input.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != crcValue || !apply(payload)) {
+                    break;
+                }
+                length += 8 + size;
+            }
+        }
+        if (length < fileLength) {
+            droppedBytes = fileLength - length;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length);
+            }
+        }
+    }
+
+    private boolean apply(byte[] payload) {
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = input.readByte();
+            if (type == RECORD_ACK) {
+                pending.remove(input.readUTF());
+                return true;
+            }
+            if (type != RECORD_EVENT) {
+                return false;
+            }
+            String id = input.readUTF();
+            String uid = input.readUTF();
+            String alertId = input.readUTF();
+            long createdAt = input.readLong();
+            int count = input.readInt();
+            Map<String, Object> fields = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = input.readUTF();
+                fields.put(key, readValue(input));
+            }
+            pending.put(id, new Event(id, uid, alertId, createdAt, fields));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] encodeEvent(Event event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(RECORD_EVENT);
+        payload.writeUTF(event.id);
+        payload.writeUTF(event.uid);
+        payload.writeUTF(event.alertId);
+        payload.writeLong(event.createdAt);
+        payload.writeInt(event.fields.size());
+        for (Map.Entry<String, Object> field : event.fields.entrySet()) {
+            payload.writeUTF(field.getKey());
+            writeValue(payload, field.getValue());
+        }
+        if (bytes.size() > MAX_RECORD_BYTES) {
+            throw new IOException("SOS event too large: " + bytes.size() + " bytes");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value instanceof String) {
+            output.writeByte(VALUE_STRING);
+            output.writeUTF((String) value);
+        } else if (value instanceof Long) {
+            output.writeByte(VALUE_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(VALUE_INT);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            output.writeByte(VALUE_DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(VALUE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported SOS field value: " + value);
+        }
+    }
+
+    private static Object readValue(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case VALUE_STRING:
+                return input.readUTF();
+            case VALUE_LONG:
+                return input.readLong();
+            case VALUE_INT:
+                return input.readInt();
+            case VALUE_DOUBLE:
+                return input.readDouble();
+            case VALUE_BOOLEAN:
+                return input.readBoolean();
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * One change to an SOS alert: its first snapshot or a later, better position
+     */
+    public static class Event {
+        private final String id;
+        private final String uid;
+        private final String alertId;
+        private final long createdAt;
+        private final Map<String, Object> fields;
+
+        public Event(String id, String uid, String alertId, long createdAt, Map<String, Object> fields) {
+            this.id = id;
+            this.uid = uid;
+            this.alertId = alertId;
+            this.createdAt = createdAt;
+            this.fields = Collections.unmodifiableMap(new LinkedHashMap<>(fields));
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUid() {
+            return uid;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * Add this event's writes to a multi-path update rooted at the database root.
+         * Re-sending an event writes the same values again, so replication is idempotent.
+         */
+        public void putUpdates(Map<String, Object> update) {
+            String base = "Users/" + uid + "/sos/" + alertId + "/";
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                update.put(base + field.getKey(), field.getValue());
+            }
+            update.put(base + "events/" + id, createdAt);
+        }
+    }
+}
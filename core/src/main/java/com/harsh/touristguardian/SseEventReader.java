@@ -0,0 +1,66 @@
+package com.harsh.touristguardian;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental reader for a text/event-stream (Server-Sent Events) body.
+ *
+ * Each call to nextData() reads just enough lines to complete the next event and returns its
+ * data field, so callers can act on every chunk as soon as it arrives instead of buffering the
+ * whole body. Comment lines and fields other than data (event, id, retry) are skipped; multi-line
+ * data is joined with '\n' as the SSE spec describes.
+ */
+public class SseEventReader implements Closeable {
+
+    private final BufferedReader reader;
+
+    public SseEventReader(InputStream input) {
+        reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Data of the next event, or null at the end of the stream
+     */
+    public String nextData() throws IOException {
+        StringBuilder data = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                // Blank line ends an event; events without data are ignored
+                if (data != null) {
+                    return data.toString();
+                }
+                continue;
+            }
+            if (line.startsWith(":") || !line.startsWith("data")) {
+                continue;
+            }
+            String value;
+            if (line.length() == 4) {
+                value = "";
+            } else if (line.charAt(4) == ':') {
+                value = line.length() > 5 && line.charAt(5) == ' ' ? line.substring(6) : line.substring(5);
+            } else {
+                // Some other field that happens to start with "data"
+                continue;
+            }
+            if (data == null) {
+                data = new StringBuilder(value);
+            } else {
+                data.append('\n').append(value);
+            }
+        }
+        // Stream ended without a trailing blank line
+        return data != null ? data.toString() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,146 @@
+package com.harsh.touristguardian;
+
+import java.util.Arrays;
+
+/**
+ * Ring of trail positions in two int columns (degrees x 1e7), no object per point. Storage starts
+ * small and doubles as points arrive, up to the capacity; once full, each new point overwrites the
+ * oldest one. Indices are logical: 0 is the oldest point.
+ *
+ * Points are also grouped in blocks of BLOCK_SIZE consecutive points, each with a bounding box, so
+ * a search for the points inside an area can skip whole blocks (blockIntersects(), blockLast()).
+ *
+ * Not thread-safe.
+ */
+public class TrailRing {
+
+    public static final int BLOCK_SIZE = 128;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int capacity;
+    private int[] latE7;
+    private int[] lngE7;
+    private int start;
+    private int size;
+    // Points added since the last clear(); point n is in block n / BLOCK_SIZE
+    private long added;
+    // Bounding boxes of the blocks, at block number modulo their length
+    private int[] blockSouth;
+    private int[] blockNorth;
+    private int[] blockWest;
+    private int[] blockEast;
+
+    public TrailRing(int capacity) {
+        this.capacity = capacity;
+        int length = Math.min(capacity, INITIAL_CAPACITY);
+        latE7 = new int[length];
+        lngE7 = new int[length];
+        int blocks = blockSlots(length);
+        blockSouth = new int[blocks];
+        blockNorth = new int[blocks];
+        blockWest = new int[blocks];
+        blockEast = new int[blocks];
+    }
+
+    public void add(int latE7, int lngE7) {
+        if (size == this.latE7.length && size < capacity) {
+            grow();
+        }
+        int length = this.latE7.length;
+        int slot;
+        if (size < length) {
+            slot = (start + size) % length;
+            size++;
+        } else {
+            slot = start;
+            start = (start + 1) % length;
+        }
+        this.latE7[slot] = latE7;
+        this.lngE7[slot] = lngE7;
+
+        int block = (int) (added / BLOCK_SIZE % blockSouth.length);
+        if (added % BLOCK_SIZE == 0) {
+            // The slot's previous block has been overwritten entirely by now
+            blockSouth[block] = latE7;
+            blockNorth[block] = latE7;
+            blockWest[block] = lngE7;
+            blockEast[block] = lngE7;
+        } else {
+            blockSouth[block] = Math.min(blockSouth[block], latE7);
+            blockNorth[block] = Math.max(blockNorth[block], latE7);
+            blockWest[block] = Math.min(blockWest[block], lngE7);
+            blockEast[block] = Math.max(blockEast[block], lngE7);
+        }
+        added++;
+    }
+
+    /**
+     * Double the storage (only while nothing has been overwritten, so start is 0)
+     */
+    private void grow() {
+        int length = (int) Math.min(capacity, 2L * latE7.length);
+        latE7 = Arrays.copyOf(latE7, length);
+        lngE7 = Arrays.copyOf(lngE7, length);
+        // Block numbers are still below the old slot count, so they keep their slots
+        int blocks = blockSlots(length);
+        blockSouth = Arrays.copyOf(blockSouth, blocks);
+        blockNorth = Arrays.copyOf(blockNorth, blocks);
+        blockWest = Arrays.copyOf(blockWest, blocks);
+        blockEast = Arrays.copyOf(blockEast, blocks);
+    }
+
+    private static int blockSlots(int length) {
+        // A full ring spans at most length / BLOCK_SIZE + 1 blocks (partial ones at both ends)
+        return length / BLOCK_SIZE + 2;
+    }
+
+    /**
+     * Append all points of the other ring, oldest first
+     */
+    public void addAll(TrailRing other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.latE7(i), other.lngE7(i));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int latE7(int index) {
+        return latE7[(start + index) % latE7.length];
+    }
+
+    public int lngE7(int index) {
+        return lngE7[(start + index) % lngE7.length];
+    }
+
+    /**
+     * Last index in the same block as the given one
+     */
+    public int blockLast(int index) {
+        long first = added - size;
+        long block = (first + index) / BLOCK_SIZE;
+        return (int) Math.min(size - 1, (block + 1) * BLOCK_SIZE - 1 - first);
+    }
+
+    /**
+     * Whether the bounding box of the block holding the index overlaps the area (false means no
+     * point of that block is inside)
+     */
+    public boolean blockIntersects(int index, int southE7, int westE7, int northE7, int eastE7) {
+        int block = (int) ((added - size + index) / BLOCK_SIZE % blockSouth.length);
+        return blockSouth[block] <= northE7 && blockNorth[block] >= southE7
+                && blockWest[block] <= eastE7 && blockEast[block] >= westE7;
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+        added = 0;
+    }
+}
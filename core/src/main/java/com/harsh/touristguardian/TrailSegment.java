@@ -0,0 +1,189 @@
+package com.harsh.touristguardian;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding of a run of trail fixes, as stored in the trail/ segment files.
+ *
+ * Layout: magic, version, point count, first latitude/longitude (degrees x 1e7) and first time
+ * (tenths of a second), then per point the zig-zag varint deltas of latitude and longitude, the
+ * time delta and the accuracy in meters, and a CRC32 trailer. A walking fix at 1 Hz takes about six
+ * bytes, so a week of 1 Hz tracking is a few MB.
+ */
+public final class TrailSegment {
+
+    private static final int MAGIC = 0x54475452; // "TGTR"
+    private static final int VERSION = 1;
+    private static final int MAX_ACCURACY_METERS = 65_535;
+
+    /**
+     * Receives decoded points without allocating per point
+     */
+    public interface Sink {
+        void point(int latE7, int lngE7, long timeMillis, int accuracyMeters);
+    }
+
+    private TrailSegment() {
+    }
+
+    /**
+     * Decode a segment; throws IOException when it is truncated or corrupt
+     */
+    public static int decode(byte[] data, Sink sink) throws IOException {
+        if (data.length < 4) {
+            throw new IOException("Trail segment too short");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        Reader reader = new Reader(data, data.length - 4);
+        if (readIntBE(data, data.length - 4) != (int) crc.getValue()) {
+            throw new IOException("Trail segment checksum mismatch");
+        }
+        if (reader.readFixedInt() != MAGIC || reader.readVarint() != VERSION) {
+            throw new IOException("Not a trail segment");
+        }
+        int count = (int) reader.readVarint();
+        int lat = reader.readFixedInt();
+        int lng = reader.readFixedInt();
+        long timeDs = reader.readVarint();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                lat += (int) unzigzag(reader.readVarint());
+                lng += (int) unzigzag(reader.readVarint());
+                timeDs += reader.readVarint();
+            }
+            sink.point(lat, lng, timeDs * 100, (int) reader.readVarint());
+        }
+        return count;
+    }
+
+    /**
+     * Collects fixes and encodes them into one segment
+     */
+    public static class Builder {
+        private int[] latE7 = new int[256];
+        private int[] lngE7 = new int[256];
+        private long[] timeMillis = new long[256];
+        private int[] accuracy = new int[256];
+        private int size;
+
+        public void add(int latE7, int lngE7, long timeMillis, float accuracyMeters) {
+            if (size == this.latE7.length) {
+                int capacity = size * 2;
+                this.latE7 = Arrays.copyOf(this.latE7, capacity);
+                this.lngE7 = Arrays.copyOf(this.lngE7, capacity);
+                this.timeMillis = Arrays.copyOf(this.timeMillis, capacity);
+                this.accuracy = Arrays.copyOf(this.accuracy, capacity);
+            }
+            this.latE7[size] = latE7;
+            this.lngE7[size] = lngE7;
+            this.timeMillis[size] = timeMillis;
+            this.accuracy[size] = Math.min(MAX_ACCURACY_METERS, Math.max(0, Math.round(accuracyMeters)));
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getFirstTimeMillis() {
+            return size > 0 ? timeMillis[0] : -1;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public byte[] encode() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(32 + size * 6);
+            writeFixedInt(out, MAGIC);
+            writeVarint(out, VERSION);
+            writeVarint(out, size);
+            writeFixedInt(out, size > 0 ? latE7[0] : 0);
+            writeFixedInt(out, size > 0 ? lngE7[0] : 0);
+            long previousDs = size > 0 ? timeMillis[0] / 100 : 0;
+            writeVarint(out, previousDs);
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    writeVarint(out, zigzag(latE7[i] - (long) latE7[i - 1]));
+                    writeVarint(out, zigzag(lngE7[i] - (long) lngE7[i - 1]));
+                    long timeDs = Math.max(previousDs, timeMillis[i] / 100);
+                    writeVarint(out, timeDs - previousDs);
+                    previousDs = timeDs;
+                }
+                writeVarint(out, accuracy[i]);
+            }
+            CRC32 crc = new CRC32();
+            byte[] body = out.toByteArray();
+            crc.update(body);
+            writeFixedInt(out, (int) crc.getValue());
+            return out.toByteArray();
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeFixedInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static int readIntBE(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        Reader(byte[] data, int limit) {
+            this.data = data;
+            this.limit = limit;
+        }
+
+        int readFixedInt() throws IOException {
+            if (position + 4 > limit) {
+                throw new IOException("Trail segment truncated");
+            }
+            int value = readIntBE(data, position);
+            position += 4;
+            return value;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) {
+                    throw new IOException("Trail segment truncated");
+                }
+                int b = data[position++] & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in trail segment");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.harsh.touristguardian;
+
+import java.util.Arrays;
+
+/**
+ * Simplifies a stretch of a TrailRing for drawing at a given scale.
+ *
+ * A radial-distance pass first drops points closer than the tolerance to the last kept one (which
+ * removes most of the points while standing still or at low zoom), then Douglas-Peucker runs on
+ * what is left with an explicit stack instead of recursion. Distances use a local equirectangular
+ * projection, which is accurate enough for a tolerance of a pixel or so.
+ *
+ * Scratch arrays are reused between calls, so simplifying does not allocate per point once they
+ * have grown. Not thread-safe.
+ */
+public class TrailSimplifier {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final double EARTH_METERS_PER_PIXEL_AT_ZOOM_0 = 156_543.03392;
+
+    private int[] candidates = new int[1024];
+    private int[] stack = new int[128];
+    private boolean[] keep = new boolean[1024];
+
+    /**
+     * Ground distance covered by one map pixel at the zoom level and latitude
+     */
+    public static double metersPerPixel(double zoom, double latitude) {
+        return EARTH_METERS_PER_PIXEL_AT_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / Math.pow(2, zoom);
+    }
+
+    /**
+     * Simplify points first..last (inclusive, logical ring indices), appending the indices of the
+     * points to keep to out. Returns how many were appended.
+     */
+    public int simplify(TrailRing ring, int first, int last, double toleranceMeters, IntBuffer out) {
+        if (last < first) {
+            return 0;
+        }
+        if (last - first < 2) {
+            for (int i = first; i <= last; i++) {
+                out.add(i);
+            }
+            return last - first + 1;
+        }
+
+        double cosLat = Math.cos(Math.toRadians(ring.latE7(first) * 1e-7));
+        double scaleX = cosLat * METERS_PER_DEGREE * 1e-7;
+        double scaleY = METERS_PER_DEGREE * 1e-7;
+        int originLat = ring.latE7(first);
+        int originLng = ring.lngE7(first);
+        double toleranceSq = toleranceMeters * toleranceMeters;
+
+        // Radial distance pass
+        int count = 0;
+        candidates = ensure(candidates, last - first + 1);
+        candidates[count++] = first;
+        double keptX = 0;
+        double keptY = 0;
+        for (int i = first + 1; i < last; i++) {
+            double x = (ring.lngE7(i) - originLng) * scaleX;
+            double y = (ring.latE7(i) - originLat) * scaleY;
+            double dx = x - keptX;
+            double dy = y - keptY;
+            if (dx * dx + dy * dy > toleranceSq) {
+                candidates[count++] = i;
+                keptX = x;
+                keptY = y;
+            }
+        }
+        candidates[count++] = last;
+
+        // Douglas-Peucker over the candidates
+        if (keep.length < count) {
+            keep = new boolean[Math.max(count, keep.length * 2)];
+        }
+        Arrays.fill(keep, 0, count, false);
+        keep[0] = true;
+        keep[count - 1] = true;
+        int top = 0;
+        stack = ensure(stack, 2);
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            double ax = (ring.lngE7(candidates[start]) - originLng) * scaleX;
+            double ay = (ring.latE7(candidates[start]) - originLat) * scaleY;
+            double bx = (ring.lngE7(candidates[end]) - originLng) * scaleX;
+            double by = (ring.latE7(candidates[end]) - originLat) * scaleY;
+            double maxSq = toleranceSq;
+            int farthest = -1;
+            for (int k = start + 1; k < end; k++) {
+                double px = (ring.lngE7(candidates[k]) - originLng) * scaleX;
+                double py = (ring.latE7(candidates[k]) - originLat) * scaleY;
+                double distanceSq = segmentDistanceSq(px, py, ax, ay, bx, by);
+                if (distanceSq > maxSq) {
+                    maxSq = distanceSq;
+                    farthest = k;
+                }
+            }
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                stack = ensure(stack, top + 4);
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            if (keep[k]) {
+                out.add(candidates[k]);
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    private static double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq > 0 ? ((px - ax) * dx + (py - ay) * dy) / lengthSq : 0;
+        if (t < 0) {
+            t = 0;
+        } else if (t > 1) {
+            t = 1;
+        }
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    /**
+     * Growable int list that keeps its storage between uses
+     */
+    public static class IntBuffer {
+        private int[] values = new int[256];
+        private int size;
+
+        public void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        public int get(int index) {
+            return values[index];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+    }
+}
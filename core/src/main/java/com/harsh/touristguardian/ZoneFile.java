@@ -0,0 +1,368 @@
+package com.harsh.touristguardian;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only view of a binary danger-zone file (written by ZoneFileWriter).
+ *
+ * The file is memory-mapped and queried in place: zone geometry lives in primitive sections and
+ * a prebuilt grid index maps each cell to the zones whose circle overlaps it, so opening a file
+ * costs a header check and a query only decodes the zones it returns. Layout (little-endian,
+ * every section 4-byte aligned, in this order after the 48-byte header):
+ *
+ * <pre>
+ *   int[zoneCount]    lat, lng       degrees * 1e7
+ *   float[zoneCount]  radius         km
+ *   int[zoneCount]    id, type, name, info   string table references
+ *   int[cells + 1]    cellStart      CSR offsets into cellSlots (cells = gridWidth * gridHeight)
+ *   int[slotRefs]     cellSlots      zone numbers per cell
+ *   int[strings + 1]  stringStart    offsets into the UTF-8 string bytes
+ *   byte[]            stringBytes    interned strings
+ * </pre>
+ *
+ * Thread-safe: all reads are absolute and the buffers are never modified.
+ */
+public class ZoneFile {
+
+    static final int MAGIC = 0x445A4754; // "TGZD" in little-endian order
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+    static final double COORD_SCALE = 1e7;
+
+    // Above this many cells a bounds query is cheaper as a linear scan
+    private static final int MAX_CELLS_PER_SCAN = 4096;
+
+    private final int zoneCount;
+    private final double cellDegrees;
+    private final int gridMinX;
+    private final int gridMinY;
+    private final int gridWidth;
+    private final int gridHeight;
+
+    private final IntBuffer lats;
+    private final IntBuffer lngs;
+    private final FloatBuffer radii;
+    private final IntBuffer ids;
+    private final IntBuffer types;
+    private final IntBuffer names;
+    private final IntBuffer infos;
+    private final IntBuffer cellStart;
+    private final IntBuffer cellSlots;
+    private final IntBuffer stringStart;
+    private final ByteBuffer stringBytes;
+
+    /**
+     * Map a zone file read-only
+     */
+    public static ZoneFile map(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            FileChannel channel = input.getChannel();
+            // The mapping stays valid after the channel is closed
+            return new ZoneFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Wrap an already mapped (or in-memory) zone file
+     */
+    public ZoneFile(ByteBuffer buffer) throws IOException {
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        data.position(0);
+        if (data.remaining() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a zone file");
+        }
+        int version = data.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported zone file version " + version);
+        }
+        zoneCount = data.getInt(8);
+        int stringCount = data.getInt(12);
+        cellDegrees = data.getDouble(16);
+        gridMinX = data.getInt(24);
+        gridMinY = data.getInt(28);
+        gridWidth = data.getInt(32);
+        gridHeight = data.getInt(36);
+        int slotRefs = data.getInt(40);
+        int stringByteCount = data.getInt(44);
+
+        long expected = expectedLength(zoneCount, gridWidth * gridHeight, slotRefs, stringCount, stringByteCount);
+        if (zoneCount < 0 || gridWidth < 0 || gridHeight < 0 || data.limit() < expected) {
+            throw new IOException("Truncated zone file (" + data.limit() + " of " + expected + " bytes)");
+        }
+
+        int offset = HEADER_BYTES;
+        lats = intSection(data, offset, zoneCount);
+        offset += 4 * zoneCount;
+        lngs = intSection(data, offset, zoneCount);
+        offset += 4 * zoneCount;
+        radii = slice(data, offset, 4 * zoneCount).asFloatBuffer();
+        offset += 4 * zoneCount;
+        ids = intSection(data, offset, zoneCount);
+        offset += 4 * zoneCount;
+        types = intSection(data, offset, zoneCount);
+        offset += 4 * zoneCount;
+        names = intSection(data, offset, zoneCount);
+        offset += 4 * zoneCount;
+        infos = intSection(data, offset, zoneCount);
+        offset += 4 * zoneCount;
+        cellStart = intSection(data, offset, gridWidth * gridHeight + 1);
+        offset += 4 * (gridWidth * gridHeight + 1);
+        cellSlots = intSection(data, offset, slotRefs);
+        offset += 4 * slotRefs;
+        stringStart = intSection(data, offset, stringCount + 1);
+        offset += 4 * (stringCount + 1);
+        stringBytes = slice(data, offset, stringByteCount);
+    }
+
+    /**
+     * Total file size for the given section sizes
+     */
+    static long expectedLength(int zoneCount, int cells, int slotRefs, int stringCount, int stringByteCount) {
+        return HEADER_BYTES + 4L * 7 * zoneCount + 4L * (cells + 1) + 4L * slotRefs
+                + 4L * (stringCount + 1) + stringByteCount;
+    }
+
+    public int size() {
+        return zoneCount;
+    }
+
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    /**
+     * Decode one zone (the only place zone objects are created)
+     */
+    public DangerZone zoneAt(int zone) {
+        return new DangerZone(
+                string(ids.get(zone)),
+                string(types.get(zone)),
+                string(names.get(zone)),
+                lat(zone),
+                lng(zone),
+                radii.get(zone),
+                string(infos.get(zone)));
+    }
+
+    public String idAt(int zone) {
+        return string(ids.get(zone));
+    }
+
+    /**
+     * All zones whose circle contains the point
+     */
+    public List<DangerZone> findContaining(double lat, double lng) {
+        List<DangerZone> result = new ArrayList<>();
+        int cell = cellIndex(cellOf(lng, cellDegrees), cellOf(lat, cellDegrees));
+        if (cell < 0) {
+            return result;
+        }
+        for (int i = cellStart.get(cell), end = cellStart.get(cell + 1); i < end; i++) {
+            int zone = cellSlots.get(i);
+            if (GeoMath.haversineKm(lat, lng, lat(zone), lng(zone)) <= radii.get(zone)) {
+                result.add(zoneAt(zone));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The n zones whose boundary is closest to the point, nearest first
+     */
+    public List<DangerZone> findNearest(double lat, double lng, int n) {
+        List<DangerZone> result = new ArrayList<>();
+        if (n <= 0 || zoneCount == 0) {
+            return result;
+        }
+
+        // Max-heap of the best n candidates, keyed by boundary distance
+        int[] heapZones = new int[n];
+        double[] heapDist = new double[n];
+        int heapSize = 0;
+
+        int cx = cellOf(lng, cellDegrees);
+        int cy = cellOf(lat, cellDegrees);
+        int maxX = gridMinX + gridWidth - 1;
+        int maxY = gridMinY + gridHeight - 1;
+        int maxRing = Math.max(Math.max(Math.abs(cx - gridMinX), Math.abs(cx - maxX)),
+                Math.max(Math.abs(cy - gridMinY), Math.abs(cy - maxY)));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (heapSize == n && DangerZoneIndex.ringLowerBoundKm(lat, ring, cellDegrees) > heapDist[0]) {
+                break;
+            }
+            for (int y = cy - ring; y <= cy + ring; y++) {
+                boolean edgeRow = y == cy - ring || y == cy + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int x = cx - ring; x <= cx + ring; x += step) {
+                    int cell = cellIndex(x, y);
+                    if (cell < 0) {
+                        continue;
+                    }
+                    for (int i = cellStart.get(cell), end = cellStart.get(cell + 1); i < end; i++) {
+                        int zone = cellSlots.get(i);
+                        double dist = GeoMath.haversineKm(lat, lng, lat(zone), lng(zone)) - radii.get(zone);
+                        // A zone is listed in every cell it overlaps, so skip ones already in the heap
+                        if (heapSize < n) {
+                            if (!contains(heapZones, heapSize, zone)) {
+                                heapZones[heapSize] = zone;
+                                heapDist[heapSize] = dist;
+                                DangerZoneIndex.siftUp(heapZones, heapDist, heapSize++);
+                            }
+                        } else if (dist < heapDist[0] && !contains(heapZones, heapSize, zone)) {
+                            heapZones[0] = zone;
+                            heapDist[0] = dist;
+                            DangerZoneIndex.siftDown(heapZones, heapDist, heapSize);
+                        }
+                    }
+                }
+            }
+        }
+
+        DangerZone[] sorted = new DangerZone[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            sorted[i] = zoneAt(heapZones[0]);
+            heapZones[0] = heapZones[i];
+            heapDist[0] = heapDist[i];
+            DangerZoneIndex.siftDown(heapZones, heapDist, i);
+        }
+        result.addAll(Arrays.asList(sorted));
+        return result;
+    }
+
+    /**
+     * Zones whose circle overlaps the bounding box, up to limit results
+     */
+    public List<DangerZone> findInBounds(double south, double west, double north, double east, int limit) {
+        List<DangerZone> result = new ArrayList<>();
+        if (zoneCount == 0 || limit <= 0) {
+            return result;
+        }
+
+        int x0 = Math.max(cellOf(west, cellDegrees), gridMinX);
+        int x1 = Math.min(cellOf(east, cellDegrees), gridMinX + gridWidth - 1);
+        int y0 = Math.max(cellOf(south, cellDegrees), gridMinY);
+        int y1 = Math.min(cellOf(north, cellDegrees), gridMinY + gridHeight - 1);
+        if (x0 > x1 || y0 > y1) {
+            return result;
+        }
+
+        if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS_PER_SCAN) {
+            for (int zone = 0; zone < zoneCount && result.size() < limit; zone++) {
+                if (overlaps(zone, south, west, north, east)) {
+                    result.add(zoneAt(zone));
+                }
+            }
+            return result;
+        }
+
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int cell = cellIndex(x, y);
+                for (int i = cellStart.get(cell), end = cellStart.get(cell + 1); i < end; i++) {
+                    int zone = cellSlots.get(i);
+                    // Report each zone once: in the first scanned cell of its cover
+                    double zoneLat = lat(zone);
+                    double radius = radii.get(zone);
+                    double dLat = coverDegreesLat(radius);
+                    int firstX = Math.max(x0, cellOf(lng(zone) - coverDegreesLng(zoneLat, radius, dLat), cellDegrees));
+                    int firstY = Math.max(y0, cellOf(zoneLat - dLat, cellDegrees));
+                    if (x != firstX || y != firstY) {
+                        continue;
+                    }
+                    if (overlaps(zone, south, west, north, east)) {
+                        result.add(zoneAt(zone));
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean overlaps(int zone, double south, double west, double north, double east) {
+        double zoneLat = lat(zone);
+        double zoneLng = lng(zone);
+        double nearestLat = Math.max(south, Math.min(north, zoneLat));
+        double nearestLng = Math.max(west, Math.min(east, zoneLng));
+        return GeoMath.haversineKm(zoneLat, zoneLng, nearestLat, nearestLng) <= radii.get(zone);
+    }
+
+    private double lat(int zone) {
+        return lats.get(zone) / COORD_SCALE;
+    }
+
+    private double lng(int zone) {
+        return lngs.get(zone) / COORD_SCALE;
+    }
+
+    private int cellIndex(int x, int y) {
+        int gx = x - gridMinX;
+        int gy = y - gridMinY;
+        if (gx < 0 || gy < 0 || gx >= gridWidth || gy >= gridHeight) {
+            return -1;
+        }
+        return gy * gridWidth + gx;
+    }
+
+    private String string(int ref) {
+        int start = stringStart.get(ref);
+        int end = stringStart.get(ref + 1);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = stringBytes.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Half-height of the cell cover of a circle, in degrees (1% slack, as in DangerZoneIndex)
+     */
+    static double coverDegreesLat(double radiusKm) {
+        return Math.toDegrees(radiusKm * 1.01 / GeoMath.EARTH_RADIUS_KM);
+    }
+
+    /**
+     * Half-width of the cell cover of a circle, in degrees
+     */
+    static double coverDegreesLng(double lat, double radiusKm, double dLat) {
+        return radiusKm * 1.01 / GeoMath.kmPerDegreeLng(Math.min(89, Math.abs(lat) + dLat));
+    }
+
+    static int cellOf(double degrees, double cellDegrees) {
+        return (int) Math.floor(degrees / cellDegrees);
+    }
+
+    private static IntBuffer intSection(ByteBuffer data, int offset, int count) {
+        return slice(data, offset, 4 * count).asIntBuffer();
+    }
+
+    private static ByteBuffer slice(ByteBuffer data, int offset, int length) {
+        ByteBuffer section = data.duplicate();
+        section.position(offset);
+        section.limit(offset + length);
+        return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,289 @@
+package com.harsh.touristguardian;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds binary zone files for ZoneFile. Plain Java, so large hazard datasets can be converted
+ * on a desktop and shipped as assets:
+ *
+ * <pre>
+ *   java -cp &lt;app classes&gt; com.harsh.touristguardian.ZoneFileWriter zones.tsv zones/national.zdb
+ * </pre>
+ *
+ * The input has one zone per line with tab-separated columns
+ * id, type, name, lat, lng, radiusKm, info (info is optional; lines starting with # are skipped).
+ */
+public class ZoneFileWriter {
+
+    private final double cellDegrees;
+    private final List<DangerZone> zones = new ArrayList<>();
+
+    public ZoneFileWriter() {
+        this(DangerZoneIndex.DEFAULT_CELL_DEGREES);
+    }
+
+    public ZoneFileWriter(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    public void add(DangerZone zone) {
+        zones.add(zone);
+    }
+
+    public int size() {
+        return zones.size();
+    }
+
+    /**
+     * Write the zones, the grid index and the string table to a file
+     */
+    public void writeTo(File file) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            output.write(toBytes().array());
+        }
+    }
+
+    /**
+     * Encode everything into one buffer laid out as described in ZoneFile
+     */
+    public ByteBuffer toBytes() {
+        int count = zones.size();
+
+        // Quantize first: the grid must be built from exactly what the reader will see
+        int[] lats = new int[count];
+        int[] lngs = new int[count];
+        float[] radii = new float[count];
+        for (int i = 0; i < count; i++) {
+            DangerZone zone = zones.get(i);
+            lats[i] = (int) Math.round(zone.getLat() * ZoneFile.COORD_SCALE);
+            lngs[i] = (int) Math.round(zone.getLng() * ZoneFile.COORD_SCALE);
+            radii[i] = (float) zone.getRadiusKm();
+        }
+
+        // Order zones by grid row, then column, so nearby zones share pages of the mapped file
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int rowA = ZoneFile.cellOf(lats[a] / ZoneFile.COORD_SCALE, cellDegrees);
+            int rowB = ZoneFile.cellOf(lats[b] / ZoneFile.COORD_SCALE, cellDegrees);
+            if (rowA != rowB) {
+                return Integer.compare(rowA, rowB);
+            }
+            return Integer.compare(lngs[a], lngs[b]);
+        });
+
+        // Cell cover of every zone, and the grid extent
+        int[] x0 = new int[count];
+        int[] x1 = new int[count];
+        int[] y0 = new int[count];
+        int[] y1 = new int[count];
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int slot = 0; slot < count; slot++) {
+            int i = order[slot];
+            double lat = lats[i] / ZoneFile.COORD_SCALE;
+            double lng = lngs[i] / ZoneFile.COORD_SCALE;
+            double dLat = ZoneFile.coverDegreesLat(radii[i]);
+            double dLng = ZoneFile.coverDegreesLng(lat, radii[i], dLat);
+            x0[slot] = ZoneFile.cellOf(lng - dLng, cellDegrees);
+            x1[slot] = ZoneFile.cellOf(lng + dLng, cellDegrees);
+            y0[slot] = ZoneFile.cellOf(lat - dLat, cellDegrees);
+            y1[slot] = ZoneFile.cellOf(lat + dLat, cellDegrees);
+            minX = Math.min(minX, x0[slot]);
+            maxX = Math.max(maxX, x1[slot]);
+            minY = Math.min(minY, y0[slot]);
+            maxY = Math.max(maxY, y1[slot]);
+        }
+        int width = count == 0 ? 0 : maxX - minX + 1;
+        int height = count == 0 ? 0 : maxY - minY + 1;
+        int cells = width * height;
+
+        // Grid as CSR: count per cell, prefix sums, then fill
+        int[] cellStart = new int[cells + 1];
+        for (int slot = 0; slot < count; slot++) {
+            for (int y = y0[slot]; y <= y1[slot]; y++) {
+                for (int x = x0[slot]; x <= x1[slot]; x++) {
+                    cellStart[(y - minY) * width + (x - minX) + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] cellSlots = new int[cellStart[cells]];
+        int[] fill = Arrays.copyOf(cellStart, cells);
+        for (int slot = 0; slot < count; slot++) {
+            for (int y = y0[slot]; y <= y1[slot]; y++) {
+                for (int x = x0[slot]; x <= x1[slot]; x++) {
+                    cellSlots[fill[(y - minY) * width + (x - minX)]++] = slot;
+                }
+            }
+        }
+
+        // Interned strings: repeated types, names and info texts are stored once
+        StringTable strings = new StringTable();
+        int[] ids = new int[count];
+        int[] types = new int[count];
+        int[] names = new int[count];
+        int[] infos = new int[count];
+        for (int slot = 0; slot < count; slot++) {
+            DangerZone zone = zones.get(order[slot]);
+            ids[slot] = strings.intern(zone.getId());
+            types[slot] = strings.intern(zone.getType());
+            names[slot] = strings.intern(zone.getName());
+            infos[slot] = strings.intern(zone.getInfo() != null ? zone.getInfo() : "");
+        }
+        byte[] stringBytes = strings.bytes();
+
+        long length = ZoneFile.expectedLength(count, cells, cellSlots.length, strings.size(), stringBytes.length);
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Zone file too large: " + length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ZoneFile.MAGIC);
+        buffer.putInt(ZoneFile.VERSION);
+        buffer.putInt(count);
+        buffer.putInt(strings.size());
+        buffer.putDouble(cellDegrees);
+        buffer.putInt(count == 0 ? 0 : minX);
+        buffer.putInt(count == 0 ? 0 : minY);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.putInt(cellSlots.length);
+        buffer.putInt(stringBytes.length);
+
+        for (int slot = 0; slot < count; slot++) {
+            buffer.putInt(lats[order[slot]]);
+        }
+        for (int slot = 0; slot < count; slot++) {
+            buffer.putInt(lngs[order[slot]]);
+        }
+        for (int slot = 0; slot < count; slot++) {
+            buffer.putFloat(radii[order[slot]]);
+        }
+        putInts(buffer, ids);
+        putInts(buffer, types);
+        putInts(buffer, names);
+        putInts(buffer, infos);
+        putInts(buffer, cellStart);
+        putInts(buffer, cellSlots);
+        putInts(buffer, strings.offsets());
+        buffer.put(stringBytes);
+        return buffer;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    /**
+     * Read zones from a tab-separated file
+     */
+    public static List<DangerZone> readTsv(File file) throws IOException {
+        List<DangerZone> result = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                if (columns.length < 6) {
+                    throw new IOException("Line " + lineNumber + ": expected at least 6 columns");
+                }
+                try {
+                    result.add(new DangerZone(columns[0], columns[1], columns[2],
+                            Double.parseDouble(columns[3]),
+                            Double.parseDouble(columns[4]),
+                            Double.parseDouble(columns[5]),
+                            columns.length > 6 ? columns[6] : ""));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ZoneFileWriter <zones.tsv> <output.zdb>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        ZoneFileWriter writer = new ZoneFileWriter();
+        for (DangerZone zone : readTsv(new File(args[0]))) {
+            writer.add(zone);
+        }
+        File output = new File(args[1]);
+        writer.writeTo(output);
+        System.out.println("Wrote " + writer.size() + " zones to " + output + " ("
+                + output.length() / 1024 + " KB) in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * Deduplicating UTF-8 string table
+     */
+    private static class StringTable {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private int totalBytes;
+
+        int intern(String value) {
+            Integer ref = refs.get(value);
+            if (ref != null) {
+                return ref;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            refs.put(value, encoded.size());
+            encoded.add(bytes);
+            totalBytes += bytes.length;
+            return encoded.size() - 1;
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        int[] offsets() {
+            int[] offsets = new int[encoded.size() + 1];
+            for (int i = 0; i < encoded.size(); i++) {
+                offsets[i + 1] = offsets[i] + encoded.get(i).length;
+            }
+            return offsets;
+        }
+
+        byte[] bytes() {
+            byte[] bytes = new byte[totalBytes];
+            int offset = 0;
+            for (byte[] value : encoded) {
+                System.arraycopy(value, 0, bytes, offset, value.length);
+                offset += value.length;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks DangerZoneIndex against brute-force answers.
+ */
+public class DangerZoneIndexTest {
+
+    @Test
+    public void findContaining_returnsOnlyZonesAroundPoint() {
+        DangerZoneIndex index = new DangerZoneIndex();
+        index.put(new DangerZone("a", DangerZone.TYPE_CRIME, "Delhi", 28.6139, 77.2090, 25, ""));
+        index.put(new DangerZone("b", DangerZone.TYPE_CRIME, "Faridabad", 28.4089, 77.3178, 10, ""));
+
+        List<DangerZone> inside = index.findContaining(28.6, 77.2);
+        assertEquals(1, inside.size());
+        assertEquals("a", inside.get(0).getId());
+        assertTrue(index.findContaining(19.0760, 72.8777).isEmpty());
+    }
+
+    @Test
+    public void remove_dropsZoneFromQueries() {
+        DangerZoneIndex index = new DangerZoneIndex();
+        index.put(new DangerZone("a", DangerZone.TYPE_WILDLIFE, "Sundarbans", 21.945, 88.895, 25, ""));
+
+        assertTrue(index.remove("a"));
+        assertFalse(index.remove("a"));
+        assertEquals(0, index.size());
+        assertTrue(index.findContaining(21.945, 88.895).isEmpty());
+        assertTrue(index.findNearest(21.945, 88.895, 3).isEmpty());
+    }
+
+    @Test
+    public void findNearest_matchesBruteForce() {
+        Random random = new Random(42);
+        DangerZoneIndex index = new DangerZoneIndex();
+        List<DangerZone> all = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            DangerZone zone = new DangerZone("z" + i, DangerZone.TYPE_LANDSLIDE, "Zone " + i,
+                    8 + random.nextDouble() * 29, 68 + random.nextDouble() * 29,
+                    1 + random.nextDouble() * 30, "");
+            all.add(zone);
+            index.put(zone);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double lat = 6 + random.nextDouble() * 33;
+            double lng = 66 + random.nextDouble() * 33;
+            all.sort(Comparator.comparingDouble(zone -> zone.distanceToBoundaryKm(lat, lng)));
+
+            List<DangerZone> nearest = index.findNearest(lat, lng, 5);
+            assertEquals(5, nearest.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(all.get(i).distanceToBoundaryKm(lat, lng),
+                        nearest.get(i).distanceToBoundaryKm(lat, lng), 1e-9);
+            }
+
+            int expectedInside = 0;
+            for (DangerZone zone : all) {
+                if (zone.distanceToBoundaryKm(lat, lng) <= 0) {
+                    expectedInside++;
+                }
+            }
+            assertEquals(expectedInside, index.findContaining(lat, lng).size());
+        }
+    }
+
+    @Test
+    public void findInBounds_includesZonesOverlappingEdge() {
+        DangerZoneIndex index = new DangerZoneIndex();
+        // Centre is just outside the box but the 25 km circle reaches into it
+        index.put(new DangerZone("edge", DangerZone.TYPE_LANDSLIDE, "Aizawl", 23.1645, 92.9376, 25, ""));
+        index.put(new DangerZone("far", DangerZone.TYPE_CRIME, "Kochi", 9.9312, 76.2673, 10, ""));
+
+        List<DangerZone> found = index.findInBounds(22.0, 91.0, 23.0, 93.0, 10);
+        assertEquals(1, found.size());
+        assertEquals("edge", found.get(0).getId());
+        assertEquals(2, index.findInBounds(0, 60, 40, 100, 10).size());
+        assertEquals(1, index.findInBounds(0, 60, 40, 100, 1).size());
+    }
+}
@@ -0,0 +1,59 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Enter / dwell / exit transitions and adaptive sampling of GeofenceEngine.
+ */
+public class GeofenceEngineTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private GeofenceEngine newEngine() {
+        DangerZoneIndex index = new DangerZoneIndex();
+        index.put(new DangerZone("ranthambore", DangerZone.TYPE_WILDLIFE, "Ranthambore", 26.01733, 76.50257, 12, ""));
+        return new GeofenceEngine(index::findNearest,
+                (event, zone, time) -> events.add(event + ":" + zone.getId()), 60_000);
+    }
+
+    @Test
+    public void reportsEnterDwellAndExitOnce() {
+        GeofenceEngine engine = newEngine();
+
+        engine.onFix(26.5, 76.5, 10, 0, 0);
+        assertTrue(events.isEmpty());
+
+        engine.onFix(26.02, 76.50, 10, 0, 1_000);
+        engine.onFix(26.02, 76.51, 10, 0, 30_000);
+        engine.onFix(26.02, 76.50, 10, 0, 61_000);
+        engine.onFix(26.02, 76.50, 10, 0, 120_000);
+        engine.onFix(26.5, 76.5, 10, 0, 130_000);
+
+        assertEquals(3, events.size());
+        assertEquals(GeofenceEngine.EVENT_ENTER + ":ranthambore", events.get(0));
+        assertEquals(GeofenceEngine.EVENT_DWELL + ":ranthambore", events.get(1));
+        assertEquals(GeofenceEngine.EVENT_EXIT + ":ranthambore", events.get(2));
+        assertFalse(engine.isInsideAnyZone());
+    }
+
+    @Test
+    public void samplesSlowerFarFromZones() {
+        GeofenceEngine engine = newEngine();
+
+        engine.onFix(26.13, 76.50, 10, 1.4f, 0);
+        long nearInterval = engine.getRecommendedIntervalMillis();
+        assertEquals(GeofenceEngine.ACCURACY_HIGH, engine.getRecommendedAccuracy());
+
+        engine.onFix(28.6, 77.2, 10, 1.4f, 1_000);
+        long farInterval = engine.getRecommendedIntervalMillis();
+        assertEquals(GeofenceEngine.ACCURACY_LOW_POWER, engine.getRecommendedAccuracy());
+
+        assertTrue(nearInterval < farInterval);
+        assertEquals(GeofenceEngine.MAX_INTERVAL_MILLIS, farInterval);
+    }
+}
@@ -0,0 +1,30 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Chunk and error parsing of GroqResponses.
+ */
+public class GroqResponsesTest {
+
+    @Test
+    public void parsesStreamedChunks() throws Exception {
+        assertEquals("Day 1",
+                GroqResponses.parseToken("{\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Day 1\"}}]}"));
+        // Role-only first chunk and the final chunk carry no text
+        assertEquals("", GroqResponses.parseToken("{\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}"));
+        assertEquals("", GroqResponses.parseToken("{\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}"));
+        assertEquals("", GroqResponses.parseToken("{\"x_groq\":{\"id\":\"req_1\"}}"));
+    }
+
+    @Test
+    public void describesErrors() {
+        assertEquals("invalid_request_error: Invalid API Key", GroqResponses.errorMessage(401,
+                "{\"error\":{\"message\":\"Invalid API Key\",\"type\":\"invalid_request_error\"}}"));
+        assertEquals("API Error: 500", GroqResponses.errorMessage(500, "{}"));
+        assertEquals("API Error: 502\nResponse: <html>Bad gateway</html>",
+                GroqResponses.errorMessage(502, "<html>Bad gateway</html>"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.harsh.touristguardian;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keys, TTL, LRU eviction and reload from disk of ItineraryCache.
+ */
+public class ItineraryCacheTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private long now = 1_000_000;
+
+    private ItineraryCache newCache(File dir, long maxBytes) {
+        return new ItineraryCache(dir, maxBytes, 7 * DAY, () -> now);
+    }
+
+    @Test
+    public void equivalentDestinationsShareOneEntry() {
+        assertEquals(ItineraryCache.key("Goa", 3, "m", "v1"), ItineraryCache.key("  goa, India ", 3, "m", "v1"));
+        assertEquals("sao tome", ItineraryCache.normalizeDestination("São  Tomé!"));
+        assertNotEquals(ItineraryCache.key("Goa", 3, "m", "v1"), ItineraryCache.key("Goa", 3, "m", "v2"));
+        assertNotEquals(ItineraryCache.key("Goa", 3, "m", "v1"), ItineraryCache.key("Goa", 4, "m", "v1"));
+    }
+
+    @Test
+    public void servesStoredPlanUntilItExpires() throws IOException {
+        File dir = folder.newFolder("itineraries");
+        ItineraryCache cache = newCache(dir, 1 << 20);
+        String key = ItineraryCache.key("Goa", 3, "m", "v1");
+        String plan = "Day 1: Baga beach\nDay 2: Old Goa churches\nDay 3: Dudhsagar falls ₹";
+
+        assertNull(cache.get(key));
+        cache.put(key, plan);
+        assertEquals(plan, cache.get(key));
+
+        // A new instance (next app start) reads the same file
+        assertEquals(plan, newCache(dir, 1 << 20).get(key));
+
+        now += 8 * DAY;
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytesOnDisk());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedPastByteBudget() throws IOException {
+        File dir = folder.newFolder("itineraries");
+        ItineraryCache probe = newCache(folder.newFolder("probe"), 1 << 20);
+        probe.put("probe", plan(0));
+        long entryBytes = probe.getBytesOnDisk();
+
+        ItineraryCache cache = newCache(dir, entryBytes * 2 + entryBytes / 2);
+        cache.put("a", plan(1));
+        cache.put("b", plan(2));
+        assertNotNull(cache.get("a"));
+        cache.put("c", plan(3));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(2, dir.listFiles().length);
+    }
+
+    private static String plan(int seed) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            text.append("Day ").append(seed).append('.').append(i).append(": visit fort, lunch, market\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Write throttling of LiveSharePolicy.
+ */
+public class LiveSharePolicyTest {
+
+    // ~1 m of latitude
+    private static final double METER = 1 / 111_320.0;
+
+    @Test
+    public void skipsJitterAndPublishesMovementAndHeartbeats() {
+        LiveSharePolicy policy = new LiveSharePolicy();
+        long t = 0;
+        assertTrue(policy.shouldPublish(15.0, 73.0, 10, 0, t));
+        policy.onPublished(15.0, 73.0, t);
+
+        // Standing still with 10 m jitter
+        t += 30_000;
+        assertFalse(policy.shouldPublish(15.0 + 8 * METER, 73.0, 10, 0, t));
+        // Walked 40 m
+        assertTrue(policy.shouldPublish(15.0 + 40 * METER, 73.0, 10, 1.4f, t));
+        // Too soon after the last write, however far
+        policy.onPublished(15.0 + 40 * METER, 73.0, t);
+        assertFalse(policy.shouldPublish(15.0 + 400 * METER, 73.0, 10, 1.4f, t + 2_000));
+        // Driving at 25 m/s needs ~250 m
+        assertFalse(policy.shouldPublish(15.0 + 140 * METER, 73.0, 10, 25, t + 6_000));
+        assertTrue(policy.shouldPublish(15.0 + 300 * METER, 73.0, 10, 25, t + 10_000));
+        // Stationary heartbeat
+        assertTrue(policy.shouldPublish(15.0 + 40 * METER, 73.0, 10, 0, t + LiveSharePolicy.DEFAULT_HEARTBEAT_MILLIS));
+    }
+
+    @Test
+    public void capsWritesPerHour() {
+        LiveSharePolicy policy = new LiveSharePolicy(1_000, 60_000, 10, 20);
+        int published = 0;
+        double lat = 15.0;
+        // Two hours of driving, one fix per second
+        for (long t = 0; t < 7_200_000; t += 1_000) {
+            lat += 25 * METER;
+            if (policy.shouldPublish(lat, 73.0, 5, 25, t)) {
+                policy.onPublished(lat, 73.0, t);
+                published++;
+            }
+            assertTrue(policy.getWritesInLastHour(t) <= 20);
+        }
+        assertTrue("published " + published, published <= 40 && published >= 30);
+    }
+}
@@ -0,0 +1,93 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Merging and payload format of MapCommandQueue.
+ */
+public class MapCommandQueueTest {
+
+    @Test
+    public void latestStateWinsAndTrailAccumulates() {
+        MapCommandQueue queue = new MapCommandQueue();
+        queue.setPosition(28.6, 77.2, 10);
+        queue.addTrailPoint(28.6, 77.2);
+        queue.setPosition(28.7, 77.3, 5);
+        queue.addTrailPoint(28.7, 77.3);
+        queue.setHighlightedZones(Collections.singletonList("a"));
+        queue.setHighlightedZones(Arrays.asList("crime-delhi", "say \"hi\""));
+
+        assertEquals(6, queue.getPendingCommands());
+        assertEquals(4, queue.getPendingEntries());
+        assertEquals(2, queue.getSupersededCount());
+        assertEquals("applyMapBatch({p:[28.7,77.3,5.0],h:[\"crime-delhi\",\"say \\\"hi\\\"\"],"
+                + "t:[28.6,77.2,28.7,77.3]});", queue.drainScript());
+
+        assertTrue(queue.isEmpty());
+        assertNull(queue.drainScript());
+    }
+
+    @Test
+    public void reloadAndPauseAreSentOnce() {
+        MapCommandQueue queue = new MapCommandQueue();
+        queue.requestZoneReload();
+        queue.setAnimationsPaused(true);
+        queue.requestZoneReload();
+        queue.setAnimationsPaused(false);
+        assertEquals("applyMapBatch({r:1,a:0});", queue.drainScript());
+    }
+
+    @Test
+    public void longTrailBacklogIsThinnedKeepingNewestPoint() {
+        MapCommandQueue queue = new MapCommandQueue();
+        int total = MapCommandQueue.MAX_PENDING_TRAIL_POINTS + 1;
+        for (int i = 0; i < total; i++) {
+            queue.addTrailPoint(i, i);
+        }
+        assertEquals(MapCommandQueue.MAX_PENDING_TRAIL_POINTS / 2 + 1, queue.getPendingEntries());
+        assertEquals(MapCommandQueue.MAX_PENDING_TRAIL_POINTS / 2, queue.getDroppedTrailPoints());
+        String script = queue.drainScript();
+        assertTrue(script.endsWith("2047.0,2047.0,2048.0,2048.0]});"));
+    }
+
+    @Test
+    public void memberUpdatesMergePerSlot() {
+        MapCommandQueue queue = new MapCommandQueue();
+        // 500 members reporting three times between two frames
+        for (int round = 0; round < 3; round++) {
+            for (int slot = 0; slot < 500; slot++) {
+                queue.setMemberPosition(slot, round, slot);
+            }
+        }
+        assertEquals(500, queue.getPendingEntries());
+        assertEquals(1000, queue.getSupersededCount());
+        String script = queue.drainScript();
+        assertTrue(script.startsWith("applyMapBatch({g:[0,2.0,0.0,1,2.0,1.0,"));
+
+        queue.setMemberName(3, "Asha");
+        queue.setMemberPosition(3, 1, 2);
+        queue.setMemberPosition(4, 5, 6);
+        queue.removeMember(4);
+        assertEquals("applyMapBatch({gx:[4],gn:[3,\"Asha\"],g:[3,1.0,2.0]});", queue.drainScript());
+
+        // Named and removed in one batch: no name left to revive the marker; the slot's next
+        // member keeps its own name
+        queue.setMemberName(5, "Ravi");
+        queue.setMemberPosition(5, 1, 1);
+        queue.removeMember(5);
+        assertEquals("applyMapBatch({gx:[5]});", queue.drainScript());
+        queue.setMemberName(6, "Old");
+        queue.removeMember(6);
+        queue.setMemberName(6, "New");
+        assertEquals("applyMapBatch({gx:[6],gn:[6,\"New\"]});", queue.drainScript());
+
+        queue.setMemberPosition(7, 1, 1);
+        queue.clearMembers();
+        assertEquals("applyMapBatch({gc:1});", queue.drainScript());
+    }
+}
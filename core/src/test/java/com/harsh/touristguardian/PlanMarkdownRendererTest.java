@@ -0,0 +1,107 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sections, styles and chunked input of PlanMarkdownRenderer.
+ */
+public class PlanMarkdownRendererTest {
+
+    private static final String PLAN = "# 2-Day Goa Itinerary\n"
+            + "A **relaxed** trip.\n\n\n"
+            + "## Day 1: North Goa\n"
+            + "* **Morning:** Baga beach\n"
+            + "- Lunch at *Britto's*\n"
+            + "---\n"
+            + "**Day 2: Old Goa**\n"
+            + "1. Basilica of Bom Jesus (`9am`)\n"
+            + "## Safety Tips\n"
+            + "Keep 2*3 copies of your ID_card, *not **originals";
+
+    @Test
+    public void splitsDaysAndKeepsStyles() {
+        PlanMarkdownRenderer renderer = render(PLAN, PLAN.length());
+
+        assertEquals(4, renderer.getSectionCount());
+        assertEquals("2-Day Goa Itinerary", renderer.getSection(0).getTitle());
+        assertEquals("Day 1: North Goa", renderer.getSection(1).getTitle());
+        assertEquals("Day 2: Old Goa", renderer.getSection(2).getTitle());
+        assertEquals("Safety Tips", renderer.getSection(3).getTitle());
+
+        PlanMarkdownRenderer.Section overview = renderer.getSection(0);
+        assertEquals("2-Day Goa Itinerary\nA relaxed trip.\n", overview.getText().toString());
+        assertTrue(hasSpan(overview, "relaxed", PlanMarkdownRenderer.STYLE_BOLD));
+
+        PlanMarkdownRenderer.Section day1 = renderer.getSection(1);
+        assertEquals("Day 1: North Goa\nMorning: Baga beach\nLunch at Britto's\n", day1.getText().toString());
+        assertTrue(hasSpan(day1, "Day 1: North Goa", PlanMarkdownRenderer.STYLE_HEADING));
+        assertTrue(hasSpan(day1, "Morning:", PlanMarkdownRenderer.STYLE_BOLD));
+        assertTrue(hasSpan(day1, "Britto's", PlanMarkdownRenderer.STYLE_ITALIC));
+        assertTrue(hasSpan(day1, "Lunch at Britto's\n", PlanMarkdownRenderer.STYLE_BULLET));
+
+        PlanMarkdownRenderer.Section day2 = renderer.getSection(2);
+        assertEquals("Day 2: Old Goa\n1. Basilica of Bom Jesus (9am)\n", day2.getText().toString());
+        assertTrue(hasSpan(day2, "9am", PlanMarkdownRenderer.STYLE_CODE));
+
+        // Lone asterisks and underscores inside words stay literal
+        assertEquals("Safety Tips\nKeep 2*3 copies of your ID_card, *not **originals\n", renderer.getSection(3).getText().toString());
+        assertTrue(renderer.getPlainText().startsWith("2-Day Goa Itinerary\nA relaxed trip.\n\nDay 1"));
+    }
+
+    @Test
+    public void anyChunkingGivesSameResult() {
+        PlanMarkdownRenderer whole = render(PLAN, PLAN.length());
+        for (int chunk = 1; chunk < 40; chunk++) {
+            PlanMarkdownRenderer streamed = render(PLAN, chunk);
+            assertEquals(whole.getSectionCount(), streamed.getSectionCount());
+            for (int i = 0; i < whole.getSectionCount(); i++) {
+                PlanMarkdownRenderer.Section expected = whole.getSection(i);
+                PlanMarkdownRenderer.Section actual = streamed.getSection(i);
+                assertEquals(expected.getText().toString(), actual.getText().toString());
+                assertEquals(expected.getSpans().size(), actual.getSpans().size());
+            }
+        }
+    }
+
+    @Test
+    public void onlyCompleteLinesAreRendered() {
+        PlanMarkdownRenderer renderer = new PlanMarkdownRenderer();
+        renderer.append("Day 1\n**Fort");
+        assertEquals("Day 1\n", renderer.getSection(0).getText().toString());
+        int version = renderer.getSection(0).getVersion();
+
+        renderer.append(" Aguada** visit\nDay 2\n");
+        assertEquals(2, renderer.getSectionCount());
+        assertEquals("Day 1\nFort Aguada visit\n", renderer.getSection(0).getText().toString());
+        assertTrue(renderer.getSection(0).getVersion() > version);
+
+        renderer.append("Rest");
+        renderer.finish();
+        assertEquals("Day 2\nRest\n", renderer.getSection(1).getText().toString());
+        assertEquals(10, renderer.getSection(1).getVisibleLength());
+    }
+
+    private static PlanMarkdownRenderer render(String text, int chunk) {
+        PlanMarkdownRenderer renderer = new PlanMarkdownRenderer();
+        for (int i = 0; i < text.length(); i += chunk) {
+            renderer.append(text.substring(i, Math.min(text.length(), i + chunk)));
+        }
+        renderer.finish();
+        return renderer;
+    }
+
+    private static boolean hasSpan(PlanMarkdownRenderer.Section section, String covered, int style) {
+        String text = section.getText().toString();
+        List<int[]> spans = section.getSpans();
+        for (int[] span : spans) {
+            if (span[2] == style && text.substring(span[0], span[1]).equals(covered)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Motion estimate, time-to-boundary tiers and alert cooldown of ProximityEngine.
+ */
+public class ProximityEngineTest {
+
+    private static final double METERS_PER_DEGREE = GeoMath.KM_PER_DEGREE_LAT * 1000;
+
+    @Test
+    public void escalatesWhileWalkingTowardsAZone() {
+        // 100 m zone whose edge is 400 m east of the start
+        double lat = 15.0;
+        double zoneLng = 73.0 + 500 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        DangerZone zone = new DangerZone("z", DangerZone.TYPE_CRIME, "Market", lat, zoneLng, 0.1, "");
+        List<Integer> tiers = new ArrayList<>();
+        ProximityEngine engine = new ProximityEngine((la, ln, n) -> Collections.singletonList(zone),
+                (tier, z, seconds, distance) -> tiers.add(tier));
+
+        double lngPerMeter = 1 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        for (int second = 0; second <= 320; second++) {
+            // 1.5 m/s east, speed and bearing unknown
+            engine.onFix(lat, 73.0 + second * 1.5 * lngPerMeter, 5, Float.NaN, Float.NaN, second * 1000L);
+        }
+        assertEquals(ProximityEngine.TIER_INSIDE, engine.getTier());
+        assertEquals(90, engine.getHeadingDegrees(), 2);
+        assertEquals(1.5, engine.getSpeedMps(), 0.05);
+        assertTrue(tiers.toString(), tiers.contains(ProximityEngine.TIER_WARNING));
+        assertTrue(tiers.toString(), tiers.contains(ProximityEngine.TIER_CRITICAL));
+        for (int i = 1; i < tiers.size(); i++) {
+            assertTrue(tiers.toString(), tiers.get(i) > tiers.get(i - 1));
+        }
+    }
+
+    @Test
+    public void ignoresZonesBesideThePath() {
+        // Zone centre 500 m north of an eastward path, 200 m radius
+        DangerZone zone = new DangerZone("z", DangerZone.TYPE_WILDLIFE, "Forest",
+                15.0 + 500 / METERS_PER_DEGREE, 73.001, 0.2, "");
+        ProximityEngine engine = new ProximityEngine((la, ln, n) -> Collections.singletonList(zone), null);
+        for (int second = 0; second < 60; second++) {
+            // Driving east at 15 m/s, with speed and bearing from the fix
+            double lng = 73.0 + second * 15 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(15.0)));
+            engine.onFix(15.0, lng, 5, 15, 90, second * 1000L);
+            assertEquals(ProximityEngine.TIER_NONE, engine.getTier());
+        }
+        assertTrue(Double.isInfinite(engine.getSecondsToBoundary()));
+    }
+
+    @Test
+    public void alertsAZoneOncePerCooldown() {
+        // 100 m zone; the user stands still around the 100 m notice distance from its edge
+        double lat = 15.0;
+        double lngPerMeter = 1 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        DangerZone zone = new DangerZone("z", DangerZone.TYPE_CRIME, "Market", lat, 73.0 + 200 * lngPerMeter, 0.1, "");
+        List<Integer> tiers = new ArrayList<>();
+        ProximityEngine engine = new ProximityEngine((la, ln, n) -> Collections.singletonList(zone),
+                (tier, z, seconds, distance) -> tiers.add(tier));
+
+        for (int second = 0; second < 15 * 60; second++) {
+            // In and out of the notice distance every second
+            double offset = second % 2 == 0 ? 5 : -5;
+            engine.onFix(lat, 73.0 + offset * lngPerMeter, 5, 0, 0, second * 1000L);
+        }
+        // Once at the start and once after the cooldown
+        assertEquals(tiers.toString(), 2, tiers.size());
+        assertEquals(ProximityEngine.TIER_NOTICE, (int) tiers.get(0));
+    }
+}
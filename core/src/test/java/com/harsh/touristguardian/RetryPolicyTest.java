@@ -0,0 +1,64 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Backoff, rate-limit header parsing and latency percentiles used by PlannerRequestScheduler.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void parsesRateLimitHeaders() {
+        assertEquals(179_560, RetryPolicy.parseDurationMillis("2m59.56s"));
+        assertEquals(120, RetryPolicy.parseDurationMillis("120ms"));
+        assertEquals(3_600_000, RetryPolicy.parseDurationMillis("1h"));
+        assertEquals(-1, RetryPolicy.parseDurationMillis("soon"));
+        assertEquals(-1, RetryPolicy.parseDurationMillis(null));
+
+        assertEquals(7000, RetryPolicy.parseRetryAfterMillis("7", 0));
+        long now = 784_111_777_000L - 5000; // 5 s before Sun, 06 Nov 1994 08:49:37 GMT
+        assertEquals(5000, RetryPolicy.parseRetryAfterMillis("Sun, 06 Nov 1994 08:49:37 GMT", now));
+        assertEquals(-1, RetryPolicy.parseRetryAfterMillis("later", now));
+
+        assertTrue(RetryPolicy.isRetryable(429));
+        assertTrue(RetryPolicy.isRetryable(503));
+        assertFalse(RetryPolicy.isRetryable(400));
+        assertFalse(RetryPolicy.isRetryable(401));
+    }
+
+    @Test
+    public void backoffGrowsWithJitterAndHonoursServerDelay() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 8000, new Random(42));
+        for (int i = 0; i < 100; i++) {
+            long first = policy.delayMillis(1, -1);
+            long third = policy.delayMillis(3, -1);
+            long capped = policy.delayMillis(10, -1);
+            assertTrue(first >= 500 && first <= 1000);
+            assertTrue(third >= 2000 && third <= 4000);
+            assertTrue(capped >= 4000 && capped <= 8000);
+        }
+        assertEquals(20_000, policy.delayMillis(1, 20_000));
+    }
+
+    @Test
+    public void percentilesCoverRecentWindowOnly() {
+        LatencyStats stats = new LatencyStats(100);
+        assertEquals(-1, stats.percentile(0.5));
+        for (int i = 1; i <= 100; i++) {
+            stats.record(i);
+        }
+        assertEquals(50, stats.percentile(0.5));
+        assertEquals(95, stats.percentile(0.95));
+        assertEquals(99, stats.percentile(0.99));
+
+        for (int i = 0; i < 100; i++) {
+            stats.record(1000);
+        }
+        assertEquals(100, stats.size());
+        assertEquals(1000, stats.percentile(0.5));
+    }
+}
@@ -0,0 +1,38 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Refinement rules and payload of SosAlert.
+ */
+public class SosAlertTest {
+
+    @Test
+    public void keepsFirstFixUntilAClearlyBetterOneArrives() {
+        SosAlert alert = new SosAlert("a1", 1000);
+        assertFalse(alert.hasFix());
+        assertTrue(alert.buildMessage().contains("not known yet"));
+
+        assertTrue(alert.offerFix(15.49, 73.82, 120, 10_000));
+        assertEquals(0, alert.getRefinements());
+
+        // Barely more accurate and only a little newer: ignored
+        assertFalse(alert.offerFix(15.491, 73.821, 110, 12_000));
+        // Much more accurate
+        assertTrue(alert.offerFix(15.4912, 73.8215, 12, 13_000));
+        // Less accurate but well newer (the user may be moving)
+        assertTrue(alert.offerFix(15.4950, 73.8300, 30, 40_000));
+        assertEquals(2, alert.getRefinements());
+
+        Map<String, Object> fields = alert.toMap();
+        assertEquals(1000L, fields.get("createdAt"));
+        assertEquals(15.4950, (Double) fields.get("lat"), 1e-9);
+        assertEquals(30.0, (Double) fields.get("accuracy"), 1e-9);
+        assertEquals(2, fields.get("refinements"));
+        assertTrue(alert.buildMessage().contains("https://maps.google.com/?q=15.495,73.83"));
+    }
+}
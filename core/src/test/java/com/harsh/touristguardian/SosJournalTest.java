@@ -0,0 +1,97 @@
+package com.harsh.touristguardian;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replay, acks, torn tails and multi-path updates of SosJournal.
+ */
+public class SosJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pendingEventsSurviveReopenUntilAcked() throws IOException {
+        File file = new File(folder.getRoot(), "sos.journal");
+        try (SosJournal journal = new SosJournal(file)) {
+            journal.append(event("e1", "alert1", 15.49, 120));
+            journal.append(event("e2", "alert1", 15.4912, 12));
+            journal.markReplicated(Collections.singletonList("e1"));
+        }
+
+        try (SosJournal journal = new SosJournal(file)) {
+            List<SosJournal.Event> pending = journal.getPending();
+            assertEquals(1, pending.size());
+            assertEquals("e2", pending.get(0).getId());
+            assertEquals(0, journal.getDroppedBytes());
+
+            Map<String, Object> update = new HashMap<>();
+            pending.get(0).putUpdates(update);
+            assertEquals(15.4912, (Double) update.get("Users/u1/sos/alert1/lat"), 1e-9);
+            assertEquals(12, update.get("Users/u1/sos/alert1/refinements"));
+            assertEquals(1000L, update.get("Users/u1/sos/alert1/events/e2"));
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedAndJournalStaysUsable() throws IOException {
+        File file = new File(folder.getRoot(), "sos.journal");
+        try (SosJournal journal = new SosJournal(file)) {
+            journal.append(event("e1", "alert1", 15.49, 120));
+            journal.append(event("e2", "alert1", 15.50, 60));
+        }
+        // Crash in the middle of the second record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        try (SosJournal journal = new SosJournal(file)) {
+            assertEquals(1, journal.getPendingCount());
+            assertTrue(journal.getDroppedBytes() > 0);
+            journal.append(event("e3", "alert2", 15.51, 30));
+        }
+        try (SosJournal journal = new SosJournal(file)) {
+            assertEquals(2, journal.getPendingCount());
+            assertEquals("e3", journal.getPending().get(1).getId());
+        }
+    }
+
+    @Test
+    public void compactsOnceEverythingIsReplicated() throws IOException {
+        File file = new File(folder.getRoot(), "sos.journal");
+        try (SosJournal journal = new SosJournal(file)) {
+            for (int i = 0; i < 1000; i++) {
+                journal.append(event("e" + i, "alert", 15.49, i));
+                journal.markReplicated(Collections.singletonList("e" + i));
+            }
+            assertTrue(journal.getLength() < 64 * 1024);
+            assertEquals(journal.getLength(), file.length());
+        }
+        try (SosJournal journal = new SosJournal(file)) {
+            assertEquals(0, journal.getPendingCount());
+        }
+    }
+
+    private static SosJournal.Event event(String id, String alertId, double lat, int refinements) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("lat", lat);
+        fields.put("lng", 73.82);
+        fields.put("accuracy", 10.0);
+        fields.put("fixTime", 999L);
+        fields.put("refinements", refinements);
+        return new SosJournal.Event(id, "u1", alertId, 1000, fields);
+    }
+}
@@ -0,0 +1,42 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Event framing of SseEventReader on OpenAI-style chat completion streams.
+ */
+public class SseEventReaderTest {
+
+    @Test
+    public void readsChunksInOrder() throws IOException {
+        String body = ": keep-alive\n\n"
+                + "data: {\"choices\":[{\"delta\":{\"content\":\"Day\"}}]}\n\n"
+                + "event: message\r\n"
+                + "data: {\"choices\":[{\"delta\":{\"content\":\" 1\"}}]}\r\n\r\n"
+                + "data: [DONE]\n\n";
+        SseEventReader reader = new SseEventReader(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("{\"choices\":[{\"delta\":{\"content\":\"Day\"}}]}", reader.nextData());
+        assertEquals("{\"choices\":[{\"delta\":{\"content\":\" 1\"}}]}", reader.nextData());
+        assertEquals("[DONE]", reader.nextData());
+        assertNull(reader.nextData());
+    }
+
+    @Test
+    public void joinsMultiLineDataAndKeepsUnterminatedEvent() throws IOException {
+        String body = "data:first\ndata: second\n\nid: 7\ndataset: ignored\ndata: last";
+        SseEventReader reader = new SseEventReader(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("first\nsecond", reader.nextData());
+        assertEquals("last", reader.nextData());
+        assertNull(reader.nextData());
+    }
+}
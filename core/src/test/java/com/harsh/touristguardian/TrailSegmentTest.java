@@ -0,0 +1,133 @@
+package com.harsh.touristguardian;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Trail segment encoding, the point ring and simplification.
+ */
+public class TrailSegmentTest {
+
+    @Test
+    public void roundTripsAnHourOfWalkingInAboutSixBytesPerFix() throws IOException {
+        TrailSegment.Builder builder = new TrailSegment.Builder();
+        int lat = 154_912_000;
+        int lng = 738_215_000;
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < 3600; i++) {
+            // ~1.4 m/s with some jitter
+            lat += 90 + (i % 7) * 3;
+            lng -= 60 + (i % 5) * 4;
+            time += 1000;
+            builder.add(lat, lng, time, 5 + i % 10);
+        }
+        byte[] data = builder.encode();
+        assertTrue("bytes per fix: " + data.length / 3600.0, data.length < 3600 * 7);
+
+        int[] count = new int[1];
+        int[] last = new int[2];
+        long[] lastTime = new long[1];
+        int decoded = TrailSegment.decode(data, (latE7, lngE7, timeMillis, accuracy) -> {
+            count[0]++;
+            last[0] = latE7;
+            last[1] = lngE7;
+            lastTime[0] = timeMillis;
+        });
+        assertEquals(3600, decoded);
+        assertEquals(3600, count[0]);
+        assertEquals(lat, last[0]);
+        assertEquals(lng, last[1]);
+        assertEquals(time, lastTime[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCorruptSegment() throws IOException {
+        TrailSegment.Builder builder = new TrailSegment.Builder();
+        builder.add(1, 2, 1000, 3);
+        builder.add(4, 5, 2000, 3);
+        byte[] data = builder.encode();
+        data[10] ^= 1;
+        TrailSegment.decode(data, (latE7, lngE7, timeMillis, accuracy) -> { });
+    }
+
+    @Test
+    public void ringKeepsNewestPoints() {
+        TrailRing ring = new TrailRing(3);
+        for (int i = 1; i <= 5; i++) {
+            ring.add(i, -i);
+        }
+        assertEquals(3, ring.size());
+        assertEquals(3, ring.latE7(0));
+        assertEquals(-5, ring.lngE7(2));
+    }
+
+    @Test
+    public void ringGrowsAndBoundsBlocks() {
+        TrailRing ring = new TrailRing(5000);
+        Random random = new Random(3);
+        int lat = 0;
+        int lng = 0;
+        int[] lats = new int[12_000];
+        int[] lngs = new int[lats.length];
+        for (int n = 0; n < lats.length; n++) {
+            lat += random.nextInt(2001) - 1000;
+            lng += random.nextInt(2001) - 1000;
+            lats[n] = lat;
+            lngs[n] = lng;
+            ring.add(lat, lng);
+        }
+        assertEquals(5000, ring.size());
+        assertEquals(lats[lats.length - 5000], ring.latE7(0));
+        assertEquals(lngs[lngs.length - 1], ring.lngE7(4999));
+
+        // A block whose box misses the area has no point inside it
+        int south = lats[9000] - 5000;
+        int north = lats[9000] + 5000;
+        int west = lngs[9000] - 5000;
+        int east = lngs[9000] + 5000;
+        int skipped = 0;
+        for (int i = 0; i < ring.size(); i = ring.blockLast(i) + 1) {
+            assertTrue(ring.blockLast(i) - i < TrailRing.BLOCK_SIZE);
+            if (!ring.blockIntersects(i, south, west, north, east)) {
+                for (int k = i; k <= ring.blockLast(i); k++) {
+                    assertFalse(ring.latE7(k) >= south && ring.latE7(k) <= north
+                            && ring.lngE7(k) >= west && ring.lngE7(k) <= east);
+                }
+                skipped++;
+            }
+        }
+        assertTrue(skipped > 0);
+    }
+
+    @Test
+    public void simplifiesStraightRunsAndKeepsCorners() {
+        TrailRing ring = new TrailRing(1000);
+        // 500 points east, then 500 points north, 1 m apart
+        for (int i = 0; i < 500; i++) {
+            ring.add(0, i * 90);
+        }
+        for (int i = 1; i <= 500; i++) {
+            ring.add(i * 90, 499 * 90);
+        }
+        TrailSimplifier simplifier = new TrailSimplifier();
+        TrailSimplifier.IntBuffer kept = new TrailSimplifier.IntBuffer();
+        assertEquals(3, simplifier.simplify(ring, 0, ring.size() - 1, 2.0, kept));
+        assertEquals(0, kept.get(0));
+        // The radial pass may move the corner by less than the tolerance
+        assertTrue(Math.abs(kept.get(1) - 499) <= 2);
+        assertEquals(999, kept.get(2));
+
+        // At a coarse scale the radial pass alone thins the line out
+        kept.clear();
+        simplifier.simplify(ring, 0, ring.size() - 1, 100.0, kept);
+        assertTrue(kept.size() <= 3);
+        assertEquals(999, kept.get(kept.size() - 1));
+
+        double metersPerPixel = TrailSimplifier.metersPerPixel(16, 0);
+        assertEquals(2.39, metersPerPixel, 0.01);
+    }
+}
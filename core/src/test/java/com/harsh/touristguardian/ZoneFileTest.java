@@ -0,0 +1,97 @@
+package com.harsh.touristguardian;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trip through ZoneFileWriter and queries on the mapped file, checked against DangerZoneIndex.
+ */
+public class ZoneFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_keepsZoneFields() throws IOException {
+        ZoneFileWriter writer = new ZoneFileWriter();
+        writer.add(new DangerZone("crime-delhi", DangerZone.TYPE_CRIME, "Delhi", 28.6139, 77.2090, 25, "Pickpocketing"));
+        writer.add(new DangerZone("crime-noida", DangerZone.TYPE_CRIME, "Noida", 28.5355, 77.3910, 10, "Pickpocketing"));
+        File file = folder.newFile("zones.zdb");
+        writer.writeTo(file);
+
+        ZoneFile zones = ZoneFile.map(file);
+        assertEquals(2, zones.size());
+        List<DangerZone> inside = zones.findContaining(28.61, 77.21);
+        assertEquals(1, inside.size());
+        DangerZone delhi = inside.get(0);
+        assertEquals("crime-delhi", delhi.getId());
+        assertEquals(DangerZone.TYPE_CRIME, delhi.getType());
+        assertEquals("Delhi", delhi.getName());
+        assertEquals("Pickpocketing", delhi.getInfo());
+        assertEquals(28.6139, delhi.getLat(), 1e-7);
+        assertEquals(77.2090, delhi.getLng(), 1e-7);
+        assertEquals(25, delhi.getRadiusKm(), 1e-5);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        new ZoneFile(ByteBuffer.wrap(new byte[64]));
+    }
+
+    @Test
+    public void queries_matchInMemoryIndex() throws IOException {
+        Random random = new Random(7);
+        ZoneFileWriter writer = new ZoneFileWriter();
+        for (int i = 0; i < 20000; i++) {
+            writer.add(new DangerZone("z" + i, DangerZone.TYPE_LANDSLIDE, "Zone " + (i % 100),
+                    8 + random.nextDouble() * 29, 68 + random.nextDouble() * 29,
+                    1 + random.nextDouble() * 30, "Inventory " + (i % 7)));
+        }
+        ZoneFile file = new ZoneFile(writer.toBytes());
+
+        // Reference index over the decoded (quantized) zones
+        DangerZoneIndex index = new DangerZoneIndex();
+        for (int i = 0; i < file.size(); i++) {
+            index.put(file.zoneAt(i));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double lat = 6 + random.nextDouble() * 33;
+            double lng = 66 + random.nextDouble() * 33;
+
+            assertEquals(ids(index.findContaining(lat, lng)), ids(file.findContaining(lat, lng)));
+
+            List<DangerZone> expected = index.findNearest(lat, lng, 8);
+            List<DangerZone> nearest = file.findNearest(lat, lng, 8);
+            assertEquals(expected.size(), nearest.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).distanceToBoundaryKm(lat, lng),
+                        nearest.get(i).distanceToBoundaryKm(lat, lng), 1e-9);
+            }
+
+            double size = 0.2 + random.nextDouble() * 3;
+            Set<String> inBounds = ids(file.findInBounds(lat, lng, lat + size, lng + size, Integer.MAX_VALUE));
+            assertEquals(ids(index.findInBounds(lat, lng, lat + size, lng + size, Integer.MAX_VALUE)), inBounds);
+            assertEquals(inBounds.size(), file.findInBounds(lat, lng, lat + size, lng + size, Integer.MAX_VALUE).size());
+        }
+    }
+
+    private static Set<String> ids(List<DangerZone> zones) {
+        Set<String> ids = new HashSet<>();
+        for (DangerZone zone : zones) {
+            ids.add(zone.getId());
+        }
+        return ids;
+    }
+}